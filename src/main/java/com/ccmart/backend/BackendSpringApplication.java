@@ -2,8 +2,10 @@ package com.ccmart.backend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class BackendSpringApplication {
     public static void main(String[] args) {
         SpringApplication.run(BackendSpringApplication.class, args);
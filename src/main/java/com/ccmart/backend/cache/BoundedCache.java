@@ -0,0 +1,260 @@
+package com.ccmart.backend.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Size- and TTL-bounded read-through cache with W-TinyLFU eviction.
+ *
+ * New entries land in a small LRU window. When the window overflows, its eldest entry competes with the
+ * main space's eviction victim and is only admitted if a frequency sketch says it has been requested more
+ * often. The main space is a segmented LRU (probation/protected), so one-hit wonders from a crawl cannot
+ * flush the popular part of the catalog.
+ */
+public class BoundedCache<K, V> {
+
+    private enum Segment { WINDOW, PROBATION, PROTECTED }
+
+    private static final class Node<V> {
+        final V value;
+        final long expiresAt;
+        Segment segment;
+
+        Node(V value, long expiresAt, Segment segment) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.segment = segment;
+        }
+    }
+
+    private final String name;
+    private final int maxSize;
+    private final int windowMax;
+    private final int protectedMax;
+    private final long ttlNanos;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<K, Node<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+
+    // Bumped on every invalidation; a load that started under an older generation is not cached
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public BoundedCache(String name, int maxSize, long ttlSeconds) {
+        if (maxSize < 2) throw new IllegalArgumentException("maxSize must be at least 2");
+        this.name = name;
+        this.maxSize = maxSize;
+        this.windowMax = Math.max(1, maxSize / 100);
+        this.protectedMax = (int) ((maxSize - windowMax) * 0.8);
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.sketch = new FrequencySketch(maxSize);
+    }
+
+    /**
+     * Return the cached value, or load it (outside the lock) and cache it.
+     * Null results are returned but not cached.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            sketch.increment(key);
+            Node<V> node = lookup(key);
+            if (node != null) {
+                hits++;
+                return node.value;
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+
+        V value = loader.apply(key);
+        if (value == null) return null;
+
+        synchronized (this) {
+            if (loadGeneration == generation && lookup(key) == null) {
+                insert(key, value);
+            }
+        }
+        return value;
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        window.remove(key);
+        probation.remove(key);
+        protectedSegment.remove(key);
+    }
+
+    // Drop the entries whose value matches; a scan, so meant for caches of a few thousand entries at most
+    public synchronized void invalidateIf(Predicate<? super V> matches) {
+        generation++;
+        window.values().removeIf(node -> matches.test(node.value));
+        probation.values().removeIf(node -> matches.test(node.value));
+        protectedSegment.values().removeIf(node -> matches.test(node.value));
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    public synchronized int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        long requests = hits + misses;
+        stats.put("name", name);
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) hits / requests);
+        stats.put("evictions", evictions);
+        stats.put("expirations", expirations);
+        return stats;
+    }
+
+    // Find a live entry and record the access in its segment. Caller holds the lock.
+    private Node<V> lookup(K key) {
+        Node<V> node = window.get(key);
+        if (node == null) node = probation.get(key);
+        if (node == null) node = protectedSegment.get(key);
+        if (node == null) return null;
+
+        if (System.nanoTime() - node.expiresAt > 0) {
+            removeFromSegment(key, node);
+            expirations++;
+            return null;
+        }
+
+        if (node.segment == Segment.PROBATION) {
+            // Second hit in the main space: promote, demoting the protected LRU entry if needed
+            probation.remove(key);
+            node.segment = Segment.PROTECTED;
+            protectedSegment.put(key, node);
+            if (protectedSegment.size() > protectedMax) {
+                Map.Entry<K, Node<V>> eldest = eldest(protectedSegment);
+                protectedSegment.remove(eldest.getKey());
+                eldest.getValue().segment = Segment.PROBATION;
+                probation.put(eldest.getKey(), eldest.getValue());
+            }
+        }
+        return node;
+    }
+
+    private void insert(K key, V value) {
+        window.put(key, new Node<>(value, System.nanoTime() + ttlNanos, Segment.WINDOW));
+        if (window.size() <= windowMax) return;
+
+        Map.Entry<K, Node<V>> candidate = eldest(window);
+        window.remove(candidate.getKey());
+
+        int mainSize = probation.size() + protectedSegment.size();
+        if (mainSize < maxSize - windowMax) {
+            candidate.getValue().segment = Segment.PROBATION;
+            probation.put(candidate.getKey(), candidate.getValue());
+            return;
+        }
+
+        // Main space is full: TinyLFU admission between the window's candidate and the main victim
+        LinkedHashMap<K, Node<V>> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+        Map.Entry<K, Node<V>> victim = eldest(victimSegment);
+        if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim.getKey())) {
+            victimSegment.remove(victim.getKey());
+            candidate.getValue().segment = Segment.PROBATION;
+            probation.put(candidate.getKey(), candidate.getValue());
+        }
+        evictions++;
+    }
+
+    private void removeFromSegment(K key, Node<V> node) {
+        switch (node.segment) {
+            case WINDOW -> window.remove(key);
+            case PROBATION -> probation.remove(key);
+            case PROTECTED -> protectedSegment.remove(key);
+        }
+    }
+
+    private static <K, V> Map.Entry<K, Node<V>> eldest(LinkedHashMap<K, Node<V>> segment) {
+        Iterator<Map.Entry<K, Node<V>>> it = segment.entrySet().iterator();
+        return it.next();
+    }
+
+    /**
+     * Count-min sketch with 4-bit style saturation and periodic halving, so popularity ages out.
+     */
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+        private final int[][] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maxSize) {
+            int width = Integer.highestOneBit(Math.max(16, maxSize) * 2 - 1);
+            this.table = new int[DEPTH][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * maxSize;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < DEPTH; i++) {
+                int index = indexOf(hash, i);
+                if (table[i][index] < MAX_COUNT) {
+                    table[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int min = MAX_COUNT;
+            for (int i = 0; i < DEPTH; i++) {
+                min = Math.min(min, table[i][indexOf(hash, i)]);
+            }
+            return min;
+        }
+
+        private void reset() {
+            for (int[] row : table) {
+                for (int j = 0; j < row.length; j++) row[j] >>>= 1;
+            }
+            additions /= 2;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private static int spread(int h) {
+            h ^= h >>> 16;
+            h *= 0x45D9F3B;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.ccmart.backend.cache;
+
+import com.ccmart.backend.dto.ProductSummaryDTO;
+import com.ccmart.backend.dto.VersionStamp;
+import com.ccmart.backend.event.CategoryChangedEvent;
+import com.ccmart.backend.event.ProductChangedEvent;
+import com.ccmart.backend.model.Category;
+import com.ccmart.backend.model.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache for catalog reads. Entries are dropped by ProductChangedEvent / CategoryChangedEvent
+ * after commit; the TTL only bounds staleness across multiple instances, which do not see each other's events.
+ */
+@Component
+public class CatalogCache {
+
+    private static final String ALL_CATEGORIES = "all";
+    public static final String PRODUCTS_STAMP = "products";
+    public static final String CATEGORIES_STAMP = "categories";
+
+    private final BoundedCache<Long, Product> products;
+    private final BoundedCache<String, List<ProductSummaryDTO>> productPages;
+    private final BoundedCache<String, List<Category>> categories;
+    private final BoundedCache<String, VersionStamp> stamps;
+
+    public CatalogCache(@Value("${catalog.cache.products.max-size:10000}") int productsMaxSize,
+                        @Value("${catalog.cache.pages.max-size:1000}") int pagesMaxSize,
+                        @Value("${catalog.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.products = new BoundedCache<>("products", productsMaxSize, ttlSeconds);
+        this.productPages = new BoundedCache<>("productPages", pagesMaxSize, ttlSeconds);
+        this.categories = new BoundedCache<>("categories", 16, ttlSeconds);
+        this.stamps = new BoundedCache<>("versionStamps", 16, ttlSeconds);
+    }
+
+    public Product getProduct(Long id, Supplier<Product> loader) {
+        return products.get(id, k -> loader.get());
+    }
+
+    public List<ProductSummaryDTO> getProductPage(String key, Supplier<List<ProductSummaryDTO>> loader) {
+        return productPages.get(key, k -> loader.get());
+    }
+
+    public List<Category> getCategories(Supplier<List<Category>> loader) {
+        return categories.get(ALL_CATEGORIES, k -> loader.get());
+    }
+
+    // Aggregate count/max(updatedAt) used for conditional GETs on the catalog listings
+    public VersionStamp getVersionStamp(String key, Supplier<VersionStamp> loader) {
+        return stamps.get(key, k -> loader.get());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        switch (event.getType()) {
+            case BULK -> {
+                products.invalidateAll();
+                productPages.invalidateAll();
+            }
+            case CREATED, DELETED -> {
+                // Pages are id-ordered slices, so an added or removed row shifts every page after it
+                products.invalidate(event.getProductId());
+                productPages.invalidateAll();
+            }
+            default -> {
+                // Edits and stock moves keep every row where it is: only pages holding this product go
+                Long id = event.getProductId();
+                products.invalidate(id);
+                productPages.invalidateIf(page -> containsProduct(page, id));
+            }
+        }
+        stamps.invalidate(PRODUCTS_STAMP);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        categories.invalidateAll();
+        // Category names are embedded in product rows
+        products.invalidateAll();
+        productPages.invalidateAll();
+        stamps.invalidateAll();
+    }
+
+    // Page rows come back ordered by id, so this is a binary search
+    private static boolean containsProduct(List<ProductSummaryDTO> page, Long id) {
+        int low = 0;
+        int high = page.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = page.get(mid).getId().compareTo(id);
+            if (cmp == 0) return true;
+            if (cmp < 0) low = mid + 1; else high = mid - 1;
+        }
+        return false;
+    }
+
+    public void invalidateAll() {
+        products.invalidateAll();
+        productPages.invalidateAll();
+        categories.invalidateAll();
+        stamps.invalidateAll();
+    }
+
+    public List<Map<String, Object>> stats() {
+        return List.of(products.stats(), productPages.stats(), categories.stats(), stamps.stats());
+    }
+}
@@ -28,7 +28,7 @@ public class CorsConfig {
         config.setAllowedOriginPatterns(allowedOrigins);
         config.setAllowedMethods(java.util.List.of("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         config.addAllowedHeader("*");
-        config.setExposedHeaders(java.util.List.of("Authorization"));
+        config.setExposedHeaders(java.util.List.of("Authorization", "X-Next-Cursor", "X-Has-More", "X-Total-Count", "Idempotent-Replayed"));
         config.setAllowCredentials(true);
         config.setMaxAge(3600L);
 
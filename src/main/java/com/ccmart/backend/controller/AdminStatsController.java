@@ -0,0 +1,58 @@
+package com.ccmart.backend.controller;
+
+import com.ccmart.backend.service.OrderRollupService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/stats")
+public class AdminStatsController {
+
+    private final OrderRollupService orderRollupService;
+
+    public AdminStatsController(OrderRollupService orderRollupService) {
+        this.orderRollupService = orderRollupService;
+    }
+
+    /**
+     * Dashboard KPIs from the rollup tables (Admin only). Defaults to the last 30 days, one point per day.
+     */
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getStats(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                      @RequestParam(defaultValue = "day") String granularity) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        try {
+            return ResponseEntity.ok(orderRollupService.getStats(start, end, granularity));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Recompute the rollups from orders in the background; progress via GET /rebuild
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuild() {
+        try {
+            orderRollupService.startRebuild();
+            return ResponseEntity.accepted().body(orderRollupService.getLastRebuild());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuildStatus() {
+        Map<String, Object> report = orderRollupService.getLastRebuild();
+        if (report == null) return ResponseEntity.status(404).body("No rollup rebuild has run");
+        return ResponseEntity.ok(report);
+    }
+}
@@ -6,8 +6,10 @@ import com.ccmart.backend.model.User;
 import com.ccmart.backend.repository.CartRepository;
 import com.ccmart.backend.repository.ProductRepository;
 import com.ccmart.backend.repository.UserRepository;
+import com.ccmart.backend.service.StockHoldService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -20,11 +22,16 @@ public class CartController {
     private final CartRepository cartRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final StockHoldService stockHoldService;
+    private final TransactionTemplate transactionTemplate;
 
-    public CartController(CartRepository cartRepository, ProductRepository productRepository, UserRepository userRepository) {
+    public CartController(CartRepository cartRepository, ProductRepository productRepository, UserRepository userRepository,
+                          StockHoldService stockHoldService, TransactionTemplate transactionTemplate) {
         this.cartRepository = cartRepository;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
+        this.stockHoldService = stockHoldService;
+        this.transactionTemplate = transactionTemplate;
     }
 
     @GetMapping
@@ -44,19 +51,45 @@ public class CartController {
         Optional<Product> pOpt = productRepository.findById(item.getProduct().getId());
         if (pOpt.isEmpty()) return ResponseEntity.status(404).body("Product not found");
         Product p = pOpt.get();
-        if (p.getStockQuantity() < item.getQuantity()) return ResponseEntity.badRequest().body("Insufficient stock");
+        if (item.getQuantity() == null || item.getQuantity() <= 0) return ResponseEntity.badRequest().body("Quantity must be at least 1");
         item.setUser(uOpt.get());
         item.setProduct(p);
-        CartItem saved = cartRepository.save(item);
-        return ResponseEntity.status(201).body(saved);
+        // The units are held for this user until checkout or until the hold expires
+        try {
+            CartItem saved = transactionTemplate.execute(status -> {
+                stockHoldService.hold(userId, p.getId(), item.getQuantity());
+                return cartRepository.save(item);
+            });
+            return ResponseEntity.status(201).body(saved);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
+
+    @GetMapping("/holds")
+    public ResponseEntity<?> getHolds(Authentication authentication) {
+        if (authentication == null) return ResponseEntity.status(401).body("Unauthorized");
+        Long userId = Long.valueOf(authentication.getName());
+        return ResponseEntity.ok(stockHoldService.getHolds(userId));
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<?> remove(@PathVariable Long id, Authentication authentication) {
         if (authentication == null) return ResponseEntity.status(401).body("Unauthorized");
+        Long userId = Long.valueOf(authentication.getName());
         Optional<CartItem> cOpt = cartRepository.findById(id);
         if (cOpt.isEmpty()) return ResponseEntity.status(404).body("Cart item not found");
-        cartRepository.deleteById(id);
+        CartItem item = cOpt.get();
+        // Removing the item gives its held units back, so only the customer holding them may do it
+        if (item.getUser() == null || !userId.equals(item.getUser().getId())) {
+            return ResponseEntity.status(403).body("Not allowed to remove this cart item");
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (item.getQuantity() != null) {
+                stockHoldService.release(item.getUser().getId(), item.getProduct().getId(), item.getQuantity());
+            }
+            cartRepository.deleteById(id);
+        });
         return ResponseEntity.ok("Removed");
     }
 }
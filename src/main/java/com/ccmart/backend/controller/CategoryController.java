@@ -1,9 +1,14 @@
 package com.ccmart.backend.controller;
 
+import com.ccmart.backend.cache.CatalogCache;
+import com.ccmart.backend.dto.VersionStamp;
+import com.ccmart.backend.event.CategoryChangedEvent;
 import com.ccmart.backend.model.Category;
 import com.ccmart.backend.repository.CategoryRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -13,30 +18,43 @@ import java.util.Optional;
 public class CategoryController {
 
     private final CategoryRepository categoryRepository;
+    private final CatalogCache catalogCache;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public CategoryController(CategoryRepository categoryRepository) {
+    public CategoryController(CategoryRepository categoryRepository, CatalogCache catalogCache,
+                              ApplicationEventPublisher eventPublisher) {
         this.categoryRepository = categoryRepository;
+        this.catalogCache = catalogCache;
+        this.eventPublisher = eventPublisher;
     }
 
     @GetMapping
-    public ResponseEntity<?> list() {
-        System.out.println("CategoryController.list() called");
-        List<Category> categories = categoryRepository.findAll();
-        System.out.println("Found " + categories.size() + " categories");
-        return ResponseEntity.ok(categories);
+    public ResponseEntity<?> list(WebRequest webRequest) {
+        VersionStamp stamp = catalogCache.getVersionStamp(CatalogCache.CATEGORIES_STAMP, categoryRepository::findVersionStamp);
+        if (ConditionalRequests.notModified(webRequest, "categories", stamp)) {
+            return null;
+        }
+        List<Category> categories = catalogCache.getCategories(categoryRepository::findAll);
+        return ConditionalRequests.ok().body(categories);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getOne(@PathVariable Long id) {
+    public ResponseEntity<?> getOne(@PathVariable Long id, WebRequest webRequest) {
         Optional<Category> c = categoryRepository.findById(id);
         if (c.isEmpty()) return ResponseEntity.status(404).body("Category not found");
-        return ResponseEntity.ok(c.get());
+        Category category = c.get();
+        String etag = ConditionalRequests.weakETag("category-" + id, category.getUpdatedAt());
+        if (ConditionalRequests.notModified(webRequest, etag, category.getUpdatedAt())) {
+            return null;
+        }
+        return ConditionalRequests.ok().body(category);
     }
 
     @PostMapping
     @org.springframework.security.access.prepost.PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> create(@RequestBody Category category) {
         Category saved = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(saved.getId()));
         return ResponseEntity.status(201).body(saved);
     }
 
@@ -46,11 +64,13 @@ public class CategoryController {
         Optional<Category> existing = categoryRepository.findById(id);
         if (existing.isEmpty()) return ResponseEntity.status(404).body("Category not found");
         Category e = existing.get();
+        boolean renamed = !java.util.Objects.equals(e.getName(), category.getName());
         e.setName(category.getName());
         e.setDescription(category.getDescription());
         e.setImageUrl(category.getImageUrl());
         e.setIsActive(category.getIsActive());
         categoryRepository.save(e);
+        eventPublisher.publishEvent(new CategoryChangedEvent(id, renamed));
         return ResponseEntity.ok(e);
     }
 
@@ -62,6 +82,7 @@ public class CategoryController {
         Category e = existing.get();
         e.setIsActive(false);
         categoryRepository.save(e);
+        eventPublisher.publishEvent(new CategoryChangedEvent(id));
         return ResponseEntity.ok("Category deleted");
     }
 }
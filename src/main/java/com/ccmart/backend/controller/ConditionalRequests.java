@@ -0,0 +1,56 @@
+package com.ccmart.backend.controller;
+
+import com.ccmart.backend.dto.VersionStamp;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Conditional GET support for read endpoints. Callers compute a cheap version first and only
+ * load/serialize the body when the client's copy is out of date:
+ *
+ *   if (ConditionalRequests.notModified(webRequest, etag, lastModified)) return null;
+ *
+ * Returning null after a positive check lets Spring MVC finish the 304 with an empty body.
+ *
+ * Collections are validated by ETag only: a hard delete can leave the newest update time where it was,
+ * so If-Modified-Since would miss it, while the row count in the ETag does not.
+ */
+final class ConditionalRequests {
+
+    private ConditionalRequests() {}
+
+    // Collection check: one weak ETag over the count and newest update time of every stamp
+    static boolean notModified(WebRequest request, String scope, VersionStamp... stamps) {
+        StringBuilder etag = new StringBuilder("W/\"").append(scope);
+        for (VersionStamp stamp : stamps) {
+            etag.append('-').append(stamp.getCount()).append('-').append(Long.toHexString(toMillis(stamp.getLastModified())));
+        }
+        return request.checkNotModified(etag.append('"').toString());
+    }
+
+    static boolean notModified(WebRequest request, String etag, LocalDateTime lastModified) {
+        return request.checkNotModified(etag, toMillis(lastModified));
+    }
+
+    // Weak ETag for a single row: scope plus the update time of the row (and anything embedded in it)
+    static String weakETag(String scope, LocalDateTime... versions) {
+        StringBuilder etag = new StringBuilder("W/\"").append(scope);
+        for (LocalDateTime version : versions) {
+            etag.append('-').append(Long.toHexString(toMillis(version)));
+        }
+        return etag.append('"').toString();
+    }
+
+    static long toMillis(LocalDateTime time) {
+        return time == null ? -1 : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // 200 response whose ETag/Last-Modified were already set by the check; clients must revalidate before reuse
+    static ResponseEntity.BodyBuilder ok() {
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache());
+    }
+}
@@ -1,12 +1,19 @@
 package com.ccmart.backend.controller;
 
+import com.ccmart.backend.dto.DeliveryAgentListing;
 import com.ccmart.backend.model.DeliveryAgent;
 import com.ccmart.backend.repository.DeliveryAgentRepository;
+import com.ccmart.backend.service.AgentLocationService;
+import com.ccmart.backend.service.AgentStatsService;
+import com.ccmart.backend.service.DeliveryAssignmentService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -14,30 +21,39 @@ import java.util.Optional;
 public class DeliveryAgentController {
 
     private final DeliveryAgentRepository deliveryAgentRepository;
-
-    public DeliveryAgentController(DeliveryAgentRepository deliveryAgentRepository) {
+    private final DeliveryAssignmentService deliveryAssignmentService;
+    private final AgentLocationService agentLocationService;
+    private final AgentStatsService agentStatsService;
+
+    public DeliveryAgentController(DeliveryAgentRepository deliveryAgentRepository,
+                                   DeliveryAssignmentService deliveryAssignmentService,
+                                   AgentLocationService agentLocationService,
+                                   AgentStatsService agentStatsService) {
         this.deliveryAgentRepository = deliveryAgentRepository;
+        this.deliveryAssignmentService = deliveryAssignmentService;
+        this.agentLocationService = agentLocationService;
+        this.agentStatsService = agentStatsService;
     }
 
     // Get all delivery agents (Admin only)
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<DeliveryAgent>> getAllAgents() {
-        return ResponseEntity.ok(deliveryAgentRepository.findAll());
+    public ResponseEntity<List<DeliveryAgentListing>> getAllAgents() {
+        return ResponseEntity.ok(agentStatsService.withWorkload(deliveryAgentRepository.findAll()));
     }
 
     // Get active delivery agents
     @GetMapping("/active")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<DeliveryAgent>> getActiveAgents() {
-        return ResponseEntity.ok(deliveryAgentRepository.findByIsActiveTrue());
+    public ResponseEntity<List<DeliveryAgentListing>> getActiveAgents() {
+        return ResponseEntity.ok(agentStatsService.withWorkload(deliveryAgentRepository.findByIsActiveTrue()));
     }
 
     // Get available delivery agents
     @GetMapping("/available")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<DeliveryAgent>> getAvailableAgents() {
-        return ResponseEntity.ok(deliveryAgentRepository.findByIsAvailableTrue());
+    public ResponseEntity<List<DeliveryAgentListing>> getAvailableAgents() {
+        return ResponseEntity.ok(agentStatsService.withWorkload(deliveryAgentRepository.findByIsAvailableTrue()));
     }
 
     // Get delivery agent by ID
@@ -47,7 +63,7 @@ public class DeliveryAgentController {
         if (agent.isEmpty()) {
             return ResponseEntity.status(404).body("Delivery agent not found");
         }
-        return ResponseEntity.ok(agent.get());
+        return ResponseEntity.ok(agentStatsService.withWorkload(List.of(agent.get())).get(0));
     }
 
     // Create new delivery agent (Admin only)
@@ -58,6 +74,9 @@ public class DeliveryAgentController {
             agent.setIsActive(true);
             agent.setIsAvailable(true);
             DeliveryAgent savedAgent = deliveryAgentRepository.save(agent);
+            agentStatsService.createFor(savedAgent.getId());
+            deliveryAssignmentService.agentChanged(savedAgent.getId());
+            agentLocationService.refreshOwner(savedAgent.getId());
             return ResponseEntity.status(201).body(savedAgent);
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Error creating delivery agent: " + e.getMessage());
@@ -88,6 +107,8 @@ public class DeliveryAgentController {
         }
 
         deliveryAgentRepository.save(agent);
+        deliveryAssignmentService.agentChanged(id);
+        agentLocationService.refreshOwner(id);
         return ResponseEntity.ok(agent);
     }
 
@@ -103,10 +124,12 @@ public class DeliveryAgentController {
         DeliveryAgent agent = existing.get();
         agent.setIsActive(false);
         deliveryAgentRepository.save(agent);
+        deliveryAssignmentService.agentChanged(id);
+        agentLocationService.refreshOwner(id);
         return ResponseEntity.ok("Delivery agent deactivated successfully");
     }
 
-    // Toggle availability (Admin only)
+    // Toggle availability (Admin only); orders an agent going off duty has not picked up yet are reassigned
     @PatchMapping("/{id}/availability")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> toggleAvailability(@PathVariable Long id) {
@@ -118,6 +141,66 @@ public class DeliveryAgentController {
         DeliveryAgent agent = existing.get();
         agent.setIsAvailable(!agent.getIsAvailable());
         deliveryAgentRepository.save(agent);
+        deliveryAssignmentService.agentChanged(id);
+        agentLocationService.refreshOwner(id);
         return ResponseEntity.ok(agent);
     }
+
+    // Location ping from the agent's app (the user account with the agent's email) or an admin.
+    // Kept in memory and written to the database in periodic batches.
+    @PostMapping("/{id}/location")
+    public ResponseEntity<?> reportLocation(@PathVariable Long id, @RequestBody Map<String, Double> body,
+                                            Authentication authentication) {
+        if (authentication == null) return ResponseEntity.status(401).body("Unauthorized");
+        if (!isAdmin(authentication) && !isOwner(id, authentication)) {
+            return ResponseEntity.status(403).body("Not allowed to report this agent's location");
+        }
+        Double latitude = body.get("latitude");
+        Double longitude = body.get("longitude");
+        if (latitude == null || longitude == null) {
+            return ResponseEntity.badRequest().body("latitude and longitude are required");
+        }
+        try {
+            AgentLocationService.Position position = agentLocationService.ping(id, latitude, longitude);
+            return ResponseEntity.ok(Map.of("agentId", id, "latitude", position.latitude(), "longitude", position.longitude()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Latest known position (Admin only), live if the agent is pinging
+    @GetMapping("/{id}/location")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getLocation(@PathVariable Long id) {
+        AgentLocationService.Position position = agentLocationService.getPosition(id);
+        if (position == null) return ResponseEntity.status(404).body("No location reported for this agent");
+        return ResponseEntity.ok(Map.of("agentId", id, "latitude", position.latitude(), "longitude", position.longitude(),
+            "updatedAt", Instant.ofEpochMilli(position.recordedAt()).toString()));
+    }
+
+    // Nearest available agents to a point, e.g. a delivery address (Admin only)
+    @GetMapping("/nearest")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getNearestAgents(@RequestParam double lat, @RequestParam double lng,
+                                              @RequestParam(defaultValue = "5") int limit,
+                                              @RequestParam(defaultValue = "10") double radiusKm) {
+        try {
+            return ResponseEntity.ok(agentLocationService.nearest(lat, lng, limit, radiusKm));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // A principal that is not a user id cannot own an agent
+    private boolean isOwner(Long agentId, Authentication authentication) {
+        try {
+            return agentLocationService.isOwner(agentId, Long.valueOf(authentication.getName()));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean isAdmin(Authentication authentication) {
+        return authentication.getAuthorities().stream().anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
+    }
 }
@@ -0,0 +1,97 @@
+package com.ccmart.backend.controller;
+
+import com.ccmart.backend.model.DeliveryAgent;
+import com.ccmart.backend.model.DeliveryRun;
+import com.ccmart.backend.repository.DeliveryAgentRepository;
+import com.ccmart.backend.repository.DeliveryRunRepository;
+import com.ccmart.backend.service.DeliveryAssignmentService;
+import com.ccmart.backend.service.DeliveryRunService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/delivery-runs")
+public class DeliveryRunController {
+
+    private final DeliveryRunService deliveryRunService;
+    private final DeliveryRunRepository deliveryRunRepository;
+    private final DeliveryAgentRepository deliveryAgentRepository;
+    private final DeliveryAssignmentService deliveryAssignmentService;
+
+    public DeliveryRunController(DeliveryRunService deliveryRunService, DeliveryRunRepository deliveryRunRepository,
+                                 DeliveryAgentRepository deliveryAgentRepository,
+                                 DeliveryAssignmentService deliveryAssignmentService) {
+        this.deliveryRunService = deliveryRunService;
+        this.deliveryRunRepository = deliveryRunRepository;
+        this.deliveryAgentRepository = deliveryAgentRepository;
+        this.deliveryAssignmentService = deliveryAssignmentService;
+    }
+
+    // Group approved orders that are not in a run yet by area and delivery slot (Admin only); ?date= limits to one day
+    @PostMapping("/plan")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> planRuns(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        try {
+            return ResponseEntity.ok(deliveryRunService.planRuns(date));
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(409).body("Some orders were planned by another request at the same time, please retry");
+        }
+    }
+
+    // Runs with their stops in driving order (Admin only)
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getRuns(@RequestParam(defaultValue = DeliveryRun.PLANNED) String status) {
+        return ResponseEntity.ok(deliveryRunService.listRuns(status));
+    }
+
+    // Assign all orders of a run to one agent (Admin only): {"agentId": 3}
+    @PutMapping("/{id}/assign")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> assignRun(@PathVariable Long id, @RequestBody Map<String, Long> body) {
+        Long agentId = body.get("agentId");
+        if (agentId == null) {
+            return ResponseEntity.badRequest().body("Agent ID is required");
+        }
+        if (!deliveryRunRepository.existsById(id)) {
+            return ResponseEntity.status(404).body("Delivery run not found");
+        }
+        Optional<DeliveryAgent> agentOpt = deliveryAgentRepository.findById(agentId);
+        if (agentOpt.isEmpty()) {
+            return ResponseEntity.status(404).body("Delivery agent not found");
+        }
+        DeliveryAgent agent = agentOpt.get();
+        if (!agent.getIsActive() || !agent.getIsAvailable()) {
+            return ResponseEntity.badRequest().body("Delivery agent is not available");
+        }
+        try {
+            Map<String, Object> result = deliveryRunService.assignRun(id, agent);
+            deliveryAssignmentService.agentChanged(agentId);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Dissolve a planned run so its orders can be planned or assigned again (Admin only)
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> cancelRun(@PathVariable Long id) {
+        if (!deliveryRunRepository.existsById(id)) {
+            return ResponseEntity.status(404).body("Delivery run not found");
+        }
+        try {
+            deliveryRunService.cancelRun(id);
+            return ResponseEntity.ok("Delivery run cancelled");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
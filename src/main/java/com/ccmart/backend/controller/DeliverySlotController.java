@@ -0,0 +1,49 @@
+package com.ccmart.backend.controller;
+
+import com.ccmart.backend.service.DeliverySlotService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/delivery-slots")
+public class DeliverySlotController {
+
+    private final DeliverySlotService deliverySlotService;
+
+    public DeliverySlotController(DeliverySlotService deliverySlotService) {
+        this.deliverySlotService = deliverySlotService;
+    }
+
+    // Remaining places per delivery window for checkout, served from memory
+    @GetMapping
+    public ResponseEntity<?> getAvailability(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                             @RequestParam(defaultValue = "7") int days) {
+        return ResponseEntity.ok(deliverySlotService.getAvailability(from, days));
+    }
+
+    // Set the capacity of one window on one day (Admin only): {"date": "2025-01-15", "window": "10:00-12:00", "capacity": 30}
+    @PutMapping("/capacity")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> setCapacity(@RequestBody Map<String, Object> body) {
+        Object date = body.get("date");
+        Object window = body.get("window");
+        Object capacity = body.get("capacity");
+        if (date == null || window == null || !(capacity instanceof Number n)) {
+            return ResponseEntity.badRequest().body("date, window and a numeric capacity are required");
+        }
+        try {
+            deliverySlotService.setCapacity(LocalDate.parse(date.toString()), window.toString(), n.intValue());
+            return ResponseEntity.ok("Delivery slot capacity updated");
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("date must be YYYY-MM-DD");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
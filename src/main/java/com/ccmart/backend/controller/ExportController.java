@@ -0,0 +1,115 @@
+package com.ccmart.backend.controller;
+
+import com.ccmart.backend.service.ExportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streaming admin exports. Rows are written as they are read from the database, as NDJSON (default) or CSV,
+ * and gzip-compressed on the fly when the client sends Accept-Encoding: gzip.
+ */
+@RestController
+@RequestMapping("/api")
+public class ExportController {
+
+    private final ExportService exportService;
+    private final long timeoutMillis;
+
+    public ExportController(ExportService exportService, @Value("${exports.timeout-ms:1800000}") long timeoutMillis) {
+        this.exportService = exportService;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @GetMapping("/products/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "ndjson") String format,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                                HttpServletRequest request) {
+        String resolvedFormat = resolveFormat(format);
+        if (resolvedFormat == null) return badRequest("format must be csv or ndjson");
+        return stream(request, "products", resolvedFormat, acceptEncoding, out -> exportService.exportProducts(out, resolvedFormat));
+    }
+
+    // Optional filters: status, and a createdAt range as ISO dates (from inclusive, to exclusive)
+    @GetMapping("/orders/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(defaultValue = "ndjson") String format,
+                                                              @RequestParam(required = false) String status,
+                                                              @RequestParam(required = false) String from,
+                                                              @RequestParam(required = false) String to,
+                                                              @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                              HttpServletRequest request) {
+        String resolvedFormat = resolveFormat(format);
+        if (resolvedFormat == null) return badRequest("format must be csv or ndjson");
+        LocalDateTime fromTime;
+        LocalDateTime toTime;
+        try {
+            fromTime = from == null ? null : LocalDate.parse(from).atStartOfDay();
+            toTime = to == null ? null : LocalDate.parse(to).atStartOfDay();
+        } catch (DateTimeParseException e) {
+            return badRequest("from/to must be dates like 2025-01-31");
+        }
+        return stream(request, "orders", resolvedFormat, acceptEncoding,
+            out -> exportService.exportOrders(out, resolvedFormat, status, fromTime, toTime));
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(HttpServletRequest request, String name, String format,
+                                                         String acceptEncoding, Consumer<OutputStream> writer) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        String filename = name + "-" + LocalDate.now() + "." + format;
+
+        StreamingResponseBody body = out -> {
+            // The body runs once async processing has started; only this request gets the longer timeout
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().setTimeout(timeoutMillis);
+            }
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 8192);
+                writer.accept(gzipOut);
+                gzipOut.finish();
+            } else {
+                writer.accept(out);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(ExportService.CSV.equals(format)
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : MediaType.parseMediaType("application/x-ndjson"))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    // Spring only streams ResponseEntity<StreamingResponseBody>, so errors are written the same way
+    private static ResponseEntity<StreamingResponseBody> badRequest(String message) {
+        return ResponseEntity.badRequest()
+            .contentType(new MediaType("text", "plain", StandardCharsets.UTF_8))
+            .body(out -> out.write(message.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String resolveFormat(String format) {
+        String f = format.toLowerCase(Locale.ROOT);
+        if (f.equals("csv")) return ExportService.CSV;
+        if (f.equals("ndjson") || f.equals("jsonl")) return ExportService.NDJSON;
+        return null;
+    }
+}
@@ -0,0 +1,100 @@
+package com.ccmart.backend.controller;
+
+import com.ccmart.backend.service.ImageMigrationService;
+import com.ccmart.backend.service.ImageStorageService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/images")
+public class ImageController {
+
+    // Tomcat request attributes that hand the file to the connector's sendfile (FileChannel.transferTo) path
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final ImageStorageService imageStorageService;
+    private final ImageMigrationService imageMigrationService;
+
+    public ImageController(ImageStorageService imageStorageService, ImageMigrationService imageMigrationService) {
+        this.imageStorageService = imageStorageService;
+        this.imageMigrationService = imageMigrationService;
+    }
+
+    // Upload an image (Admin only) - returns the short URL to store on the product
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> upload(@RequestParam("file") MultipartFile file) {
+        if (file.isEmpty()) return ResponseEntity.badRequest().body("File is empty");
+        try {
+            ImageStorageService.StoredImage stored = imageStorageService.store(file.getInputStream(), file.getContentType());
+            Map<String, Object> response = new HashMap<>();
+            response.put("url", stored.getUrl());
+            response.put("hash", stored.getHash());
+            response.put("contentType", stored.getContentType());
+            response.put("size", stored.getSize());
+            return ResponseEntity.status(201).body(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(500).body("Error storing image: " + e.getMessage());
+        }
+    }
+
+    // Serve a stored image. Content never changes for a given name, so the hash is a strong ETag
+    // and browsers/CDNs may cache it for a year.
+    @GetMapping("/{name:.+}")
+    public ResponseEntity<?> serve(@PathVariable String name, WebRequest webRequest, HttpServletRequest request) throws IOException {
+        Path path = imageStorageService.resolve(name);
+        if (path == null) return ResponseEntity.status(404).body("Image not found");
+
+        String etag = "\"" + name.substring(0, name.indexOf('.')) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null; // 304 already written
+        }
+
+        long size = Files.size(path);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .eTag(etag)
+            .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+            .contentType(MediaType.parseMediaType(imageStorageService.contentTypeOf(name)))
+            .header("X-Content-Type-Options", "nosniff")
+            .header("Content-Security-Policy", "default-src 'none'")
+            .contentLength(size);
+        if (ImageStorageService.isScriptable(name)) {
+            response.header("Content-Disposition", "attachment; filename=\"" + name + "\"");
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT)) && !"HEAD".equals(request.getMethod())) {
+            // Zero-copy: the connector streams the file from the page cache once the headers are written
+            request.setAttribute(SENDFILE_FILENAME, path.toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return response.build();
+        }
+        return response.body(new FileSystemResource(path));
+    }
+
+    // Move inline base64 product images into the store (Admin only). Also runs once at startup.
+    @PostMapping("/migrate-inline")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> migrateInline() {
+        return ResponseEntity.ok(imageMigrationService.migrateInlineImages());
+    }
+}
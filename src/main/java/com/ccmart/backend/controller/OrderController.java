@@ -5,27 +5,34 @@ import com.ccmart.backend.model.OrderItem;
 import com.ccmart.backend.model.Product;
 import com.ccmart.backend.model.User;
 import com.ccmart.backend.model.DeliveryAgent;
-import com.ccmart.backend.model.Notification;
+import com.ccmart.backend.model.OrderStatus;
 import com.ccmart.backend.dto.OrderDTO;
+import com.ccmart.backend.dto.OrderSearchFilter;
 import com.ccmart.backend.repository.OrderRepository;
 import com.ccmart.backend.repository.ProductRepository;
 import com.ccmart.backend.repository.UserRepository;
 import com.ccmart.backend.repository.DeliveryAgentRepository;
 import com.ccmart.backend.repository.OrderItemRepository;
+import com.ccmart.backend.service.DeliveryAssignmentService;
+import com.ccmart.backend.service.OrderLifecycleService;
+import com.ccmart.backend.service.OrderQueryService;
+import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -37,7 +44,10 @@ public class OrderController {
     private final DeliveryAgentRepository deliveryAgentRepository;
     private final OrderItemRepository orderItemRepository;
     private final com.ccmart.backend.service.OrderService orderService;
-    private final com.ccmart.backend.service.NotificationService notificationService;
+    private final com.ccmart.backend.service.IdempotencyService idempotencyService;
+    private final OrderLifecycleService orderLifecycleService;
+    private final OrderQueryService orderQueryService;
+    private final DeliveryAssignmentService deliveryAssignmentService;
     
     @PersistenceContext
     private EntityManager entityManager;
@@ -46,18 +56,24 @@ public class OrderController {
                           ProductRepository productRepository, DeliveryAgentRepository deliveryAgentRepository,
                           OrderItemRepository orderItemRepository,
                           com.ccmart.backend.service.OrderService orderService,
-                          com.ccmart.backend.service.NotificationService notificationService) {
+                          com.ccmart.backend.service.IdempotencyService idempotencyService,
+                          OrderLifecycleService orderLifecycleService,
+                          OrderQueryService orderQueryService,
+                          DeliveryAssignmentService deliveryAssignmentService) {
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
         this.productRepository = productRepository;
         this.deliveryAgentRepository = deliveryAgentRepository;
         this.orderItemRepository = orderItemRepository;
         this.orderService = orderService;
-        this.notificationService = notificationService;
+        this.idempotencyService = idempotencyService;
+        this.orderLifecycleService = orderLifecycleService;
+        this.orderQueryService = orderQueryService;
+        this.deliveryAssignmentService = deliveryAssignmentService;
     }
 
     @GetMapping
-    public ResponseEntity<?> list(Authentication authentication) {
+    public ResponseEntity<?> list(Authentication authentication, WebRequest webRequest) {
         if (authentication == null) return ResponseEntity.status(401).body("Unauthorized");
         
         try {
@@ -68,20 +84,33 @@ public class OrderController {
                 return ResponseEntity.status(404).body("User not found");
             }
             
+            // Polling clients get a 304 until one of their orders changes
+            if (ConditionalRequests.notModified(webRequest, "orders-" + userId, orderRepository.findVersionStampByUserId(userId))) {
+                return null;
+            }
+
             // Always return only the user's own orders (for "My Orders" page)
-            return ResponseEntity.ok(orderRepository.findByUserId(userId));
+            return ConditionalRequests.ok().body(orderRepository.findByUserId(userId));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().body("Invalid user ID format");
         }
     }
     
+    // Admin listing, newest first: ?page=0&size=50 plus optional status, userId and from/to (ISO dates).
+    // The body is still a plain array of OrderDTO; paging info is in X-Total-Count / X-Has-More.
     @GetMapping("/all")
-    public ResponseEntity<?> getAllOrders(Authentication authentication) {
+    public ResponseEntity<?> getAllOrders(Authentication authentication,
+                                          @RequestParam(defaultValue = "0") int page,
+                                          @RequestParam(defaultValue = "50") int size,
+                                          @RequestParam(required = false) String status,
+                                          @RequestParam(required = false) Long userId,
+                                          @RequestParam(required = false) String from,
+                                          @RequestParam(required = false) String to) {
         if (authentication == null) return ResponseEntity.status(401).body("Unauthorized");
         
         try {
-            Long userId = Long.valueOf(authentication.getName());
-            Optional<User> userOpt = userRepository.findById(userId);
+            Long adminId = Long.valueOf(authentication.getName());
+            Optional<User> userOpt = userRepository.findById(adminId);
             
             if (userOpt.isEmpty()) {
                 return ResponseEntity.status(404).body("User not found");
@@ -93,32 +122,19 @@ public class OrderController {
             if (!"admin".equalsIgnoreCase(user.getRole())) {
                 return ResponseEntity.status(403).body("Access denied. Admin only.");
             }
-            
-            // Use the same method as client orders - this works!
-            List<Order> allOrders = orderRepository.findAll();
-            
-            // Convert to DTOs to handle deleted/inactive users gracefully
-            List<OrderDTO> orderDTOs = allOrders.stream()
-                .map(OrderDTO::fromOrder)
-                .collect(Collectors.toList());
-            
-            System.out.println("====================================");
-            System.out.println("GET /api/orders/all called by admin");
-            System.out.println("Using orderRepository.findAll()");
-            System.out.println("Total orders retrieved: " + orderDTOs.size());
-            if (orderDTOs.size() > 0) {
-                System.out.println("Order IDs: ");
-                for (OrderDTO order : orderDTOs) {
-                    System.out.println("  - Order #" + order.getId() + 
-                        " | User: " + order.getUser().getDisplayName() + 
-                        " | Status: " + order.getStatus() +
-                        " | Items: " + (order.getOrderItems() != null ? order.getOrderItems().size() : 0));
-                }
-            }
-            System.out.println("====================================");
-            return ResponseEntity.ok(orderDTOs);
+
+            LocalDateTime fromTime = from == null ? null : LocalDate.parse(from).atStartOfDay();
+            LocalDateTime toTime = to == null ? null : LocalDate.parse(to).atStartOfDay();
+            // Constant number of queries per page (id page, count, one fetch-join), DTOs handle deleted/inactive users
+            Page<OrderDTO> orders = orderQueryService.findOrders(status, userId, fromTime, toTime, page, size);
+            return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(orders.getTotalElements()))
+                .header("X-Has-More", String.valueOf(orders.hasNext()))
+                .body(orders.getContent());
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().body("Invalid user ID format");
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("from/to must be dates like 2025-01-31");
         } catch (Exception e) {
             System.err.println("Error in getAllOrders: " + e.getMessage());
             e.printStackTrace();
@@ -127,15 +143,19 @@ public class OrderController {
     }
     
     @GetMapping("/my-orders")
-    public ResponseEntity<?> getMyOrders(Authentication authentication) {
+    public ResponseEntity<?> getMyOrders(Authentication authentication, WebRequest webRequest) {
         if (authentication == null) {
             return ResponseEntity.status(401).body("Unauthorized");
         }
         
         try {
             Long userId = Long.valueOf(authentication.getName());
+            // Polling clients get a 304 until one of their orders changes
+            if (ConditionalRequests.notModified(webRequest, "orders-" + userId, orderRepository.findVersionStampByUserId(userId))) {
+                return null;
+            }
             List<Order> orders = orderRepository.findByUserId(userId);
-            return ResponseEntity.ok(orders);
+            return ConditionalRequests.ok().body(orders);
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().body("Invalid user ID format");
         }
@@ -423,13 +443,30 @@ public class OrderController {
         }
     }
 
+    // With an Idempotency-Key header, retries of the same request get the first response back instead of a new order
     @PostMapping
-    public ResponseEntity<?> create(Authentication authentication, @RequestBody Order order) {
+    public ResponseEntity<?> create(Authentication authentication, @RequestBody Order order,
+                                    @RequestHeader(value = com.ccmart.backend.service.IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        if (authentication == null) {
+            return ResponseEntity.status(401).body("Unauthorized");
+        }
+        if (idempotencyKey == null) {
+            return createOrder(authentication, order);
+        }
+        if (!com.ccmart.backend.service.IdempotencyService.isValidKey(idempotencyKey)) {
+            return ResponseEntity.badRequest().body("Idempotency-Key must be 1-128 characters");
+        }
+        Long userId;
+        try {
+            userId = Long.valueOf(authentication.getName());
+        } catch (NumberFormatException nfe) {
+            return ResponseEntity.badRequest().body("Invalid user ID format in authentication");
+        }
+        return idempotencyService.execute(userId, idempotencyKey, order, () -> createOrder(authentication, order));
+    }
+
+    private ResponseEntity<?> createOrder(Authentication authentication, Order order) {
         try {
-            if (authentication == null) {
-                return ResponseEntity.status(401).body("Unauthorized");
-            }
-            
             // Get user ID from authentication
             Long userId = Long.valueOf(authentication.getName());
             Optional<User> uOpt = userRepository.findById(userId);
@@ -437,11 +474,16 @@ public class OrderController {
                 return ResponseEntity.status(404).body("User not found with ID: " + userId);
             }
 
-            // Set user and default status
+            // Every order starts pending; lifecycle fields only change through OrderLifecycleService transitions
             order.setUser(uOpt.get());
-            if (order.getStatus() == null || order.getStatus().isEmpty()) {
-                order.setStatus("pending");
-            }
+            order.setId(null);
+            order.setStatus(OrderStatus.PENDING.value());
+            order.setPaymentStatus("pending");
+            order.setDeliveryAgent(null);
+            order.setApprovedAt(null);
+            order.setAssignedAt(null);
+            order.setDeliveredAt(null);
+            order.setDeliverySlotId(null);
             
             // Create order through service
             Order saved = orderService.createOrder(order);
@@ -472,21 +514,7 @@ public class OrderController {
     @PutMapping("/{id}/approve")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> approveOrder(@PathVariable Long id) {
-        Optional<Order> orderOpt = orderRepository.findById(id);
-        if (orderOpt.isEmpty()) {
-            return ResponseEntity.status(404).body("Order not found");
-        }
-
-        Order order = orderOpt.get();
-        if (!order.getStatus().equals("pending")) {
-            return ResponseEntity.badRequest().body("Only pending orders can be approved");
-        }
-
-        order.setStatus("approved");
-        order.setApprovedAt(LocalDateTime.now());
-        orderRepository.save(order);
-
-        return ResponseEntity.ok(order);
+        return transitionOne(id, OrderStatus.APPROVED, "Only pending orders can be approved");
     }
 
     // Assign delivery agent to order (Admin only)
@@ -498,32 +526,66 @@ public class OrderController {
             return ResponseEntity.badRequest().body("Agent ID is required");
         }
 
-        Optional<Order> orderOpt = orderRepository.findById(id);
-        if (orderOpt.isEmpty()) {
-            return ResponseEntity.status(404).body("Order not found");
-        }
-
         Optional<DeliveryAgent> agentOpt = deliveryAgentRepository.findById(agentId);
         if (agentOpt.isEmpty()) {
             return ResponseEntity.status(404).body("Delivery agent not found");
         }
 
-        Order order = orderOpt.get();
-        if (!order.getStatus().equals("approved")) {
-            return ResponseEntity.badRequest().body("Only approved orders can be assigned");
-        }
-
         DeliveryAgent agent = agentOpt.get();
         if (!agent.getIsActive() || !agent.getIsAvailable()) {
             return ResponseEntity.badRequest().body("Delivery agent is not available");
         }
 
-        order.setDeliveryAgent(agent);
-        order.setStatus("assigned");
-        order.setAssignedAt(LocalDateTime.now());
-        orderRepository.save(order);
+        String refused = orderLifecycleService.assign(id, agent);
+        if (refused != null) {
+            return OrderLifecycleService.NOT_FOUND.equals(refused)
+                ? ResponseEntity.status(404).body(refused)
+                : ResponseEntity.badRequest().body(refused);
+        }
+        deliveryAssignmentService.agentChanged(agentId);
+        return ResponseEntity.ok(orderRepository.findById(id).orElse(null));
+    }
+
+    // Assign approved orders to the least busy agents (Admin only): {"orderIds": [...]}, or no body for the
+    // oldest approved orders. One UPDATE for the whole batch.
+    @PostMapping("/auto-assign")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> autoAssign(@RequestBody(required = false) Map<String, Object> body) {
+        List<Long> ids = null;
+        Object rawIds = body == null ? null : body.get("orderIds");
+        if (rawIds != null) {
+            if (!(rawIds instanceof List<?> list)) return ResponseEntity.badRequest().body("orderIds must be a list");
+            ids = new ArrayList<>(list.size());
+            for (Object o : list) {
+                if (!(o instanceof Number n)) return ResponseEntity.badRequest().body("orderIds must be numbers");
+                ids.add(n.longValue());
+            }
+        }
+        try {
+            return ResponseEntity.ok(deliveryAssignmentService.assignApproved(ids));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
 
-        return ResponseEntity.ok(order);
+    // Admin search: any of status, paymentStatus, userId, deliveryAgentId, from/to (ISO dates), minAmount/maxAmount.
+    // Newest first; pass X-Next-Cursor back as ?cursor= for the next page.
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> searchOrders(@ModelAttribute OrderSearchFilter filter,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(defaultValue = "50") int limit) {
+        try {
+            OrderQueryService.SearchPage page = orderQueryService.search(filter, cursor, limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header("X-Has-More", String.valueOf(page.getNextCursor() != null));
+            if (page.getNextCursor() != null) {
+                response.header("X-Next-Cursor", page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
     }
 
     // Get orders by status (Admin only)
@@ -543,31 +605,69 @@ public class OrderController {
             return ResponseEntity.badRequest().body("Status is required");
         }
 
-        Optional<Order> orderOpt = orderRepository.findById(id);
-        if (orderOpt.isEmpty()) {
-            return ResponseEntity.status(404).body("Order not found");
+        OrderStatus target = OrderStatus.fromValue(newStatus);
+        if (target == null) {
+            return ResponseEntity.badRequest().body("Unknown status: " + newStatus);
+        }
+        if (target == OrderStatus.ASSIGNED) {
+            return ResponseEntity.badRequest().body("Use /api/orders/{id}/assign to assign a delivery agent");
+        }
+        // The status change and its outbox row commit together; the notification is created in the background
+        return transitionOne(id, target, null);
+    }
+
+    // Bulk transitions (Admin only): {"orderIds": [1, 2, 3], "status": "approved"}, one UPDATE for all of them
+    @PutMapping("/bulk/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> bulkUpdateStatus(@RequestBody Map<String, Object> body) {
+        Object status = body.get("status");
+        OrderStatus target = OrderStatus.fromValue(status == null ? null : status.toString());
+        if (target == null) {
+            return ResponseEntity.badRequest().body("A valid status is required");
         }
+        return transitionMany(body.get("orderIds"), target);
+    }
+
+    @PutMapping("/bulk/approve")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> bulkApprove(@RequestBody Map<String, Object> body) {
+        return transitionMany(body.get("orderIds"), OrderStatus.APPROVED);
+    }
 
-        Order order = orderOpt.get();
-        String oldStatus = order.getStatus();
-        order.setStatus(newStatus);
-        orderRepository.save(order);
+    @PutMapping("/bulk/deliver")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> bulkDeliver(@RequestBody Map<String, Object> body) {
+        return transitionMany(body.get("orderIds"), OrderStatus.DELIVERED);
+    }
 
-        // Create notification for the user when status changes
-        if (!oldStatus.equals(newStatus)) {
-            try {
-                System.out.println("Creating notification for order " + order.getId() + 
-                                 " - Status changed from " + oldStatus + " to " + newStatus);
-                System.out.println("User ID: " + order.getUser().getId());
-                Notification notification = notificationService.createOrderNotification(order, oldStatus, newStatus);
-                System.out.println("Notification created successfully with ID: " + notification.getId());
-            } catch (Exception e) {
-                // Log error but don't fail the status update
-                System.err.println("Failed to create notification: " + e.getMessage());
-                e.printStackTrace();
-            }
+    private ResponseEntity<?> transitionMany(Object rawIds, OrderStatus target) {
+        if (!(rawIds instanceof List<?> list) || list.isEmpty()) {
+            return ResponseEntity.badRequest().body("orderIds must be a non-empty list");
         }
+        List<Long> ids = new ArrayList<>(list.size());
+        for (Object o : list) {
+            if (!(o instanceof Number n)) return ResponseEntity.badRequest().body("orderIds must be numbers");
+            ids.add(n.longValue());
+        }
+        try {
+            return ResponseEntity.ok(orderLifecycleService.transition(ids, target));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
+        }
+    }
 
-        return ResponseEntity.ok(order);
+    // Single-order transition; refusal replaces the generic reason when the endpoint has its own wording
+    private ResponseEntity<?> transitionOne(Long id, OrderStatus target, String refusal) {
+        Map<String, Object> result = orderLifecycleService.transition(List.of(id), target);
+        @SuppressWarnings("unchecked")
+        Map<Long, String> skipped = (Map<Long, String>) result.get("skipped");
+        String reason = skipped.get(id);
+        if (OrderLifecycleService.NOT_FOUND.equals(reason)) {
+            return ResponseEntity.status(404).body(reason);
+        }
+        if (reason != null) {
+            return ResponseEntity.badRequest().body(refusal != null ? refusal : reason);
+        }
+        return ResponseEntity.ok(orderRepository.findById(id).orElse(null));
     }
 }
@@ -1,98 +1,189 @@
 package com.ccmart.backend.controller;
 
+import com.ccmart.backend.cache.CatalogCache;
+import com.ccmart.backend.dto.ProductDTO;
+import com.ccmart.backend.dto.ProductSummaryDTO;
+import com.ccmart.backend.dto.VersionStamp;
 import com.ccmart.backend.model.Product;
 import com.ccmart.backend.model.Category;
 import com.ccmart.backend.repository.ProductRepository;
 import com.ccmart.backend.repository.CategoryRepository;
 import com.ccmart.backend.repository.OrderItemRepository;
+import com.ccmart.backend.service.ImageStorageService;
+import com.ccmart.backend.service.ProductChangeService;
+import com.ccmart.backend.service.ProductFacetIndex;
+import com.ccmart.backend.service.ProductSearchIndex;
+import com.ccmart.backend.service.ProductService;
+import com.ccmart.backend.service.ProductSuggestIndex;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final OrderItemRepository orderItemRepository;
+    private final ImageStorageService imageStorageService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ProductChangeService productChangeService;
+    private final CatalogCache catalogCache;
+    private final ProductService productService;
 
-    public ProductController(ProductRepository productRepository, CategoryRepository categoryRepository, OrderItemRepository orderItemRepository) {
+    public ProductController(ProductRepository productRepository, CategoryRepository categoryRepository, OrderItemRepository orderItemRepository,
+                             ImageStorageService imageStorageService, ProductSearchIndex productSearchIndex,
+                             ProductFacetIndex productFacetIndex, ProductSuggestIndex productSuggestIndex,
+                             ProductChangeService productChangeService,
+                             CatalogCache catalogCache, ProductService productService) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.orderItemRepository = orderItemRepository;
+        this.imageStorageService = imageStorageService;
+        this.productSearchIndex = productSearchIndex;
+        this.productFacetIndex = productFacetIndex;
+        this.productSuggestIndex = productSuggestIndex;
+        this.productChangeService = productChangeService;
+        this.catalogCache = catalogCache;
+        this.productService = productService;
     }
 
+    // Paginated listing of slim product rows. Clients can keep using page/limit, or pass the
+    // X-Next-Cursor value from the previous response as ?cursor= to seek by id instead of offset.
     @GetMapping
-    public ResponseEntity<?> list(@RequestParam(defaultValue = "1") int page, @RequestParam(defaultValue = "12") int limit) {
-        List<Product> products = productRepository.findAll();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<?> list(@RequestParam(defaultValue = "1") int page,
+                                  @RequestParam(defaultValue = "12") int limit,
+                                  @RequestParam(required = false) Long cursor,
+                                  WebRequest webRequest) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        int pageIndex = Math.max(page, 1) - 1;
+        String cacheKey = cursor != null ? "k:" + cursor + ":" + size : "o:" + pageIndex + ":" + size;
+
+        // Rows embed category names, so the listing version covers both tables
+        VersionStamp productStamp = catalogCache.getVersionStamp(CatalogCache.PRODUCTS_STAMP, productRepository::findVersionStamp);
+        VersionStamp categoryStamp = catalogCache.getVersionStamp(CatalogCache.CATEGORIES_STAMP, categoryRepository::findVersionStamp);
+        if (ConditionalRequests.notModified(webRequest, "products-" + cacheKey.replace(':', '.'), productStamp, categoryStamp)) {
+            return null;
+        }
+
+        // Fetch one extra row to know whether another page exists without a COUNT query
+        List<ProductSummaryDTO> rows = catalogCache.getProductPage(cacheKey, () -> cursor != null
+            ? productRepository.findSummariesAfter(cursor, PageRequest.of(0, size + 1))
+            : productRepository.findSummaries(PageRequest.of(pageIndex, size + 1)));
+
+        boolean hasMore = rows.size() > size;
+        List<ProductSummaryDTO> items = hasMore ? rows.subList(0, size) : rows;
+
+        ResponseEntity.BodyBuilder response = ConditionalRequests.ok().header("X-Has-More", String.valueOf(hasMore));
+        if (hasMore) {
+            response.header("X-Next-Cursor", String.valueOf(items.get(items.size() - 1).getId()));
+        }
+        return response.body(items);
+    }
+
+    // Full-text search over name, description and category, served from the in-memory index
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam String q,
+                                    @RequestParam(defaultValue = "20") int limit,
+                                    @RequestParam(defaultValue = "false") boolean includeInactive) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return ResponseEntity.ok(productSearchIndex.search(q, size, includeInactive));
+    }
+
+    // Search-box autocomplete over product and category names, ranked by units sold; never hits the database
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggest(@RequestParam String prefix,
+                                     @RequestParam(defaultValue = "8") int limit) {
+        int size = Math.max(1, Math.min(limit, ProductSuggestIndex.MAX_SUGGESTIONS));
+        return ResponseEntity.ok(productSuggestIndex.suggest(prefix, size));
+    }
+
+    // Storefront filters answered from the bitmap index: one page of rows, the total and per-facet counts.
+    // categoryId may be repeated (?categoryId=1&categoryId=4) to match any of several categories.
+    @GetMapping("/filter")
+    public ResponseEntity<?> filter(@RequestParam(required = false) Set<Long> categoryId,
+                                    @RequestParam(required = false) BigDecimal minPrice,
+                                    @RequestParam(required = false) BigDecimal maxPrice,
+                                    @RequestParam(required = false) Boolean featured,
+                                    @RequestParam(required = false) Boolean inStock,
+                                    @RequestParam(defaultValue = "true") Boolean active,
+                                    @RequestParam(defaultValue = "1") int page,
+                                    @RequestParam(defaultValue = "12") int limit) {
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            return ResponseEntity.badRequest().body("minPrice must not be greater than maxPrice");
+        }
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        int offset = (Math.max(page, 1) - 1) * size;
+        Map<String, Object> result = productFacetIndex.filter(categoryId, minPrice, maxPrice, featured, inStock, active, offset, size);
+        result.put("page", Math.max(page, 1));
+        result.put("limit", size);
+        return ResponseEntity.ok(result);
+    }
+
+    // Delta sync: products created/updated/deactivated after the token, plus ids of hard-deleted products.
+    // Start with no token (a snapshot, paged with after= while hasMore is true), then pass back the returned
+    // token; repeat while hasMore is true.
+    @GetMapping("/changes")
+    public ResponseEntity<?> changes(@RequestParam(required = false) Long since,
+                                     @RequestParam(required = false) Long after,
+                                     @RequestParam(defaultValue = "500") int limit) {
+        int size = Math.max(1, Math.min(limit, 1000));
+        return ResponseEntity.ok(productChangeService.changesSince(since, after, size));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getOne(@PathVariable Long id) {
-        Optional<Product> p = productRepository.findById(id);
-        if (p.isEmpty()) return ResponseEntity.status(404).body("Product not found");
-        return ResponseEntity.ok(p.get());
+    public ResponseEntity<?> getOne(@PathVariable Long id, WebRequest webRequest) {
+        Product p = catalogCache.getProduct(id, () -> productRepository.findById(id).orElse(null));
+        if (p == null) return ResponseEntity.status(404).body("Product not found");
+        LocalDateTime categoryVersion = p.getCategory() != null ? p.getCategory().getUpdatedAt() : null;
+        String etag = ConditionalRequests.weakETag("product-" + id, p.getUpdatedAt(), categoryVersion);
+        if (ConditionalRequests.notModified(webRequest, etag, p.getUpdatedAt())) {
+            return null;
+        }
+        return ConditionalRequests.ok().body(p);
     }
 
     @PostMapping
     @org.springframework.security.access.prepost.PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> create(@RequestBody com.ccmart.backend.dto.ProductDTO dto) {
-        Product p = new Product();
-        p.setName(dto.getName());
-        p.setDescription(dto.getDescription());
-        p.setPrice(dto.getPrice());
-        p.setImageUrl(dto.getImageUrl());
-        p.setStockQuantity(dto.getStockQuantity() == null ? 0 : dto.getStockQuantity());
-        p.setUnit(dto.getUnit() == null ? "piece" : dto.getUnit());
-        p.setIsFeatured(dto.getIsFeatured() == null ? false : dto.getIsFeatured());
-        p.setIsActive(true); // Explicitly set new products as active
-        
-        // Set category if provided
-        if (dto.getCategoryId() != null) {
-            Optional<Category> categoryOpt = categoryRepository.findById(dto.getCategoryId());
-            categoryOpt.ifPresent(p::setCategory);
+        String imageUrl;
+        try {
+            // Inline base64 images go to the image store; the product only keeps the short URL
+            imageUrl = imageStorageService.externalizeDataUri(dto.getImageUrl());
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
         }
-        
-        Product saved = productRepository.save(p);
-        return ResponseEntity.status(201).body(saved);
+        return ResponseEntity.status(201).body(productService.create(dto, imageUrl));
     }
 
     @PutMapping("/{id}")
     @org.springframework.security.access.prepost.PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> update(@PathVariable Long id, @RequestBody com.ccmart.backend.dto.ProductDTO dto) {
-        Optional<Product> existing = productRepository.findById(id);
-        if (existing.isEmpty()) return ResponseEntity.status(404).body("Product not found");
-        Product e = existing.get();
-        e.setName(dto.getName());
-        e.setDescription(dto.getDescription());
-        e.setPrice(dto.getPrice());
-        e.setImageUrl(dto.getImageUrl());
-        e.setStockQuantity(dto.getStockQuantity());
-        e.setUnit(dto.getUnit());
-        e.setIsFeatured(dto.getIsFeatured());
-        
-        // Set isActive to true if not provided (ensures existing products become active)
-        if (dto.getIsActive() != null) {
-            e.setIsActive(dto.getIsActive());
-        } else {
-            e.setIsActive(true); // Default to active on update
-        }
-        
-        // Update category if provided
-        if (dto.getCategoryId() != null) {
-            Optional<Category> categoryOpt = categoryRepository.findById(dto.getCategoryId());
-            categoryOpt.ifPresent(e::setCategory);
+        if (!productRepository.existsById(id)) return ResponseEntity.status(404).body("Product not found");
+        String imageUrl;
+        try {
+            imageUrl = imageStorageService.externalizeDataUri(dto.getImageUrl());
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(ex.getMessage());
         }
-        
-        productRepository.save(e);
-        return ResponseEntity.ok(e);
+        Optional<Product> updated = productService.update(id, dto, imageUrl);
+        if (updated.isEmpty()) return ResponseEntity.status(404).body("Product not found");
+        return ResponseEntity.ok(updated.get());
     }
 
     @DeleteMapping("/{id}")
@@ -116,8 +207,7 @@ public class ProductController {
                     return ResponseEntity.ok(response);
                 }
 
-                product.setIsActive(false);
-                productRepository.save(product);
+                productService.deactivate(product);
 
                 Map<String, Object> response = new HashMap<>();
                 response.put("success", true);
@@ -129,7 +219,7 @@ public class ProductController {
 
             // Try to hard delete if no order history exists
             try {
-                productRepository.deleteById(id);
+                productService.delete(id);
 
                 Map<String, Object> response = new HashMap<>();
                 response.put("success", true);
@@ -139,8 +229,7 @@ public class ProductController {
                 return ResponseEntity.ok(response);
             } catch (DataIntegrityViolationException dive) {
                 // Fallback: if any other constraint prevents deletion, deactivate instead
-                product.setIsActive(false);
-                productRepository.save(product);
+                productService.deactivate(product);
 
                 Map<String, Object> response = new HashMap<>();
                 response.put("success", true);
@@ -160,15 +249,7 @@ public class ProductController {
     @PostMapping("/fix-active")
     @org.springframework.security.access.prepost.PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> fixActiveProducts() {
-        List<Product> allProducts = productRepository.findAll();
-        int fixed = 0;
-        for (Product p : allProducts) {
-            if (p.getIsActive() == null || !p.getIsActive()) {
-                p.setIsActive(true);
-                productRepository.save(p);
-                fixed++;
-            }
-        }
+        int fixed = productService.activateAll();
         return ResponseEntity.ok("Fixed " + fixed + " products. All products are now active.");
     }
     
@@ -272,19 +353,18 @@ public class ProductController {
         }
     }
     
+    // Through ProductService so the product and its change-log row commit together
     private int addProduct(String name, String desc, double price, Category category, String unit, 
                           int stock, boolean featured, String imageUrl) {
-        Product p = new Product();
-        p.setName(name);
-        p.setDescription(desc);
-        p.setPrice(new java.math.BigDecimal(price));
-        p.setCategory(category);
-        p.setUnit(unit);
-        p.setStockQuantity(stock);
-        p.setIsFeatured(featured);
-        p.setIsActive(true);
-        p.setImageUrl(imageUrl);
-        productRepository.save(p);
+        ProductDTO dto = new ProductDTO();
+        dto.setName(name);
+        dto.setDescription(desc);
+        dto.setPrice(new java.math.BigDecimal(price));
+        dto.setCategoryId(category != null ? category.getId() : null);
+        dto.setUnit(unit);
+        dto.setStockQuantity(stock);
+        dto.setIsFeatured(featured);
+        productService.create(dto, imageUrl);
         return 1;
     }
 }
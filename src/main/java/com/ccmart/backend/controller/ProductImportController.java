@@ -0,0 +1,77 @@
+package com.ccmart.backend.controller;
+
+import com.ccmart.backend.dto.ImportReport;
+import com.ccmart.backend.service.ProductImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/api/products/import")
+public class ProductImportController {
+
+    private final ProductImportService productImportService;
+
+    public ProductImportController(ProductImportService productImportService) {
+        this.productImportService = productImportService;
+    }
+
+    /**
+     * Bulk upsert products by name (Admin only). Send the file either as multipart "file" or, for files
+     * larger than the multipart limit, as the raw request body with Content-Type text/csv or application/x-ndjson.
+     * The format is taken from ?format=, then the content type, then the file extension.
+     */
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> importProducts(@RequestParam(value = "file", required = false) MultipartFile file,
+                                            @RequestParam(required = false) String format,
+                                            HttpServletRequest request) {
+        String contentType = file != null ? file.getContentType() : request.getContentType();
+        String filename = file != null ? file.getOriginalFilename() : null;
+        String resolvedFormat = resolveFormat(format, contentType, filename);
+        if (resolvedFormat == null) {
+            return ResponseEntity.badRequest().body("Unsupported import format: " + format);
+        }
+
+        try (InputStream input = file != null ? file.getInputStream() : request.getInputStream()) {
+            ImportReport report = productImportService.importProducts(input, resolvedFormat);
+            return ResponseEntity.ok(report);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(500).body("Error reading import: " + e.getMessage());
+        }
+    }
+
+    // Progress of the running import, or the result of the last one
+    @GetMapping("/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> status() {
+        ImportReport report = productImportService.getLastReport();
+        if (report == null) return ResponseEntity.status(404).body("No import has run");
+        return ResponseEntity.ok(report);
+    }
+
+    private static String resolveFormat(String format, String contentType, String filename) {
+        if (format != null) {
+            String f = format.toLowerCase(Locale.ROOT);
+            if (f.equals("csv")) return ProductImportService.CSV;
+            if (f.equals("ndjson") || f.equals("jsonl")) return ProductImportService.NDJSON;
+            return null;
+        }
+        String ct = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        if (ct.contains("ndjson") || ct.contains("jsonl") || ct.contains("json")) return ProductImportService.NDJSON;
+        if (ct.contains("csv")) return ProductImportService.CSV;
+        String name = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) return ProductImportService.NDJSON;
+        return ProductImportService.CSV;
+    }
+}
@@ -1,7 +1,9 @@
 package com.ccmart.backend.controller;
 
+import com.ccmart.backend.cache.CatalogCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -17,6 +19,9 @@ public class SystemController {
     @Autowired
     private DataSource dataSource;
 
+    @Autowired
+    private CatalogCache catalogCache;
+
     @GetMapping("/db-status")
     public ResponseEntity<?> checkDatabaseConnection() {
         Map<String, Object> response = new HashMap<>();
@@ -32,4 +37,11 @@ public class SystemController {
             return ResponseEntity.status(500).body(response);
         }
     }
+
+    // Hit/miss/eviction counters for the catalog read-through cache
+    @GetMapping("/cache-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> cacheStats() {
+        return ResponseEntity.ok(catalogCache.stats());
+    }
 }
\ No newline at end of file
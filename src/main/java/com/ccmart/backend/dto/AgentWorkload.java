@@ -0,0 +1,40 @@
+package com.ccmart.backend.dto;
+
+import com.ccmart.backend.model.DeliveryAgentStats;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Workload summary shown with a delivery agent in the admin listings.
+ */
+public class AgentWorkload {
+    private final int openOrders;
+    private final int deliveredToday;
+    private final long deliveredTotal;
+    private final Double averageDeliveryMinutes;
+    private final LocalDateTime lastAssignedAt;
+
+    public AgentWorkload(int openOrders, int deliveredToday, long deliveredTotal, Double averageDeliveryMinutes,
+                         LocalDateTime lastAssignedAt) {
+        this.openOrders = openOrders;
+        this.deliveredToday = deliveredToday;
+        this.deliveredTotal = deliveredTotal;
+        this.averageDeliveryMinutes = averageDeliveryMinutes;
+        this.lastAssignedAt = lastAssignedAt;
+    }
+
+    public static AgentWorkload from(DeliveryAgentStats stats, LocalDate today) {
+        if (stats == null) return new AgentWorkload(0, 0, 0, null, null);
+        long delivered = stats.getDeliveredCount();
+        Double average = delivered > 0 ? Math.round(stats.getDeliverySeconds() / 60.0 / delivered * 10) / 10.0 : null;
+        int deliveredToday = today.equals(stats.getStatsDay()) ? stats.getDeliveredToday() : 0;
+        return new AgentWorkload(Math.max(0, stats.getOpenOrders()), deliveredToday, delivered, average, stats.getLastAssignedAt());
+    }
+
+    public int getOpenOrders() { return openOrders; }
+    public int getDeliveredToday() { return deliveredToday; }
+    public long getDeliveredTotal() { return deliveredTotal; }
+    public Double getAverageDeliveryMinutes() { return averageDeliveryMinutes; }
+    public LocalDateTime getLastAssignedAt() { return lastAssignedAt; }
+}
@@ -0,0 +1,21 @@
+package com.ccmart.backend.dto;
+
+import com.ccmart.backend.model.DeliveryAgent;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+/**
+ * A delivery agent as shown in the admin listings: the agent's own fields plus a "workload" object.
+ */
+public class DeliveryAgentListing {
+    @JsonUnwrapped
+    private final DeliveryAgent agent;
+    private final AgentWorkload workload;
+
+    public DeliveryAgentListing(DeliveryAgent agent, AgentWorkload workload) {
+        this.agent = agent;
+        this.workload = workload;
+    }
+
+    public DeliveryAgent getAgent() { return agent; }
+    public AgentWorkload getWorkload() { return workload; }
+}
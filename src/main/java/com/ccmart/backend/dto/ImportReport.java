@@ -0,0 +1,63 @@
+package com.ccmart.backend.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Progress and outcome of a bulk product import. Written by the importing thread only and
+ * read by the status endpoint while the import runs, hence the volatile counters.
+ */
+public class ImportReport {
+
+    public static final int MAX_ERRORS = 100;
+
+    private final String format;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private volatile LocalDateTime finishedAt;
+    private volatile String status = "RUNNING";
+    private volatile int rowsRead;
+    private volatile int inserted;
+    private volatile int updated;
+    private volatile int failed;
+    private volatile int chunksCommitted;
+    private volatile boolean errorsTruncated;
+    private final List<Map<String, Object>> errors = new CopyOnWriteArrayList<>();
+
+    public ImportReport(String format) {
+        this.format = format;
+    }
+
+    // Only the first MAX_ERRORS row errors are kept; the failed counter still counts all of them
+    public void rowFailed(long line, String message) {
+        failed++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(Map.of("line", line, "message", message));
+        } else {
+            errorsTruncated = true;
+        }
+    }
+
+    public void rowRead() { rowsRead++; }
+    public void addInserted(int count) { inserted += count; }
+    public void addUpdated(int count) { updated += count; }
+    public void chunkCommitted() { chunksCommitted++; }
+
+    public void finish(String status) {
+        this.status = status;
+        this.finishedAt = LocalDateTime.now();
+    }
+
+    public String getFormat() { return format; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public String getStatus() { return status; }
+    public int getRowsRead() { return rowsRead; }
+    public int getInserted() { return inserted; }
+    public int getUpdated() { return updated; }
+    public int getFailed() { return failed; }
+    public int getChunksCommitted() { return chunksCommitted; }
+    public boolean isErrorsTruncated() { return errorsTruncated; }
+    public List<Map<String, Object>> getErrors() { return errors; }
+}
@@ -21,10 +21,13 @@ public class OrderDTO {
     private String deliveryNotes;
     private LocalDateTime deliveryDate;
     private String deliveryTime;
+    private Double deliveryLatitude;
+    private Double deliveryLongitude;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private LocalDateTime approvedAt;
     private LocalDateTime assignedAt;
+    private LocalDateTime deliveredAt;
     private List<OrderItemDTO> orderItems; // Changed to OrderItemDTO for proper serialization
     private DeliveryAgent deliveryAgent;
 
@@ -110,10 +113,13 @@ public class OrderDTO {
         dto.deliveryNotes = order.getDeliveryNotes();
         dto.deliveryDate = order.getDeliveryDate();
         dto.deliveryTime = order.getDeliveryTime();
+        dto.deliveryLatitude = order.getDeliveryLatitude();
+        dto.deliveryLongitude = order.getDeliveryLongitude();
         dto.createdAt = order.getCreatedAt();
         dto.updatedAt = order.getUpdatedAt();
         dto.approvedAt = order.getApprovedAt();
         dto.assignedAt = order.getAssignedAt();
+        dto.deliveredAt = order.getDeliveredAt();
 
         // Convert OrderItems to OrderItemDTOs
         if (order.getItems() != null && !order.getItems().isEmpty()) {
@@ -218,6 +224,22 @@ public class OrderDTO {
         this.deliveryTime = deliveryTime;
     }
 
+    public Double getDeliveryLatitude() {
+        return deliveryLatitude;
+    }
+
+    public void setDeliveryLatitude(Double deliveryLatitude) {
+        this.deliveryLatitude = deliveryLatitude;
+    }
+
+    public Double getDeliveryLongitude() {
+        return deliveryLongitude;
+    }
+
+    public void setDeliveryLongitude(Double deliveryLongitude) {
+        this.deliveryLongitude = deliveryLongitude;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -250,6 +272,14 @@ public class OrderDTO {
         this.assignedAt = assignedAt;
     }
 
+    public LocalDateTime getDeliveredAt() {
+        return deliveredAt;
+    }
+
+    public void setDeliveredAt(LocalDateTime deliveredAt) {
+        this.deliveredAt = deliveredAt;
+    }
+
     public List<OrderItemDTO> getOrderItems() {
         return orderItems;
     }
@@ -0,0 +1,90 @@
+package com.ccmart.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One order in an order export: the order header with customer and agent flattened in,
+ * plus the number of line items. Built by a JPQL constructor expression, never from entities.
+ */
+public class OrderExportRow {
+
+    public static final String[] COLUMNS = {
+        "id", "orderNumber", "userId", "customerName", "customerEmail", "status", "paymentStatus", "paymentMethod",
+        "totalAmount", "deliveryFee", "itemCount", "deliveryAgentId", "deliveryAgentName", "deliveryAddress",
+        "deliveryPhone", "deliveryDate", "deliveryTime", "createdAt", "updatedAt"
+    };
+
+    private final Long id;
+    private final String orderNumber;
+    private final Long userId;
+    private final String customerName;
+    private final String customerEmail;
+    private final String status;
+    private final String paymentStatus;
+    private final String paymentMethod;
+    private final BigDecimal totalAmount;
+    private final BigDecimal deliveryFee;
+    private final Long itemCount;
+    private final Long deliveryAgentId;
+    private final String deliveryAgentName;
+    private final String deliveryAddress;
+    private final String deliveryPhone;
+    private final LocalDateTime deliveryDate;
+    private final String deliveryTime;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+
+    public OrderExportRow(Long id, String orderNumber, Long userId, String customerName, String customerEmail,
+                          String status, String paymentStatus, String paymentMethod, BigDecimal totalAmount,
+                          BigDecimal deliveryFee, Long itemCount, Long deliveryAgentId, String deliveryAgentName,
+                          String deliveryAddress, String deliveryPhone, LocalDateTime deliveryDate, String deliveryTime,
+                          LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.orderNumber = orderNumber;
+        this.userId = userId;
+        this.customerName = customerName;
+        this.customerEmail = customerEmail;
+        this.status = status;
+        this.paymentStatus = paymentStatus;
+        this.paymentMethod = paymentMethod;
+        this.totalAmount = totalAmount;
+        this.deliveryFee = deliveryFee;
+        this.itemCount = itemCount;
+        this.deliveryAgentId = deliveryAgentId;
+        this.deliveryAgentName = deliveryAgentName;
+        this.deliveryAddress = deliveryAddress;
+        this.deliveryPhone = deliveryPhone;
+        this.deliveryDate = deliveryDate;
+        this.deliveryTime = deliveryTime;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    // Values in COLUMNS order, for CSV output
+    public Object[] values() {
+        return new Object[] { id, orderNumber, userId, customerName, customerEmail, status, paymentStatus, paymentMethod,
+            totalAmount, deliveryFee, itemCount, deliveryAgentId, deliveryAgentName, deliveryAddress,
+            deliveryPhone, deliveryDate, deliveryTime, createdAt, updatedAt };
+    }
+
+    public Long getId() { return id; }
+    public String getOrderNumber() { return orderNumber; }
+    public Long getUserId() { return userId; }
+    public String getCustomerName() { return customerName; }
+    public String getCustomerEmail() { return customerEmail; }
+    public String getStatus() { return status; }
+    public String getPaymentStatus() { return paymentStatus; }
+    public String getPaymentMethod() { return paymentMethod; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public BigDecimal getDeliveryFee() { return deliveryFee; }
+    public Long getItemCount() { return itemCount; }
+    public Long getDeliveryAgentId() { return deliveryAgentId; }
+    public String getDeliveryAgentName() { return deliveryAgentName; }
+    public String getDeliveryAddress() { return deliveryAddress; }
+    public String getDeliveryPhone() { return deliveryPhone; }
+    public LocalDateTime getDeliveryDate() { return deliveryDate; }
+    public String getDeliveryTime() { return deliveryTime; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+}
@@ -0,0 +1,68 @@
+package com.ccmart.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One product in a catalog export. Column names match what the product import accepts,
+ * so an export can be edited and re-imported.
+ */
+public class ProductExportRow {
+
+    public static final String[] COLUMNS = {
+        "id", "name", "description", "price", "categoryId", "category", "stockQuantity", "unit",
+        "imageUrl", "isActive", "isFeatured", "createdAt", "updatedAt"
+    };
+
+    private final Long id;
+    private final String name;
+    private final String description;
+    private final BigDecimal price;
+    private final Long categoryId;
+    private final String category;
+    private final Integer stockQuantity;
+    private final String unit;
+    private final String imageUrl;
+    private final Boolean isActive;
+    private final Boolean isFeatured;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+
+    public ProductExportRow(Long id, String name, String description, BigDecimal price, Long categoryId, String category,
+                            Integer stockQuantity, String unit, String imageUrl, Boolean isActive, Boolean isFeatured,
+                            LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.price = price;
+        this.categoryId = categoryId;
+        this.category = category;
+        this.stockQuantity = stockQuantity;
+        this.unit = unit;
+        this.imageUrl = imageUrl;
+        this.isActive = isActive;
+        this.isFeatured = isFeatured;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    // Values in COLUMNS order, for CSV output
+    public Object[] values() {
+        return new Object[] { id, name, description, price, categoryId, category, stockQuantity, unit,
+            imageUrl, isActive, isFeatured, createdAt, updatedAt };
+    }
+
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public String getDescription() { return description; }
+    public BigDecimal getPrice() { return price; }
+    public Long getCategoryId() { return categoryId; }
+    public String getCategory() { return category; }
+    public Integer getStockQuantity() { return stockQuantity; }
+    public String getUnit() { return unit; }
+    public String getImageUrl() { return imageUrl; }
+    public Boolean getIsActive() { return isActive; }
+    public Boolean getIsFeatured() { return isFeatured; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+}
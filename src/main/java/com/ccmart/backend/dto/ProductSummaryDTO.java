@@ -0,0 +1,80 @@
+package com.ccmart.backend.dto;
+
+import com.ccmart.backend.model.Category;
+import com.ccmart.backend.model.Product;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Slim product row for catalog listings. Built directly by JPQL constructor
+ * expressions so the description column is never read; imageUrl is only the short image reference.
+ */
+public class ProductSummaryDTO {
+    private Long id;
+    private String name;
+    private BigDecimal price;
+    private Long categoryId;
+    private String categoryName;
+    private Integer stockQuantity;
+    private String unit;
+    private String imageUrl;
+    private Boolean isActive;
+    private Boolean isFeatured;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public ProductSummaryDTO() {}
+
+    public ProductSummaryDTO(Long id, String name, BigDecimal price, Long categoryId, String categoryName,
+                             Integer stockQuantity, String unit, String imageUrl, Boolean isActive, Boolean isFeatured,
+                             LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.stockQuantity = stockQuantity;
+        this.unit = unit;
+        this.imageUrl = imageUrl;
+        this.isActive = isActive;
+        this.isFeatured = isFeatured;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public static ProductSummaryDTO fromProduct(Product p) {
+        String imageUrl = p.getImageUrl();
+        Category c = p.getCategory();
+        return new ProductSummaryDTO(p.getId(), p.getName(), p.getPrice(),
+            c != null ? c.getId() : null, c != null ? c.getName() : null,
+            p.getStockQuantity(), p.getUnit(),
+            imageUrl != null && imageUrl.startsWith("data:") ? null : imageUrl,
+            p.getIsActive(), p.getIsFeatured(), p.getCreatedAt(), p.getUpdatedAt());
+    }
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+    public Long getCategoryId() { return categoryId; }
+    public void setCategoryId(Long categoryId) { this.categoryId = categoryId; }
+    public String getCategoryName() { return categoryName; }
+    public void setCategoryName(String categoryName) { this.categoryName = categoryName; }
+    public Integer getStockQuantity() { return stockQuantity; }
+    public void setStockQuantity(Integer stockQuantity) { this.stockQuantity = stockQuantity; }
+    public String getUnit() { return unit; }
+    public void setUnit(String unit) { this.unit = unit; }
+    public String getImageUrl() { return imageUrl; }
+    public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
+    public Boolean getIsActive() { return isActive; }
+    public void setIsActive(Boolean isActive) { this.isActive = isActive; }
+    public Boolean getIsFeatured() { return isFeatured; }
+    public void setIsFeatured(Boolean isFeatured) { this.isFeatured = isFeatured; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
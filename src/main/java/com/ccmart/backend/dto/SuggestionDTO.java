@@ -0,0 +1,23 @@
+package com.ccmart.backend.dto;
+
+/**
+ * One autocomplete suggestion: a product or a category name, ranked by units sold.
+ */
+public class SuggestionDTO {
+    private final String type; // product or category
+    private final Long id;
+    private final String text;
+    private final long score;
+
+    public SuggestionDTO(String type, Long id, String text, long score) {
+        this.type = type;
+        this.id = id;
+        this.text = text;
+        this.score = score;
+    }
+
+    public String getType() { return type; }
+    public Long getId() { return id; }
+    public String getText() { return text; }
+    public long getScore() { return score; }
+}
@@ -0,0 +1,20 @@
+package com.ccmart.backend.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Aggregate version of a set of rows: how many there are and when the newest one changed.
+ * Any insert, update or hard delete moves at least one of the two, which is enough for a weak ETag.
+ */
+public class VersionStamp {
+    private final long count;
+    private final LocalDateTime lastModified;
+
+    public VersionStamp(Long count, LocalDateTime lastModified) {
+        this.count = count == null ? 0 : count;
+        this.lastModified = lastModified;
+    }
+
+    public long getCount() { return count; }
+    public LocalDateTime getLastModified() { return lastModified; }
+}
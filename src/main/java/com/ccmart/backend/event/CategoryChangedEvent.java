@@ -0,0 +1,23 @@
+package com.ccmart.backend.event;
+
+/**
+ * Published after a category is created, updated or deactivated. Category names are
+ * denormalized into cached product rows and the search index, so both rebuild on this.
+ */
+public class CategoryChangedEvent {
+
+    private final Long categoryId;
+    private final boolean renamed;
+
+    public CategoryChangedEvent(Long categoryId) {
+        this(categoryId, false);
+    }
+
+    public CategoryChangedEvent(Long categoryId, boolean renamed) {
+        this.categoryId = categoryId;
+        this.renamed = renamed;
+    }
+
+    public Long getCategoryId() { return categoryId; }
+    public boolean isRenamed() { return renamed; }
+}
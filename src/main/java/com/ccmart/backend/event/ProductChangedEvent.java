@@ -0,0 +1,66 @@
+package com.ccmart.backend.event;
+
+import com.ccmart.backend.model.Product;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published after a product is written so in-memory catalog structures can update themselves.
+ * Listeners should use @TransactionalEventListener(fallbackExecution = true) so they only see committed state.
+ */
+public class ProductChangedEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED, STOCK_CHANGED, BULK }
+
+    private final Type type;
+    private final Long productId; // null for BULK
+    private final Product product; // null for DELETED, STOCK_CHANGED and BULK
+    private final Integer stockQuantity; // only for STOCK_CHANGED
+    // Products whose stock an admin set to an absolute value in this write (edit or import)
+    private final Collection<Long> stockSetIds;
+
+    private ProductChangedEvent(Type type, Long productId, Product product, Integer stockQuantity,
+                                Collection<Long> stockSetIds) {
+        this.type = type;
+        this.productId = productId;
+        this.product = product;
+        this.stockQuantity = stockQuantity;
+        this.stockSetIds = stockSetIds;
+    }
+
+    public static ProductChangedEvent created(Product product) {
+        return new ProductChangedEvent(Type.CREATED, product.getId(), product, null, List.of());
+    }
+
+    // Any write that did not take a new stock value from an admin (deactivate, activate, image migration)
+    public static ProductChangedEvent updated(Product product) {
+        return updated(product, false);
+    }
+
+    public static ProductChangedEvent updated(Product product, boolean stockSet) {
+        return new ProductChangedEvent(Type.UPDATED, product.getId(), product, null,
+            stockSet ? List.of(product.getId()) : List.of());
+    }
+
+    public static ProductChangedEvent deleted(Long productId) {
+        return new ProductChangedEvent(Type.DELETED, productId, null, null, List.of());
+    }
+
+    // Stock moved by checkout/cancellation rather than an admin edit
+    public static ProductChangedEvent stockChanged(Long productId, Integer stockQuantity) {
+        return new ProductChangedEvent(Type.STOCK_CHANGED, productId, null, stockQuantity, List.of());
+    }
+
+    // Many products written at once (bulk import); listeners should reload rather than patch
+    public static ProductChangedEvent bulk(Collection<Long> stockSetIds) {
+        return new ProductChangedEvent(Type.BULK, null, null, null, List.copyOf(stockSetIds));
+    }
+
+    public Type getType() { return type; }
+    public Long getProductId() { return productId; }
+    public Product getProduct() { return product; }
+    public Integer getStockQuantity() { return stockQuantity; }
+    public Collection<Long> getStockSetIds() { return stockSetIds; }
+    public boolean isStockSet() { return productId != null && stockSetIds.contains(productId); }
+}
@@ -25,6 +25,11 @@ public class Category {
 
     private LocalDateTime updatedAt = LocalDateTime.now();
 
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
     // Getters and setters
 
     public Long getId() { return id; }
@@ -30,6 +30,16 @@ public class DeliveryAgent {
 
     private Boolean isActive = true;
 
+    // Last reported position; written only by AgentLocationService's periodic flush, never by entity saves
+    @Column(insertable = false, updatable = false)
+    private Double latitude;
+
+    @Column(insertable = false, updatable = false)
+    private Double longitude;
+
+    @Column(name = "location_updated_at", insertable = false, updatable = false)
+    private LocalDateTime locationUpdatedAt;
+
     @Column(nullable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
     private LocalDateTime createdAt;
 
@@ -121,6 +131,30 @@ public class DeliveryAgent {
         this.isActive = isActive;
     }
 
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public LocalDateTime getLocationUpdatedAt() {
+        return locationUpdatedAt;
+    }
+
+    public void setLocationUpdatedAt(LocalDateTime locationUpdatedAt) {
+        this.locationUpdatedAt = locationUpdatedAt;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
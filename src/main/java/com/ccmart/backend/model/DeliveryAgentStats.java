@@ -0,0 +1,52 @@
+package com.ccmart.backend.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Running workload and performance counters of one delivery agent, changed in the same transaction as the
+ * order transitions they count. deliveredToday belongs to statsDay and reads as 0 on any other day.
+ */
+@Entity
+@Table(name = "delivery_agent_stats")
+public class DeliveryAgentStats {
+    @Id
+    @Column(name = "agent_id")
+    private Long agentId;
+
+    // Orders assigned or in delivery
+    @Column(name = "open_orders", nullable = false)
+    private Integer openOrders = 0;
+
+    @Column(name = "delivered_count", nullable = false)
+    private Long deliveredCount = 0L;
+
+    // Sum of assigned -> delivered durations, for the average
+    @Column(name = "delivery_seconds", nullable = false)
+    private Long deliverySeconds = 0L;
+
+    @Column(name = "stats_day")
+    private LocalDate statsDay;
+
+    @Column(name = "delivered_today", nullable = false)
+    private Integer deliveredToday = 0;
+
+    @Column(name = "last_assigned_at")
+    private LocalDateTime lastAssignedAt;
+
+    public Long getAgentId() { return agentId; }
+    public void setAgentId(Long agentId) { this.agentId = agentId; }
+    public Integer getOpenOrders() { return openOrders; }
+    public void setOpenOrders(Integer openOrders) { this.openOrders = openOrders; }
+    public Long getDeliveredCount() { return deliveredCount; }
+    public void setDeliveredCount(Long deliveredCount) { this.deliveredCount = deliveredCount; }
+    public Long getDeliverySeconds() { return deliverySeconds; }
+    public void setDeliverySeconds(Long deliverySeconds) { this.deliverySeconds = deliverySeconds; }
+    public LocalDate getStatsDay() { return statsDay; }
+    public void setStatsDay(LocalDate statsDay) { this.statsDay = statsDay; }
+    public Integer getDeliveredToday() { return deliveredToday; }
+    public void setDeliveredToday(Integer deliveredToday) { this.deliveredToday = deliveredToday; }
+    public LocalDateTime getLastAssignedAt() { return lastAssignedAt; }
+    public void setLastAssignedAt(LocalDateTime lastAssignedAt) { this.lastAssignedAt = lastAssignedAt; }
+}
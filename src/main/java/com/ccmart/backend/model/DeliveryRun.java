@@ -0,0 +1,70 @@
+package com.ccmart.backend.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A group of approved orders for the same area and delivery slot, in driving order, handed to one agent at once.
+ * The stops are DeliveryRunStop rows; a run that is cancelled gives its orders back to planning.
+ */
+@Entity
+@Table(name = "delivery_runs", indexes = @Index(name = "idx_delivery_runs_status_date", columnList = "status, delivery_date"))
+public class DeliveryRun {
+    public static final String PLANNED = "planned";
+    public static final String ASSIGNED = "assigned";
+    public static final String CANCELLED = "cancelled";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 120)
+    private String area;
+
+    @Column(name = "delivery_date")
+    private LocalDate deliveryDate;
+
+    @Column(name = "delivery_time", length = 60)
+    private String deliveryTime;
+
+    @Column(nullable = false, length = 20)
+    private String status = PLANNED;
+
+    @Column(name = "delivery_agent_id")
+    private Long deliveryAgentId;
+
+    @Column(name = "stop_count", nullable = false)
+    private Integer stopCount = 0;
+
+    // Depot to last stop over the stops that have coordinates
+    @Column(name = "distance_km")
+    private Double distanceKm;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "assigned_at")
+    private LocalDateTime assignedAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getArea() { return area; }
+    public void setArea(String area) { this.area = area; }
+    public LocalDate getDeliveryDate() { return deliveryDate; }
+    public void setDeliveryDate(LocalDate deliveryDate) { this.deliveryDate = deliveryDate; }
+    public String getDeliveryTime() { return deliveryTime; }
+    public void setDeliveryTime(String deliveryTime) { this.deliveryTime = deliveryTime; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public Long getDeliveryAgentId() { return deliveryAgentId; }
+    public void setDeliveryAgentId(Long deliveryAgentId) { this.deliveryAgentId = deliveryAgentId; }
+    public Integer getStopCount() { return stopCount; }
+    public void setStopCount(Integer stopCount) { this.stopCount = stopCount; }
+    public Double getDistanceKm() { return distanceKm; }
+    public void setDistanceKm(Double distanceKm) { this.distanceKm = distanceKm; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public LocalDateTime getAssignedAt() { return assignedAt; }
+    public void setAssignedAt(LocalDateTime assignedAt) { this.assignedAt = assignedAt; }
+}
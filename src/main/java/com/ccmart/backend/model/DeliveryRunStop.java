@@ -0,0 +1,43 @@
+package com.ccmart.backend.model;
+
+import jakarta.persistence.*;
+
+/**
+ * One order in a delivery run. An order is in at most one run, which keeps concurrent planning from
+ * putting it in two.
+ */
+@Entity
+@Table(name = "delivery_run_stops",
+    uniqueConstraints = @UniqueConstraint(name = "uk_delivery_run_stops_order", columnNames = "order_id"),
+    indexes = @Index(name = "idx_delivery_run_stops_run", columnList = "run_id, stop_sequence"))
+public class DeliveryRunStop {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "stop_sequence", nullable = false)
+    private Integer stopSequence;
+
+    public DeliveryRunStop() {}
+
+    public DeliveryRunStop(Long runId, Long orderId, Integer stopSequence) {
+        this.runId = runId;
+        this.orderId = orderId;
+        this.stopSequence = stopSequence;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getRunId() { return runId; }
+    public void setRunId(Long runId) { this.runId = runId; }
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+    public Integer getStopSequence() { return stopSequence; }
+    public void setStopSequence(Integer stopSequence) { this.stopSequence = stopSequence; }
+}
@@ -0,0 +1,41 @@
+package com.ccmart.backend.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Capacity and reservation count of one delivery window on one day. reserved only changes through
+ * conditional UPDATEs (reserved < capacity to take, reserved >= n to give back), so it never exceeds capacity.
+ */
+@Entity
+@Table(name = "delivery_slots",
+    uniqueConstraints = @UniqueConstraint(name = "uk_delivery_slots_date_window", columnNames = {"slot_date", "slot_window"}))
+public class DeliverySlot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "slot_date", nullable = false)
+    private LocalDate slotDate;
+
+    // "HH:mm-HH:mm", one of delivery.slots.windows
+    @Column(name = "slot_window", nullable = false, length = 20)
+    private String slotWindow;
+
+    @Column(nullable = false)
+    private Integer capacity;
+
+    @Column(nullable = false)
+    private Integer reserved = 0;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public LocalDate getSlotDate() { return slotDate; }
+    public void setSlotDate(LocalDate slotDate) { this.slotDate = slotDate; }
+    public String getSlotWindow() { return slotWindow; }
+    public void setSlotWindow(String slotWindow) { this.slotWindow = slotWindow; }
+    public Integer getCapacity() { return capacity; }
+    public void setCapacity(Integer capacity) { this.capacity = capacity; }
+    public Integer getReserved() { return reserved; }
+    public void setReserved(Integer reserved) { this.reserved = reserved; }
+}
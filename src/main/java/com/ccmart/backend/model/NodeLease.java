@@ -0,0 +1,47 @@
+package com.ccmart.backend.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Lease on one of the order-number generator's node ids. An instance owns the id while expiresAt is in the
+ * future and keeps renewing it; ids of instances that stopped renewing can be taken over.
+ *
+ * fenceMillis is the latest timestamp (epoch millis) the owner may put into an order number. The next owner
+ * of the id only issues numbers with a later timestamp, so the two can never produce the same number even
+ * if the old owner is still running.
+ */
+@Entity
+@Table(name = "node_leases")
+public class NodeLease {
+    @Id
+    @Column(name = "node_id")
+    private Integer nodeId;
+
+    @Column(nullable = false, length = 100)
+    private String owner;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "fence_millis")
+    private Long fenceMillis;
+
+    public NodeLease() {}
+
+    public NodeLease(Integer nodeId, String owner, LocalDateTime expiresAt, Long fenceMillis) {
+        this.nodeId = nodeId;
+        this.owner = owner;
+        this.expiresAt = expiresAt;
+        this.fenceMillis = fenceMillis;
+    }
+
+    public Integer getNodeId() { return nodeId; }
+    public void setNodeId(Integer nodeId) { this.nodeId = nodeId; }
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+    public Long getFenceMillis() { return fenceMillis; }
+    public void setFenceMillis(Long fenceMillis) { this.fenceMillis = fenceMillis; }
+}
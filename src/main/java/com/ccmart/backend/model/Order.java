@@ -7,7 +7,14 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+// Every admin filter leads one index, and each ends in (created_at, id) so keyset pages are index range scans
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_created", columnList = "created_at, id"),
+    @Index(name = "idx_orders_status_created", columnList = "status, created_at, id"),
+    @Index(name = "idx_orders_user_created", columnList = "user_id, created_at, id"),
+    @Index(name = "idx_orders_agent_created", columnList = "delivery_agent_id, created_at, id"),
+    @Index(name = "idx_orders_payment_created", columnList = "payment_status, created_at, id")
+})
 public class Order {
 
     @Id
@@ -41,6 +48,9 @@ public class Order {
 
     private LocalDateTime assignedAt;
 
+    // Set once by the transition to delivered; updated_at moves on with any later edit
+    private LocalDateTime deliveredAt;
+
     @Column(columnDefinition = "TEXT")
     private String deliveryAddress;
 
@@ -53,6 +63,15 @@ public class Order {
 
     private String deliveryTime;
 
+    // Optional drop-off coordinates from the checkout map; used to order the stops of delivery runs
+    private Double deliveryLatitude;
+
+    private Double deliveryLongitude;
+
+    // delivery_slots row this order holds a place in; null for orders placed without a slot
+    @Column(name = "delivery_slot_id")
+    private Long deliverySlotId;
+
     private LocalDateTime createdAt = LocalDateTime.now();
 
     private LocalDateTime updatedAt = LocalDateTime.now();
@@ -102,6 +121,15 @@ public class Order {
     public String getDeliveryTime() { return deliveryTime; }
     public void setDeliveryTime(String deliveryTime) { this.deliveryTime = deliveryTime; }
 
+    public Double getDeliveryLatitude() { return deliveryLatitude; }
+    public void setDeliveryLatitude(Double deliveryLatitude) { this.deliveryLatitude = deliveryLatitude; }
+
+    public Double getDeliveryLongitude() { return deliveryLongitude; }
+    public void setDeliveryLongitude(Double deliveryLongitude) { this.deliveryLongitude = deliveryLongitude; }
+
+    public Long getDeliverySlotId() { return deliverySlotId; }
+    public void setDeliverySlotId(Long deliverySlotId) { this.deliverySlotId = deliverySlotId; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
@@ -120,10 +148,13 @@ public class Order {
     public LocalDateTime getAssignedAt() { return assignedAt; }
     public void setAssignedAt(LocalDateTime assignedAt) { this.assignedAt = assignedAt; }
 
+    public LocalDateTime getDeliveredAt() { return deliveredAt; }
+    public void setDeliveredAt(LocalDateTime deliveredAt) { this.deliveredAt = deliveredAt; }
+
     @PrePersist
     protected void onCreate() {
         if (orderNumber == null) {
-            // Generate unique order number: ORD + timestamp + random 3 digits
+            // Fallback only; OrderService assigns collision-free numbers from OrderNumberGenerator
             orderNumber = "ORD" + System.currentTimeMillis() + ((int)(Math.random() * 900) + 100);
         }
         createdAt = LocalDateTime.now();
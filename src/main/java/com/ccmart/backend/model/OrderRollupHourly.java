@@ -0,0 +1,40 @@
+package com.ccmart.backend.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Order totals per hour of order creation. ordersCount counts every order placed; revenue and deliveryFees
+ * exclude orders that were later cancelled, which are counted in cancelledCount instead.
+ */
+@Entity
+@Table(name = "order_rollups_hourly")
+public class OrderRollupHourly {
+    @Id
+    @Column(name = "bucket")
+    private LocalDateTime bucket;
+
+    @Column(name = "orders_count", nullable = false)
+    private Long ordersCount = 0L;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Column(name = "delivery_fees", nullable = false, precision = 14, scale = 2)
+    private BigDecimal deliveryFees = BigDecimal.ZERO;
+
+    @Column(name = "cancelled_count", nullable = false)
+    private Long cancelledCount = 0L;
+
+    public LocalDateTime getBucket() { return bucket; }
+    public void setBucket(LocalDateTime bucket) { this.bucket = bucket; }
+    public Long getOrdersCount() { return ordersCount; }
+    public void setOrdersCount(Long ordersCount) { this.ordersCount = ordersCount; }
+    public BigDecimal getRevenue() { return revenue; }
+    public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+    public BigDecimal getDeliveryFees() { return deliveryFees; }
+    public void setDeliveryFees(BigDecimal deliveryFees) { this.deliveryFees = deliveryFees; }
+    public Long getCancelledCount() { return cancelledCount; }
+    public void setCancelledCount(Long cancelledCount) { this.cancelledCount = cancelledCount; }
+}
@@ -0,0 +1,61 @@
+package com.ccmart.backend.model;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Order lifecycle states and the transitions allowed between them. Orders still store the lowercase
+ * value in orders.status, so existing rows, queries and clients are unaffected.
+ */
+public enum OrderStatus {
+    PENDING("pending"),
+    APPROVED("approved"),
+    ASSIGNED("assigned"),
+    IN_DELIVERY("in_delivery"),
+    DELIVERED("delivered"),
+    CANCELLED("cancelled");
+
+    private final String value;
+    private Set<OrderStatus> next;
+
+    static {
+        PENDING.next = EnumSet.of(APPROVED, CANCELLED);
+        APPROVED.next = EnumSet.of(ASSIGNED, CANCELLED);
+        ASSIGNED.next = EnumSet.of(IN_DELIVERY, CANCELLED);
+        IN_DELIVERY.next = EnumSet.of(DELIVERED, CANCELLED);
+        DELIVERED.next = EnumSet.noneOf(OrderStatus.class);
+        CANCELLED.next = EnumSet.noneOf(OrderStatus.class);
+    }
+
+    OrderStatus(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public boolean canTransitionTo(OrderStatus target) {
+        return next.contains(target);
+    }
+
+    // States an order may be in to move to the target, i.e. the WHERE clause of a conditional update
+    public static Set<OrderStatus> sourcesOf(OrderStatus target) {
+        Set<OrderStatus> sources = EnumSet.noneOf(OrderStatus.class);
+        for (OrderStatus s : values()) {
+            if (s.canTransitionTo(target)) sources.add(s);
+        }
+        return sources;
+    }
+
+    /** Parse a stored or requested status ("in_delivery", "IN_DELIVERY"); null when unknown. */
+    public static OrderStatus fromValue(String value) {
+        if (value == null) return null;
+        String v = value.trim().toLowerCase(Locale.ROOT);
+        for (OrderStatus s : values()) {
+            if (s.value.equals(v)) return s;
+        }
+        return null;
+    }
+}
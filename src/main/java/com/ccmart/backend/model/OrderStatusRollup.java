@@ -0,0 +1,49 @@
+package com.ccmart.backend.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Number of orders created in an hour that are currently in a given status.
+ */
+@Entity
+@Table(name = "order_status_rollups")
+@IdClass(OrderStatusRollup.Key.class)
+public class OrderStatusRollup {
+    @Id
+    @Column(name = "bucket")
+    private LocalDateTime bucket;
+
+    @Id
+    @Column(name = "status", length = 32)
+    private String status;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount = 0L;
+
+    public static class Key implements Serializable {
+        private LocalDateTime bucket;
+        private String status;
+
+        public Key() {}
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && Objects.equals(bucket, k.bucket) && Objects.equals(status, k.status);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bucket, status);
+        }
+    }
+
+    public LocalDateTime getBucket() { return bucket; }
+    public void setBucket(LocalDateTime bucket) { this.bucket = bucket; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public Long getOrderCount() { return orderCount; }
+    public void setOrderCount(Long orderCount) { this.orderCount = orderCount; }
+}
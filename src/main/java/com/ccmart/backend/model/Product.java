@@ -25,6 +25,8 @@ public class Product {
     @JoinColumn(name = "category_id", nullable = true)
     private Category category;
 
+    // Short reference (/api/images/<sha256>.<ext> or an external URL); image bytes live in the image store.
+    // Still LONGTEXT: rows with inline data URIs that could not be migrated keep their value until fixed.
     @Lob
     @Column(columnDefinition = "LONGTEXT")
     private String imageUrl;
@@ -41,6 +43,11 @@ public class Product {
 
     private LocalDateTime updatedAt = LocalDateTime.now();
 
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
     // Getters and setters
 
     public Long getId() { return id; }
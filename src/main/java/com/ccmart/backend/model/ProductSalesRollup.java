@@ -0,0 +1,55 @@
+package com.ccmart.backend.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Units and revenue per product per day of order creation, excluding cancelled orders.
+ */
+@Entity
+@Table(name = "product_sales_rollups")
+@IdClass(ProductSalesRollup.Key.class)
+public class ProductSalesRollup {
+    @Id
+    @Column(name = "sales_day")
+    private LocalDate salesDay;
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(nullable = false)
+    private Long units = 0L;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    public static class Key implements Serializable {
+        private LocalDate salesDay;
+        private Long productId;
+
+        public Key() {}
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && Objects.equals(salesDay, k.salesDay) && Objects.equals(productId, k.productId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(salesDay, productId);
+        }
+    }
+
+    public LocalDate getSalesDay() { return salesDay; }
+    public void setSalesDay(LocalDate salesDay) { this.salesDay = salesDay; }
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+    public Long getUnits() { return units; }
+    public void setUnits(Long units) { this.units = units; }
+    public BigDecimal getRevenue() { return revenue; }
+    public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+}
@@ -0,0 +1,24 @@
+package com.ccmart.backend.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Outbox event above the rollup cursor that is already folded into the rollup tables. Events can commit out of
+ * id order, so the cursor only moves over a contiguous run; whatever was applied past a gap is listed here.
+ */
+@Entity
+@Table(name = "rollup_applied_events")
+public class RollupAppliedEvent {
+    @Id
+    @Column(name = "event_id")
+    private Long eventId;
+
+    public RollupAppliedEvent() {}
+
+    public RollupAppliedEvent(Long eventId) {
+        this.eventId = eventId;
+    }
+
+    public Long getEventId() { return eventId; }
+    public void setEventId(Long eventId) { this.eventId = eventId; }
+}
@@ -0,0 +1,25 @@
+package com.ccmart.backend.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Single row (id 1): the order_outbox id up to which every event is folded into the rollup tables (events
+ * above it that are already applied are in rollup_applied_events). Consumers lock it, which also keeps two
+ * instances from applying the same events.
+ */
+@Entity
+@Table(name = "rollup_state")
+public class RollupState {
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "last_event_id", nullable = false)
+    private Long lastEventId = 0L;
+
+    public Integer getId() { return id; }
+    public void setId(Integer id) { this.id = id; }
+    public Long getLastEventId() { return lastEventId; }
+    public void setLastEventId(Long lastEventId) { this.lastEventId = lastEventId; }
+}
@@ -1,10 +1,15 @@
 package com.ccmart.backend.repository;
 
+import com.ccmart.backend.dto.VersionStamp;
 import com.ccmart.backend.model.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.Optional;
 
 public interface CategoryRepository extends JpaRepository<Category, Long> {
     Optional<Category> findByName(String name);
+
+    @Query("SELECT new com.ccmart.backend.dto.VersionStamp(COUNT(c), MAX(c.updatedAt)) FROM Category c")
+    VersionStamp findVersionStamp();
 }
@@ -0,0 +1,7 @@
+package com.ccmart.backend.repository;
+
+import com.ccmart.backend.model.DeliveryAgentStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DeliveryAgentStatsRepository extends JpaRepository<DeliveryAgentStats, Long> {
+}
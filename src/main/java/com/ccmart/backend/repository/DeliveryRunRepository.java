@@ -0,0 +1,20 @@
+package com.ccmart.backend.repository;
+
+import com.ccmart.backend.model.DeliveryRun;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface DeliveryRunRepository extends JpaRepository<DeliveryRun, Long> {
+
+    List<DeliveryRun> findByStatusOrderByDeliveryDateAscIdAsc(String status);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM DeliveryRun r WHERE r.id = :id")
+    Optional<DeliveryRun> findForUpdate(@Param("id") Long id);
+}
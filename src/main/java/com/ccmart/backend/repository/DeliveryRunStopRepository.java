@@ -0,0 +1,19 @@
+package com.ccmart.backend.repository;
+
+import com.ccmart.backend.model.DeliveryRunStop;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface DeliveryRunStopRepository extends JpaRepository<DeliveryRunStop, Long> {
+
+    List<DeliveryRunStop> findByRunIdInOrderByRunIdAscStopSequenceAsc(Collection<Long> runIds);
+
+    @Modifying
+    @Query("DELETE FROM DeliveryRunStop s WHERE s.runId = :runId")
+    int deleteByRunId(@Param("runId") Long runId);
+}
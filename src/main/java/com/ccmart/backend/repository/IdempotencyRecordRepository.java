@@ -0,0 +1,24 @@
+package com.ccmart.backend.repository;
+
+import com.ccmart.backend.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+
+    // Claims whose request never finished (instance died mid-request); frees the key for another attempt
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.responseStatus IS NULL AND r.createdAt < :before")
+    int deleteAbandonedClaims(@Param("before") LocalDateTime before);
+}
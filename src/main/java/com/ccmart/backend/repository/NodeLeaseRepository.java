@@ -0,0 +1,37 @@
+package com.ccmart.backend.repository;
+
+import com.ccmart.backend.model.NodeLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface NodeLeaseRepository extends JpaRepository<NodeLease, Integer> {
+
+    @Query("SELECT l.nodeId FROM NodeLease l ORDER BY l.nodeId")
+    List<Integer> findAllNodeIds();
+
+    // Plain INSERT (save() would merge into an existing row); a duplicate key means another instance got there first
+    @Modifying
+    @Query(value = "INSERT INTO node_leases (node_id, owner, expires_at, fence_millis) VALUES (:nodeId, :owner, :expiresAt, :fence)", nativeQuery = true)
+    int insert(@Param("nodeId") Integer nodeId, @Param("owner") String owner, @Param("expiresAt") LocalDateTime expiresAt,
+               @Param("fence") long fence);
+
+    // Take over an expired lease, keeping the previous owner's fence; 0 rows means someone else holds it
+    @Modifying
+    @Query("UPDATE NodeLease l SET l.owner = :owner, l.expiresAt = :expiresAt WHERE l.nodeId = :nodeId AND l.expiresAt < :now")
+    int takeOver(@Param("nodeId") Integer nodeId, @Param("owner") String owner,
+                 @Param("expiresAt") LocalDateTime expiresAt, @Param("now") LocalDateTime now);
+
+    @Query("SELECT l.fenceMillis FROM NodeLease l WHERE l.nodeId = :nodeId")
+    Long findFence(@Param("nodeId") Integer nodeId);
+
+    // Extend our own lease and move its fence; 0 rows means it was lost
+    @Modifying
+    @Query("UPDATE NodeLease l SET l.expiresAt = :expiresAt, l.fenceMillis = :fence WHERE l.nodeId = :nodeId AND l.owner = :owner")
+    int renew(@Param("nodeId") Integer nodeId, @Param("owner") String owner, @Param("expiresAt") LocalDateTime expiresAt,
+              @Param("fence") long fence);
+}
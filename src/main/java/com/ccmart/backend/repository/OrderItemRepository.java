@@ -2,10 +2,22 @@ package com.ccmart.backend.repository;
 
 import com.ccmart.backend.model.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 import java.util.List;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     boolean existsByProductId(Long productId);
     long countByProductId(Long productId);
     List<OrderItem> findByOrderId(Long orderId);
+
+    // [productId, units sold] over all non-cancelled orders
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi WHERE oi.order.status <> 'cancelled' GROUP BY oi.product.id")
+    List<Object[]> sumQuantityByProduct();
+
+    // [productId, units] over the given orders, e.g. to restock a batch of cancellations in one call
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi WHERE oi.order.id IN :orderIds GROUP BY oi.product.id")
+    List<Object[]> sumQuantityByProductForOrders(@Param("orderIds") Collection<Long> orderIds);
 }
@@ -0,0 +1,22 @@
+package com.ccmart.backend.repository;
+
+import com.ccmart.backend.model.OrderOutboxEvent;
+import com.ccmart.backend.model.RollupState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface OrderOutboxRepository extends JpaRepository<OrderOutboxEvent, Long> {
+
+    @Query("SELECT COUNT(e) FROM OrderOutboxEvent e WHERE e.processedAt IS NULL")
+    long countPending();
+
+    // Rows the dashboard rollups have not consumed yet are kept regardless of age
+    @Modifying
+    @Query("DELETE FROM OrderOutboxEvent e WHERE e.processedAt < :before " +
+           "AND e.id <= (SELECT s.lastEventId FROM RollupState s WHERE s.id = " + RollupState.ID + ")")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+}
@@ -1,16 +1,92 @@
 package com.ccmart.backend.repository;
 
+import com.ccmart.backend.dto.OrderExportRow;
+import com.ccmart.backend.dto.VersionStamp;
+import com.ccmart.backend.model.DeliveryAgent;
 import com.ccmart.backend.model.Order;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByStatus(String status);
     List<Order> findByUserId(Long userId);
     boolean existsByUserId(Long userId);
     long countByUserId(Long userId);
+
+    // Cheap version check for a user's order list (served from the user_id index, no row payload)
+    @Query("SELECT new com.ccmart.backend.dto.VersionStamp(COUNT(o), MAX(o.updatedAt)) FROM Order o WHERE o.user.id = :userId")
+    VersionStamp findVersionStampByUserId(@Param("userId") Long userId);
+
+    // Forward-only export stream of flat order rows (no entities, no item collections); consume inside a transaction
+    @Query("SELECT new com.ccmart.backend.dto.OrderExportRow(o.id, o.orderNumber, u.id, u.name, u.email, o.status, " +
+           "o.paymentStatus, o.paymentMethod, o.totalAmount, o.deliveryFee, " +
+           "(SELECT COUNT(i) FROM OrderItem i WHERE i.order = o), a.id, a.name, o.deliveryAddress, o.deliveryPhone, " +
+           "o.deliveryDate, o.deliveryTime, o.createdAt, o.updatedAt) " +
+           "FROM Order o JOIN o.user u LEFT JOIN o.deliveryAgent a " +
+           "WHERE (:status IS NULL OR o.status = :status) " +
+           "AND (:from IS NULL OR o.createdAt >= :from) AND (:to IS NULL OR o.createdAt < :to) " +
+           "ORDER BY o.id")
+    // Integer.MIN_VALUE makes Connector/J stream rows one at a time instead of buffering the result set
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"))
+    Stream<OrderExportRow> streamExportRows(@Param("status") String status,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to);
     
+    // Admin listing, step 1: one page of ids (index scan on the primary key), newest first
+    @Query("SELECT o.id FROM Order o WHERE (:status IS NULL OR o.status = :status) " +
+           "AND (:userId IS NULL OR o.user.id = :userId) " +
+           "AND (:from IS NULL OR o.createdAt >= :from) AND (:to IS NULL OR o.createdAt < :to) ORDER BY o.id DESC")
+    List<Long> findIdPage(@Param("status") String status, @Param("userId") Long userId,
+                          @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable pageable);
+
+    @Query("SELECT COUNT(o) FROM Order o WHERE (:status IS NULL OR o.status = :status) " +
+           "AND (:userId IS NULL OR o.user.id = :userId) " +
+           "AND (:from IS NULL OR o.createdAt >= :from) AND (:to IS NULL OR o.createdAt < :to)")
+    long countFiltered(@Param("status") String status, @Param("userId") Long userId,
+                       @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Step 2: the whole graph for those ids in one statement instead of one query per EAGER association
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.user LEFT JOIN FETCH o.deliveryAgent " +
+           "LEFT JOIN FETCH o.items i LEFT JOIN FETCH i.product p LEFT JOIN FETCH p.category WHERE o.id IN :ids")
+    List<Order> findWithDetailsByIds(@Param("ids") Collection<Long> ids);
+
+    // [id, user_id, status] with the rows locked, so a following conditional update changes exactly these
+    @Query(value = "SELECT id, user_id, status FROM orders WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockStatuses(@Param("ids") Collection<Long> ids);
+
+    // One statement per transition; approvedAt/deliveredAt/paymentStatus are only overwritten when non-null
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :to, o.updatedAt = :now, " +
+           "o.approvedAt = COALESCE(:approvedAt, o.approvedAt), o.deliveredAt = COALESCE(:deliveredAt, o.deliveredAt), " +
+           "o.paymentStatus = COALESCE(:paymentStatus, o.paymentStatus) " +
+           "WHERE o.id IN :ids AND o.status IN :from")
+    int transitionStatus(@Param("ids") Collection<Long> ids, @Param("from") Collection<String> from,
+                         @Param("to") String to, @Param("now") LocalDateTime now,
+                         @Param("approvedAt") LocalDateTime approvedAt, @Param("deliveredAt") LocalDateTime deliveredAt,
+                         @Param("paymentStatus") String paymentStatus);
+
+    // Orders no longer approved are left alone; only called through OrderLifecycleService
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.deliveryAgent = :agent, o.status = 'assigned', o.assignedAt = :now, o.updatedAt = :now " +
+           "WHERE o.id IN :ids AND o.status = 'approved'")
+    int assignAgentToAll(@Param("ids") Collection<Long> ids, @Param("agent") DeliveryAgent agent, @Param("now") LocalDateTime now);
+
+    // Hand assigned, not yet picked-up orders to another agent; only called through OrderLifecycleService
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.deliveryAgent = :agent, o.assignedAt = :now, o.updatedAt = :now " +
+           "WHERE o.id IN :ids AND o.status = 'assigned'")
+    int reassignAgent(@Param("ids") Collection<Long> ids, @Param("agent") DeliveryAgent agent, @Param("now") LocalDateTime now);
+
     // Native query to get ALL orders from database
     @Query(value = "SELECT * FROM orders ORDER BY id DESC", nativeQuery = true)
     List<Order> findAllOrders();
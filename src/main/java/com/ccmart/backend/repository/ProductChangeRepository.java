@@ -0,0 +1,41 @@
+package com.ccmart.backend.repository;
+
+import com.ccmart.backend.model.ProductChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ProductChangeRepository extends JpaRepository<ProductChange, Long> {
+
+    // Walks the primary key from the client's token; rows younger than the cutoff are held back (see ProductChangeService)
+    @Query("SELECT c FROM ProductChange c WHERE c.id > :since AND c.changedAt < :cutoff ORDER BY c.id")
+    List<ProductChange> findSettledSince(@Param("since") Long since, @Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Query("SELECT MAX(c.id) FROM ProductChange c WHERE c.changedAt < :cutoff")
+    Long findMaxSettledId(@Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT MIN(c.id) FROM ProductChange c")
+    Long findMinId();
+
+    @Query("SELECT MAX(c.id) FROM ProductChange c")
+    Long findMaxId();
+
+    // One UPSERT row per product in the category, for a rename: product rows carry the category name
+    // Joins the writer's transaction, or runs in its own when the category write had none
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO product_changes (product_id, change_type, changed_at) " +
+                   "SELECT p.id, 'UPSERT', :now FROM products p WHERE p.category_id = :categoryId ORDER BY p.id",
+           nativeQuery = true)
+    int recordCategoryChange(@Param("categoryId") Long categoryId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM ProductChange c WHERE c.changedAt < :before AND c.id < :keepFrom")
+    int deleteOlderThan(@Param("before") LocalDateTime before, @Param("keepFrom") Long keepFrom);
+}
@@ -1,9 +1,73 @@
 package com.ccmart.backend.repository;
 
+import com.ccmart.backend.dto.ProductExportRow;
+import com.ccmart.backend.dto.ProductSummaryDTO;
+import com.ccmart.backend.dto.VersionStamp;
 import com.ccmart.backend.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
+    // Rows not yet migrated to the image store still hold inline data URIs; never ship those in listings
+    String IMAGE_REF = "CASE WHEN p.imageUrl LIKE 'data:%' THEN NULL ELSE p.imageUrl END";
+
     Optional<Product> findByName(String name);
+
+    // Listing projections - never touch the description column
+    @Query("SELECT new com.ccmart.backend.dto.ProductSummaryDTO(p.id, p.name, p.price, c.id, c.name, " +
+           "p.stockQuantity, p.unit, " + IMAGE_REF + ", p.isActive, p.isFeatured, p.createdAt, p.updatedAt) " +
+           "FROM Product p LEFT JOIN p.category c ORDER BY p.id")
+    List<ProductSummaryDTO> findSummaries(Pageable pageable);
+
+    // Keyset variant: seeks past the last id the client has seen instead of counting an offset
+    @Query("SELECT new com.ccmart.backend.dto.ProductSummaryDTO(p.id, p.name, p.price, c.id, c.name, " +
+           "p.stockQuantity, p.unit, " + IMAGE_REF + ", p.isActive, p.isFeatured, p.createdAt, p.updatedAt) " +
+           "FROM Product p LEFT JOIN p.category c WHERE p.id > :afterId ORDER BY p.id")
+    List<ProductSummaryDTO> findSummariesAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT new com.ccmart.backend.dto.ProductSummaryDTO(p.id, p.name, p.price, c.id, c.name, " +
+           "p.stockQuantity, p.unit, " + IMAGE_REF + ", p.isActive, p.isFeatured, p.createdAt, p.updatedAt) " +
+           "FROM Product p LEFT JOIN p.category c WHERE p.id IN :ids ORDER BY p.id")
+    List<ProductSummaryDTO> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.ccmart.backend.dto.VersionStamp(COUNT(p), MAX(p.updatedAt)) FROM Product p")
+    VersionStamp findVersionStamp();
+
+    // Forward-only export stream; must be consumed inside a transaction and closed
+    @Query("SELECT new com.ccmart.backend.dto.ProductExportRow(p.id, p.name, p.description, p.price, c.id, c.name, " +
+           "p.stockQuantity, p.unit, " + IMAGE_REF + ", p.isActive, p.isFeatured, p.createdAt, p.updatedAt) " +
+           "FROM Product p LEFT JOIN p.category c ORDER BY p.id")
+    // Integer.MIN_VALUE makes Connector/J stream rows one at a time instead of buffering the result set
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"))
+    Stream<ProductExportRow> streamExportRows();
+
+    // Conditional decrement: affects 0 rows (and changes nothing) when stock is short. Pending changes are
+    // flushed first and the persistence context is cleared after, so no managed Product keeps the old stock.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :qty, p.updatedAt = :now " +
+           "WHERE p.id = :id AND p.stockQuantity >= :qty")
+    int decrementStock(@Param("id") Long id, @Param("qty") int qty, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :qty, p.updatedAt = :now WHERE p.id = :id")
+    int incrementStock(@Param("id") Long id, @Param("qty") int qty, @Param("now") LocalDateTime now);
+
+    // [id, stockQuantity] read back after a reservation, for the STOCK_CHANGED events
+    @Query("SELECT p.id, p.stockQuantity FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findStockLevels(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id FROM Product p WHERE p.imageUrl LIKE 'data:%' ORDER BY p.id")
+    List<Long> findIdsWithInlineImages();
 }
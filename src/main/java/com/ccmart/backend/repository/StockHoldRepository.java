@@ -0,0 +1,36 @@
+package com.ccmart.backend.repository;
+
+import com.ccmart.backend.model.StockHold;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface StockHoldRepository extends JpaRepository<StockHold, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM StockHold h WHERE h.userId = :userId AND h.productId = :productId")
+    Optional<StockHold> findForUpdate(@Param("userId") Long userId, @Param("productId") Long productId);
+
+    // Every hold of the user, expired or not: until the sweeper deletes a row its units are still set aside
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM StockHold h WHERE h.userId = :userId ORDER BY h.productId")
+    List<StockHold> findByUserIdForUpdate(@Param("userId") Long userId);
+
+    @Query("SELECT h FROM StockHold h WHERE h.userId = :userId ORDER BY h.productId")
+    List<StockHold> findByUserId(@Param("userId") Long userId);
+
+    // SKIP LOCKED (timeout -2): holds being extended or checked out right now are left for the next sweep
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT h FROM StockHold h WHERE h.expiresAt < :now ORDER BY h.expiresAt")
+    List<StockHold> findExpiredForUpdate(@Param("now") LocalDateTime now, Pageable pageable);
+}
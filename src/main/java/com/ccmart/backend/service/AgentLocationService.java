@@ -0,0 +1,259 @@
+package com.ccmart.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live delivery-agent positions. Pings only touch memory: the latest position per agent replaces the previous
+ * one, and a scheduled flush writes whatever changed since the last flush with one JDBC batch, so an agent
+ * pinging every few seconds costs one row update per flush interval.
+ *
+ * Positions are also indexed in a grid of CELL_DEGREES cells. A nearest-agents query walks rings of cells
+ * outwards from the target and stops once no unvisited cell can hold anything closer than what it already has,
+ * so it only looks at agents in the neighbourhood.
+ */
+@Service
+public class AgentLocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(AgentLocationService.class);
+
+    // ~1.1 km north-south; east-west cells narrow towards the poles, which the ring bound accounts for
+    static final double CELL_DEGREES = 0.01;
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+    public static final double MAX_RADIUS_KM = 50;
+
+    private static final String AGENT_OWNERS =
+        "SELECT a.id, u.id FROM delivery_agents a JOIN users u ON u.email = a.email WHERE a.is_active = TRUE";
+
+    public record Position(long agentId, double latitude, double longitude, long recordedAt, long cell) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DeliveryAssignmentService deliveryAssignmentService;
+    private final long staleMillis;
+    private final long ownerMissMillis;
+
+    private final ConcurrentHashMap<Long, Position> positions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+    // Latest unflushed position per agent
+    private final ConcurrentHashMap<Long, Position> pending = new ConcurrentHashMap<>();
+    // Agent id -> id of the user account with the same email, which is allowed to report for that agent
+    private final ConcurrentHashMap<Long, Long> owners = new ConcurrentHashMap<>();
+    // Agent id -> time until which "no owner" is trusted without asking the database again
+    private final ConcurrentHashMap<Long, Long> ownerMisses = new ConcurrentHashMap<>();
+
+    public AgentLocationService(JdbcTemplate jdbcTemplate, DeliveryAssignmentService deliveryAssignmentService,
+                                @Value("${delivery.location.stale-seconds:300}") long staleSeconds,
+                                @Value("${delivery.location.owner-miss-seconds:60}") long ownerMissSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.deliveryAssignmentService = deliveryAssignmentService;
+        this.staleMillis = staleSeconds * 1000;
+        this.ownerMissMillis = ownerMissSeconds * 1000;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        jdbcTemplate.query("SELECT id, latitude, longitude, location_updated_at FROM delivery_agents " +
+                "WHERE latitude IS NOT NULL AND longitude IS NOT NULL AND location_updated_at IS NOT NULL",
+            (RowCallbackHandler) rs -> index(rs.getLong(1), rs.getDouble(2), rs.getDouble(3), rs.getTimestamp(4).getTime()));
+        reloadOwners();
+        log.info("Agent location index loaded ({} positions)", positions.size());
+    }
+
+    public void reloadOwners() {
+        Map<Long, Long> loaded = new HashMap<>();
+        jdbcTemplate.query(AGENT_OWNERS, (RowCallbackHandler) rs -> loaded.put(rs.getLong(1), rs.getLong(2)));
+        owners.keySet().retainAll(loaded.keySet());
+        owners.putAll(loaded);
+        ownerMisses.clear();
+    }
+
+    // Re-read one agent's owner after the agent was created, edited, deactivated or switched on or off
+    public void refreshOwner(Long agentId) {
+        ownerMisses.remove(agentId);
+        List<Long> owner = jdbcTemplate.queryForList(AGENT_OWNERS + " AND a.id = ?", Long.class, agentId);
+        if (owner.isEmpty()) {
+            owners.remove(agentId);
+        } else {
+            owners.put(agentId, owner.get(0));
+        }
+    }
+
+    /**
+     * Whether the user may report this agent's position. An agent without a known owner (for instance a user
+     * account registered after the agent) is looked up on its own, and a miss is remembered for a while so
+     * pings for it do not hit the database every time.
+     */
+    public boolean isOwner(Long agentId, Long userId) {
+        Long owner = owners.get(agentId);
+        if (owner == null) {
+            Long until = ownerMisses.get(agentId);
+            if (until != null && until > System.currentTimeMillis()) return false;
+            refreshOwner(agentId);
+            owner = owners.get(agentId);
+            if (owner == null) ownerMisses.put(agentId, System.currentTimeMillis() + ownerMissMillis);
+        }
+        return userId.equals(owner);
+    }
+
+    /**
+     * Record a ping. Only memory is touched; the position reaches the database on the next flush.
+     * Throws IllegalArgumentException for coordinates outside the valid range.
+     */
+    public Position ping(Long agentId, double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("latitude must be within [-90, 90] and longitude within [-180, 180]");
+        }
+        Position position = index(agentId, latitude, longitude, System.currentTimeMillis());
+        pending.put(agentId, position);
+        return position;
+    }
+
+    public Position getPosition(Long agentId) {
+        return positions.get(agentId);
+    }
+
+    /**
+     * Up to {@code limit} active, available agents with a recent position within {@code radiusKm} of the point,
+     * closest first, each as {agentId, latitude, longitude, distanceKm, updatedAt}.
+     */
+    public List<Map<String, Object>> nearest(double latitude, double longitude, int limit, double radiusKm) {
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("latitude must be within [-90, 90] and longitude within [-180, 180]");
+        }
+        if (limit < 1 || limit > 100) {
+            throw new IllegalArgumentException("limit must be between 1 and 100");
+        }
+        if (!(radiusKm > 0 && radiusKm <= MAX_RADIUS_KM)) {
+            throw new IllegalArgumentException("radiusKm must be greater than 0 and at most " + MAX_RADIUS_KM);
+        }
+        Set<Long> available = deliveryAssignmentService.getAssignableAgentIds();
+        long freshAfter = System.currentTimeMillis() - staleMillis;
+
+        // Narrowest cell side in km within the radius; every cell of ring r+1 is at least r of these away.
+        // The floor keeps the ring count bounded near the poles, where cells get very narrow.
+        double maxLatitude = Math.min(89.0, Math.abs(latitude) + radiusKm / KM_PER_DEGREE);
+        double cellKm = CELL_DEGREES * KM_PER_DEGREE * Math.max(0.05, Math.cos(Math.toRadians(maxLatitude)));
+        int maxRing = (int) Math.ceil(radiusKm / cellKm) + 1;
+        long row = cellIndex(latitude);
+        long col = cellIndex(longitude);
+
+        List<Object[]> found = new ArrayList<>();
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (long r = row - ring; r <= row + ring; r++) {
+                boolean edgeRow = r == row - ring || r == row + ring;
+                for (long c = col - ring; c <= col + ring; c += edgeRow || ring == 0 ? 1 : 2L * ring) {
+                    long key = cellKey(r, c);
+                    Set<Long> agents = cells.get(key);
+                    if (agents == null) continue;
+                    for (Long agentId : agents) {
+                        Position p = positions.get(agentId);
+                        // p.cell() != key: the agent moved cells mid-scan and is counted where it is now
+                        if (p == null || p.cell() != key || p.recordedAt() < freshAfter || !available.contains(agentId)) continue;
+                        double distance = distanceKm(latitude, longitude, p.latitude(), p.longitude());
+                        if (distance <= radiusKm) found.add(new Object[] { p, distance });
+                    }
+                }
+            }
+            if (found.size() >= limit) {
+                found.sort(Comparator.comparingDouble(o -> (double) o[1]));
+                if ((double) found.get(limit - 1)[1] <= ring * cellKm) break;
+            }
+        }
+        found.sort(Comparator.comparingDouble(o -> (double) o[1]));
+
+        List<Map<String, Object>> result = new ArrayList<>(Math.min(limit, found.size()));
+        for (Object[] hit : found.subList(0, Math.min(limit, found.size()))) {
+            Position p = (Position) hit[0];
+            Map<String, Object> agent = new LinkedHashMap<>();
+            agent.put("agentId", p.agentId());
+            agent.put("latitude", p.latitude());
+            agent.put("longitude", p.longitude());
+            agent.put("distanceKm", Math.round((double) hit[1] * 1000) / 1000.0);
+            agent.put("updatedAt", toLocal(p.recordedAt()));
+            result.add(agent);
+        }
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${delivery.location.flush-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) return;
+        List<Position> batch = new ArrayList<>(pending.size());
+        for (Position position : pending.values()) {
+            // Only drop the entry if no newer ping replaced it meanwhile
+            if (pending.remove(position.agentId(), position)) batch.add(position);
+        }
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (Position p : batch) {
+            rows.add(new Object[] { p.latitude(), p.longitude(), Timestamp.valueOf(toLocal(p.recordedAt())), p.agentId() });
+        }
+        try {
+            jdbcTemplate.batchUpdate("UPDATE delivery_agents SET latitude = ?, longitude = ?, location_updated_at = ? WHERE id = ?", rows);
+        } catch (RuntimeException e) {
+            for (Position p : batch) pending.putIfAbsent(p.agentId(), p);
+            log.warn("Failed to flush {} agent locations: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private Position index(long agentId, double latitude, double longitude, long recordedAt) {
+        long cell = cellKey(cellIndex(latitude), cellIndex(longitude));
+        return positions.compute(agentId, (id, previous) -> {
+            if (previous == null || previous.cell() != cell) {
+                // Both steps run atomically per cell, so a set is never dropped while another agent joins it
+                if (previous != null) {
+                    cells.computeIfPresent(previous.cell(), (k, agents) -> {
+                        agents.remove(id);
+                        return agents.isEmpty() ? null : agents;
+                    });
+                }
+                cells.compute(cell, (k, agents) -> {
+                    Set<Long> joined = agents != null ? agents : ConcurrentHashMap.newKeySet();
+                    joined.add(id);
+                    return joined;
+                });
+            }
+            return new Position(id, latitude, longitude, recordedAt, cell);
+        });
+    }
+
+    private static long cellIndex(double degrees) {
+        return (long) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static long cellKey(long row, long col) {
+        return (row << 32) | (col & 0xffffffffL);
+    }
+
+    static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    private static LocalDateTime toLocal(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
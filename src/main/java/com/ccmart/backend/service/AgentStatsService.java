@@ -0,0 +1,205 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.dto.AgentWorkload;
+import com.ccmart.backend.dto.DeliveryAgentListing;
+import com.ccmart.backend.model.DeliveryAgent;
+import com.ccmart.backend.model.DeliveryAgentStats;
+import com.ccmart.backend.repository.DeliveryAgentStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-agent workload counters in delivery_agent_stats: open orders, deliveries today and in total, and the
+ * summed assigned -> delivered time. Every transition that gives an agent an order or takes one away calls
+ * in here inside its own transaction, so the counters move with the orders and listings never count rows.
+ * A nightly reconcile recomputes them from the orders table to wash out any drift.
+ */
+@Service
+public class AgentStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(AgentStatsService.class);
+
+    private static final String ASSIGN =
+        "UPDATE delivery_agent_stats SET open_orders = open_orders + ?, last_assigned_at = ? WHERE agent_id = ?";
+    private static final String UNASSIGN =
+        "UPDATE delivery_agent_stats SET open_orders = open_orders - ? WHERE agent_id = ?";
+    private static final String DELIVER =
+        "UPDATE delivery_agent_stats SET open_orders = open_orders - ?, delivered_count = delivered_count + ?, " +
+        "delivery_seconds = delivery_seconds + ?, " +
+        "delivered_today = CASE WHEN stats_day = ? THEN delivered_today + ? ELSE ? END, stats_day = ? WHERE agent_id = ?";
+    private static final String INSERT =
+        "INSERT INTO delivery_agent_stats (agent_id, open_orders, delivered_count, delivery_seconds, delivered_today) " +
+        "VALUES (?, 0, 0, 0, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransaction;
+    private final DeliveryAgentStatsRepository deliveryAgentStatsRepository;
+
+    public AgentStatsService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                             DeliveryAgentStatsRepository deliveryAgentStatsRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        this.newTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.deliveryAgentStatsRepository = deliveryAgentStatsRepository;
+    }
+
+    /*
+     * Agents without a stats row (first start, or created since) get one, and then everything is recomputed once.
+     * Orders delivered before delivered_at existed get their last update time, the closest record there is.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        int backfilled = jdbcTemplate.update("UPDATE orders SET delivered_at = updated_at WHERE status = 'delivered' AND delivered_at IS NULL");
+        if (backfilled > 0) log.info("Backfilled delivered_at for {} delivered orders", backfilled);
+        int created = jdbcTemplate.update("INSERT INTO delivery_agent_stats (agent_id, open_orders, delivered_count, " +
+            "delivery_seconds, delivered_today) SELECT a.id, 0, 0, 0, 0 FROM delivery_agents a " +
+            "WHERE NOT EXISTS (SELECT 1 FROM delivery_agent_stats s WHERE s.agent_id = a.id)");
+        if (created > 0 || backfilled > 0) {
+            reconcile();
+            if (created > 0) log.info("Delivery agent stats initialised for {} agents", created);
+        }
+    }
+
+    // ---------------------------------------------------------------- transitions (caller's transaction)
+
+    public void assigned(Map<Long, Integer> ordersByAgent, LocalDateTime at) {
+        List<Object[]> rows = new ArrayList<>(ordersByAgent.size());
+        new TreeMap<>(ordersByAgent).forEach((agentId, n) -> rows.add(new Object[] { n, Timestamp.valueOf(at), agentId }));
+        apply(ASSIGN, rows);
+    }
+
+    public void unassigned(Map<Long, Integer> ordersByAgent) {
+        List<Object[]> rows = new ArrayList<>(ordersByAgent.size());
+        new TreeMap<>(ordersByAgent).forEach((agentId, n) -> rows.add(new Object[] { n, agentId }));
+        apply(UNASSIGN, rows);
+    }
+
+    /**
+     * Orders leaving the open states (assigned / in delivery) for good: delivered ones count as deliveries with
+     * their assigned -> delivered_at time, cancelled ones just stop counting as open. Called after the
+     * transition has written delivered_at, in the same transaction.
+     */
+    public void closed(Collection<Long> orderIds, boolean delivered) {
+        if (orderIds.isEmpty()) return;
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, long[]> byAgent = new TreeMap<>(); // agentId -> [orders, seconds]
+        namedJdbcTemplate.query("SELECT delivery_agent_id, assigned_at, delivered_at FROM orders WHERE id IN (:ids) AND delivery_agent_id IS NOT NULL",
+            new MapSqlParameterSource("ids", orderIds), (RowCallbackHandler) rs -> {
+                long[] totals = byAgent.computeIfAbsent(rs.getLong(1), k -> new long[2]);
+                totals[0]++;
+                Timestamp assignedAt = rs.getTimestamp(2);
+                Timestamp deliveredAt = rs.getTimestamp(3);
+                LocalDateTime end = deliveredAt != null ? deliveredAt.toLocalDateTime() : now;
+                if (assignedAt != null) totals[1] += Math.max(0, Duration.between(assignedAt.toLocalDateTime(), end).getSeconds());
+            });
+        if (byAgent.isEmpty()) return;
+
+        List<Object[]> rows = new ArrayList<>(byAgent.size());
+        Date today = Date.valueOf(now.toLocalDate());
+        byAgent.forEach((agentId, t) -> rows.add(delivered
+            ? new Object[] { t[0], t[0], t[1], today, t[0], t[0], today, agentId }
+            : new Object[] { t[0], agentId }));
+        apply(delivered ? DELIVER : UNASSIGN, rows);
+    }
+
+    // ---------------------------------------------------------------- reads
+
+    // Each agent with its workload, from one primary-key lookup for the whole list
+    public List<DeliveryAgentListing> withWorkload(Collection<DeliveryAgent> agents) {
+        if (agents.isEmpty()) return List.of();
+        Map<Long, DeliveryAgentStats> stats = new HashMap<>();
+        for (DeliveryAgentStats s : deliveryAgentStatsRepository.findAllById(agents.stream().map(DeliveryAgent::getId).toList())) {
+            stats.put(s.getAgentId(), s);
+        }
+        LocalDate today = LocalDate.now();
+        List<DeliveryAgentListing> listings = new ArrayList<>(agents.size());
+        for (DeliveryAgent agent : agents) {
+            listings.add(new DeliveryAgentListing(agent, AgentWorkload.from(stats.get(agent.getId()), today)));
+        }
+        return listings;
+    }
+
+    public void createFor(Long agentId) {
+        ensureRow(agentId);
+    }
+
+    // ---------------------------------------------------------------- reconcile
+
+    /*
+     * The stats rows are locked before the orders are read: a transition that has changed orders but not yet its
+     * stats row waits for this to commit and then adds its delta on top, and one that already committed is in
+     * the counts, so nothing is lost or counted twice.
+     */
+    @Scheduled(cron = "${delivery.agent-stats.reconcile-cron:0 30 4 * * *}")
+    public void reconcile() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("SELECT agent_id FROM delivery_agent_stats ORDER BY agent_id FOR UPDATE", Long.class);
+            LocalDate today = LocalDate.now();
+            Map<Long, Object[]> values = new TreeMap<>(); // open, delivered, seconds, today, lastAssigned
+            jdbcTemplate.query("SELECT delivery_agent_id, " +
+                    "SUM(CASE WHEN status IN ('assigned', 'in_delivery') THEN 1 ELSE 0 END), " +
+                    "SUM(CASE WHEN status = 'delivered' THEN 1 ELSE 0 END), " +
+                    "SUM(CASE WHEN status = 'delivered' AND assigned_at IS NOT NULL AND delivered_at IS NOT NULL " +
+                    "THEN TIMESTAMPDIFF(SECOND, assigned_at, delivered_at) ELSE 0 END), " +
+                    "SUM(CASE WHEN status = 'delivered' AND delivered_at >= ? THEN 1 ELSE 0 END), " +
+                    "MAX(assigned_at) FROM orders WHERE delivery_agent_id IS NOT NULL GROUP BY delivery_agent_id",
+                (RowCallbackHandler) rs -> values.put(rs.getLong(1), new Object[] {
+                    rs.getInt(2), rs.getLong(3), Math.max(0, rs.getLong(4)), rs.getInt(5), rs.getTimestamp(6) }),
+                Timestamp.valueOf(today.atStartOfDay()));
+
+            jdbcTemplate.update("UPDATE delivery_agent_stats SET open_orders = 0, delivered_count = 0, delivery_seconds = 0, " +
+                "delivered_today = 0, stats_day = NULL, last_assigned_at = NULL");
+            List<Object[]> rows = new ArrayList<>(values.size());
+            values.forEach((agentId, v) -> rows.add(new Object[] { v[0], v[1], v[2], v[3], Date.valueOf(today), v[4], agentId }));
+            jdbcTemplate.batchUpdate("UPDATE delivery_agent_stats SET open_orders = ?, delivered_count = ?, delivery_seconds = ?, " +
+                "delivered_today = ?, stats_day = ?, last_assigned_at = ? WHERE agent_id = ?", rows);
+        });
+    }
+
+    // Update-then-insert: a row that is missing (an agent created a moment ago) is added in its own transaction
+    private void apply(String sql, List<Object[]> rows) {
+        if (rows.isEmpty()) return;
+        int[] counts = jdbcTemplate.batchUpdate(sql, rows);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) continue;
+            Object[] row = rows.get(i);
+            ensureRow((Long) row[row.length - 1]);
+            jdbcTemplate.update(sql, row);
+        }
+    }
+
+    private void ensureRow(Long agentId) {
+        try {
+            newTransaction.executeWithoutResult(status -> jdbcTemplate.update(INSERT, agentId));
+        } catch (DataIntegrityViolationException e) {
+            // Already there
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.model.OrderStatus;
+import com.ccmart.backend.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Automatic delivery-agent assignment. Active, available agents are kept in memory ordered by open-order
+ * load (assigned + in delivery), then by how long ago they were last given an order, so each order in a
+ * batch goes to the least busy agent and ties rotate. A batch reserves its agents in the queue under a short
+ * lock, once its orders are locked, and is then written through OrderLifecycleService outside that lock; if the
+ * write fails the reservation is given back.
+ *
+ * The queue is this instance's view: it is reloaded from the delivery_agent_stats counters on a schedule, so
+ * loads changed by deliveries, cancellations or other instances are picked up, and it is updated at once when an agent
+ * is added, edited or switched on or off. A reload leaves alone the agents changed in memory after it started
+ * reading, since its rows may predate those changes. When an agent goes unavailable, the orders they have not yet
+ * picked up (still "assigned") are handed to other agents.
+ */
+@Service
+public class DeliveryAssignmentService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryAssignmentService.class);
+
+    public static final String NO_AGENT = "No delivery agent available";
+
+    private static final String APPROVED = OrderStatus.APPROVED.value();
+    private static final String ASSIGNED = OrderStatus.ASSIGNED.value();
+    private static final String NOT_APPROVED = "Only approved orders can be assigned";
+
+    private static final String AGENT_LOADS =
+        "SELECT a.id, COALESCE(s.open_orders, 0), s.last_assigned_at " +
+        "FROM delivery_agents a LEFT JOIN delivery_agent_stats s ON s.agent_id = a.id " +
+        "WHERE a.is_active = TRUE AND a.is_available = TRUE";
+
+    private record Slot(long agentId, int load, long lastAssignedMillis) {}
+
+    private static final Comparator<Slot> BY_PRIORITY = Comparator.comparingInt(Slot::load)
+        .thenComparingLong(Slot::lastAssignedMillis)
+        .thenComparingLong(Slot::agentId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderRepository orderRepository;
+    private final OrderLifecycleService orderLifecycleService;
+    private final int maxOpenOrders;
+
+    // Guarded by this
+    private final TreeSet<Slot> queue = new TreeSet<>(BY_PRIORITY);
+    private final Map<Long, Slot> slots = new HashMap<>();
+    private final Map<Long, Long> changedAt = new HashMap<>();
+    private long version;
+    // Ids in the queue, for lock-free membership checks
+    private volatile Set<Long> assignable = Set.of();
+
+    public DeliveryAssignmentService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                     OrderRepository orderRepository, OrderLifecycleService orderLifecycleService,
+                                     @Value("${delivery.assignment.max-open-orders:10}") int maxOpenOrders) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.orderRepository = orderRepository;
+        this.orderLifecycleService = orderLifecycleService;
+        this.maxOpenOrders = maxOpenOrders;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        reload();
+        log.info("Delivery assignment queue loaded ({} agents)", assignable.size());
+    }
+
+    @Scheduled(fixedDelayString = "${delivery.assignment.reload-ms:30000}")
+    public void reload() {
+        long started;
+        synchronized (this) {
+            started = version;
+        }
+        Map<Long, Slot> loaded = new HashMap<>();
+        jdbcTemplate.query(AGENT_LOADS, (RowCallbackHandler) rs -> {
+            Timestamp last = rs.getTimestamp(3);
+            loaded.put(rs.getLong(1), new Slot(rs.getLong(1), rs.getInt(2), last == null ? 0 : last.getTime()));
+        });
+        synchronized (this) {
+            Set<Long> agentIds = new HashSet<>(slots.keySet());
+            agentIds.addAll(loaded.keySet());
+            for (Long agentId : agentIds) {
+                if (changedAt.getOrDefault(agentId, 0L) > started) continue;
+                remove(agentId);
+                Slot slot = loaded.get(agentId);
+                if (slot != null) put(slot);
+            }
+            changedAt.values().removeIf(changed -> changed <= started);
+            assignable = Set.copyOf(slots.keySet());
+        }
+    }
+
+    // Active, available agents as of the last reload or agent change
+    public Set<Long> getAssignableAgentIds() {
+        return assignable;
+    }
+
+    /**
+     * Assign approved orders to agents: the given ids, or when none are given the oldest approved orders, up to
+     * {@link OrderLifecycleService#MAX_BULK_SIZE}. Returns {"assigned": {orderId: agentId}, "skipped": {orderId: reason}}.
+     */
+    public Map<String, Object> assignApproved(Collection<Long> orderIds) {
+        if (orderIds != null && orderIds.size() > OrderLifecycleService.MAX_BULK_SIZE) {
+            throw new IllegalArgumentException("At most " + OrderLifecycleService.MAX_BULK_SIZE + " orders per request");
+        }
+        Map<Long, Long> assigned = new LinkedHashMap<>();
+        Map<Long, String> skipped = new LinkedHashMap<>();
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Object[]> rows = orderIds == null || orderIds.isEmpty()
+                    ? jdbcTemplate.query("SELECT id, user_id, status FROM orders WHERE status = ? ORDER BY id LIMIT ? FOR UPDATE",
+                        (rs, i) -> new Object[] { rs.getLong(1), rs.getObject(2), rs.getString(3) }, APPROVED, OrderLifecycleService.MAX_BULK_SIZE)
+                    : orderRepository.lockStatuses(new TreeSet<>(orderIds));
+                Map<Long, Object[]> found = new HashMap<>();
+                for (Object[] row : rows) found.put(((Number) row[0]).longValue(), row);
+                if (orderIds != null) {
+                    for (Long id : new TreeSet<>(orderIds)) {
+                        if (!found.containsKey(id)) skipped.put(id, OrderLifecycleService.NOT_FOUND);
+                    }
+                }
+
+                // Reserved in the live queue at once, so batches running in parallel see each other's loads
+                synchronized (this) {
+                    long now = System.currentTimeMillis();
+                    for (Object[] row : rows) {
+                        long id = ((Number) row[0]).longValue();
+                        if (!APPROVED.equals(row[2])) {
+                            skipped.put(id, NOT_APPROVED);
+                        } else if (queue.isEmpty() || queue.first().load() >= maxOpenOrders) {
+                            skipped.put(id, NO_AGENT);
+                        } else {
+                            assigned.put(id, take(now).agentId());
+                        }
+                    }
+                    touch(assigned.values());
+                }
+                if (assigned.isEmpty()) return;
+
+                // The rows are locked and were approved, so nothing should be refused; roll the batch back if it is
+                Map<Long, String> refused = orderLifecycleService.assignAll(assigned);
+                if (!refused.isEmpty()) {
+                    throw new IllegalStateException("Expected to assign " + assigned.size() + " orders but " + refused.size() + " were refused");
+                }
+            });
+        } catch (RuntimeException e) {
+            unreserve(assigned);
+            throw e;
+        }
+        committed(assigned);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("assigned", assigned);
+        result.put("skipped", skipped);
+        return result;
+    }
+
+    /**
+     * Re-read one agent after it was created, edited, switched on or off, or given an order by hand. An agent that
+     * is no longer active and available leaves the queue and its not yet picked-up orders go to other agents.
+     * Returns the number of orders moved.
+     */
+    public int agentChanged(Long agentId) {
+        List<Slot> current = jdbcTemplate.query(AGENT_LOADS + " AND a.id = ?", (rs, i) -> {
+            Timestamp last = rs.getTimestamp(3);
+            return new Slot(rs.getLong(1), rs.getInt(2), last == null ? 0 : last.getTime());
+        }, agentId);
+        synchronized (this) {
+            remove(agentId);
+            if (!current.isEmpty()) put(current.get(0));
+            touch(List.of(agentId));
+            assignable = Set.copyOf(slots.keySet());
+        }
+        return current.isEmpty() ? reassignFrom(agentId) : 0;
+    }
+
+    private int reassignFrom(Long agentId) {
+        Map<Long, Long> moved = new TreeMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM orders WHERE delivery_agent_id = ? AND status = ? ORDER BY id FOR UPDATE", Long.class, agentId, ASSIGNED);
+                synchronized (this) {
+                    long now = System.currentTimeMillis();
+                    for (Long id : ids) {
+                        if (queue.isEmpty() || queue.first().load() >= maxOpenOrders) break;
+                        moved.put(id, take(now).agentId());
+                    }
+                    touch(moved.values());
+                }
+                if (moved.isEmpty()) return;
+                int updated = orderLifecycleService.reassign(agentId, moved);
+                if (updated != moved.size()) {
+                    // The rows are locked, so this only happens if something bypassed the lock; roll the batch back
+                    throw new IllegalStateException("Expected to move " + moved.size() + " orders but updated " + updated);
+                }
+            });
+        } catch (RuntimeException e) {
+            unreserve(moved);
+            throw e;
+        }
+        committed(moved);
+        if (!moved.isEmpty()) {
+            log.info("Moved {} assigned orders off unavailable delivery agent {}", moved.size(), agentId);
+        }
+        return moved.size();
+    }
+
+    // Least loaded agent, re-queued with one more order; caller holds the monitor
+    private Slot take(long now) {
+        Slot next = queue.pollFirst();
+        Slot updated = new Slot(next.agentId(), next.load() + 1, now);
+        put(updated);
+        return next;
+    }
+
+    // The write failed: give the reserved orders back to their agents
+    private synchronized void unreserve(Map<Long, Long> agentByOrder) {
+        countByAgent(agentByOrder).forEach((agentId, count) -> {
+            Slot slot = slots.get(agentId);
+            if (slot == null) return;
+            remove(agentId);
+            put(new Slot(agentId, Math.max(0, slot.load() - count), slot.lastAssignedMillis()));
+        });
+        touch(agentByOrder.values());
+    }
+
+    // Marked again on commit, so a reload that read the counters before the commit does not undo the reservation
+    private synchronized void committed(Map<Long, Long> agentByOrder) {
+        touch(agentByOrder.values());
+    }
+
+    // Caller holds the monitor
+    private void touch(Collection<Long> agentIds) {
+        if (agentIds.isEmpty()) return;
+        version++;
+        for (Long agentId : agentIds) changedAt.put(agentId, version);
+    }
+
+    private static Map<Long, Integer> countByAgent(Map<Long, Long> agentByOrder) {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Long agentId : agentByOrder.values()) counts.merge(agentId, 1, Integer::sum);
+        return counts;
+    }
+
+    private void put(Slot slot) {
+        queue.add(slot);
+        slots.put(slot.agentId(), slot);
+    }
+
+    private void remove(Long agentId) {
+        Slot slot = slots.remove(agentId);
+        if (slot != null) queue.remove(slot);
+    }
+}
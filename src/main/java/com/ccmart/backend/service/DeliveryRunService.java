@@ -0,0 +1,359 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.model.DeliveryAgent;
+import com.ccmart.backend.model.DeliveryRun;
+import com.ccmart.backend.model.DeliveryRunStop;
+import com.ccmart.backend.model.OrderStatus;
+import com.ccmart.backend.repository.DeliveryRunRepository;
+import com.ccmart.backend.repository.DeliveryRunStopRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Groups approved orders into delivery runs: one group per normalized address area and delivery slot
+ * (date + time window), split into runs of at most maxStops. Stops with coordinates are ordered from the
+ * depot by nearest neighbour and then improved with 2-opt; stops without coordinates follow in address
+ * order. A run is assigned to one agent through OrderLifecycleService, with a single UPDATE for all its orders.
+ */
+@Service
+public class DeliveryRunService {
+
+    // Orders considered per planning call
+    private static final int MAX_PLANNED_ORDERS = 5000;
+    private static final int MAX_2OPT_PASSES = 50;
+    private static final String APPROVED = OrderStatus.APPROVED.value();
+
+    private static final String UNPLANNED =
+        "SELECT o.id, o.delivery_address, o.delivery_date, o.delivery_time, o.delivery_latitude, o.delivery_longitude " +
+        "FROM orders o WHERE o.status = ? AND NOT EXISTS (SELECT 1 FROM delivery_run_stops s WHERE s.order_id = o.id)";
+
+    private record Stop(long orderId, String address, Double latitude, Double longitude) {
+        boolean located() {
+            return latitude != null && longitude != null;
+        }
+    }
+
+    private record Slot(String area, LocalDate date, String time) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final DeliveryRunRepository deliveryRunRepository;
+    private final DeliveryRunStopRepository deliveryRunStopRepository;
+    private final OrderLifecycleService orderLifecycleService;
+    private final int maxStops;
+    private final double depotLatitude;
+    private final double depotLongitude;
+
+    public DeliveryRunService(JdbcTemplate jdbcTemplate, DeliveryRunRepository deliveryRunRepository,
+                              DeliveryRunStopRepository deliveryRunStopRepository,
+                              OrderLifecycleService orderLifecycleService,
+                              @Value("${delivery.runs.max-stops:12}") int maxStops,
+                              @Value("${delivery.depot.latitude:6.9271}") double depotLatitude,
+                              @Value("${delivery.depot.longitude:79.8612}") double depotLongitude) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.deliveryRunRepository = deliveryRunRepository;
+        this.deliveryRunStopRepository = deliveryRunStopRepository;
+        this.orderLifecycleService = orderLifecycleService;
+        this.maxStops = Math.max(1, maxStops);
+        this.depotLatitude = depotLatitude;
+        this.depotLongitude = depotLongitude;
+    }
+
+    /**
+     * Plan runs for the approved orders that are not in a run yet, optionally only those for one delivery date.
+     * Returns the new runs with their stops.
+     */
+    @Transactional
+    public List<Map<String, Object>> planRuns(LocalDate date) {
+        List<Object> args = new ArrayList<>();
+        args.add(APPROVED);
+        String sql = UNPLANNED;
+        if (date != null) {
+            sql += " AND o.delivery_date >= ? AND o.delivery_date < ?";
+            args.add(Timestamp.valueOf(date.atStartOfDay()));
+            args.add(Timestamp.valueOf(date.plusDays(1).atStartOfDay()));
+        }
+        sql += " ORDER BY o.id LIMIT " + MAX_PLANNED_ORDERS;
+
+        Map<Slot, List<Stop>> groups = new TreeMap<>(Comparator.comparing(Slot::area)
+            .thenComparing(Slot::date, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Slot::time));
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            Timestamp day = rs.getTimestamp(3);
+            Slot slot = new Slot(areaOf(rs.getString(2)), day == null ? null : day.toLocalDateTime().toLocalDate(), slotOf(rs.getString(4)));
+            groups.computeIfAbsent(slot, k -> new ArrayList<>()).add(new Stop(rs.getLong(1), rs.getString(2),
+                rs.getObject(5, Double.class), rs.getObject(6, Double.class)));
+        }, args.toArray());
+
+        List<Map<String, Object>> planned = new ArrayList<>();
+        for (Map.Entry<Slot, List<Stop>> group : groups.entrySet()) {
+            // One nearest-neighbour tour over the whole group, cut into runs, each run then tightened with 2-opt
+            List<Stop> tour = nearestNeighbour(group.getValue());
+            for (int from = 0; from < tour.size(); from += maxStops) {
+                List<Stop> stops = twoOpt(new ArrayList<>(tour.subList(from, Math.min(tour.size(), from + maxStops))));
+                planned.add(saveRun(group.getKey(), stops));
+            }
+        }
+        return planned;
+    }
+
+    public List<Map<String, Object>> listRuns(String status) {
+        List<DeliveryRun> runs = deliveryRunRepository.findByStatusOrderByDeliveryDateAscIdAsc(status);
+        if (runs.isEmpty()) return List.of();
+        Map<Long, List<DeliveryRunStop>> stopsByRun = new HashMap<>();
+        for (DeliveryRunStop stop : deliveryRunStopRepository.findByRunIdInOrderByRunIdAscStopSequenceAsc(
+                runs.stream().map(DeliveryRun::getId).toList())) {
+            stopsByRun.computeIfAbsent(stop.getRunId(), k -> new ArrayList<>()).add(stop);
+        }
+        Map<Long, Stop> orders = new HashMap<>();
+        List<Long> orderIds = stopsByRun.values().stream().flatMap(List::stream).map(DeliveryRunStop::getOrderId).toList();
+        if (!orderIds.isEmpty()) {
+            namedJdbcTemplate.query("SELECT id, delivery_address, delivery_latitude, delivery_longitude FROM orders WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", orderIds), (RowCallbackHandler) rs -> orders.put(rs.getLong(1),
+                    new Stop(rs.getLong(1), rs.getString(2), rs.getObject(3, Double.class), rs.getObject(4, Double.class))));
+        }
+        List<Map<String, Object>> result = new ArrayList<>(runs.size());
+        for (DeliveryRun run : runs) {
+            List<Stop> stops = new ArrayList<>();
+            for (DeliveryRunStop s : stopsByRun.getOrDefault(run.getId(), List.of())) {
+                Stop stop = orders.get(s.getOrderId());
+                stops.add(stop != null ? stop : new Stop(s.getOrderId(), null, null, null));
+            }
+            result.add(toMap(run, stops));
+        }
+        return result;
+    }
+
+    /**
+     * Assign every order of a planned run to one agent with one UPDATE. Orders that were cancelled or assigned
+     * separately since planning are skipped. Returns {"run", "assigned": [ids], "skipped": [ids]}.
+     */
+    @Transactional
+    public Map<String, Object> assignRun(Long runId, DeliveryAgent agent) {
+        DeliveryRun run = deliveryRunRepository.findForUpdate(runId)
+            .orElseThrow(() -> new IllegalArgumentException("Delivery run not found"));
+        if (!DeliveryRun.PLANNED.equals(run.getStatus())) {
+            throw new IllegalArgumentException("Only planned runs can be assigned");
+        }
+        List<Long> orderIds = deliveryRunStopRepository.findByRunIdInOrderByRunIdAscStopSequenceAsc(List.of(runId))
+            .stream().map(DeliveryRunStop::getOrderId).toList();
+
+        Map<Long, Long> agentByOrder = new LinkedHashMap<>();
+        for (Long id : orderIds) agentByOrder.put(id, agent.getId());
+        Map<Long, String> refused = orderLifecycleService.assignAll(agentByOrder);
+        List<Long> assigned = new ArrayList<>();
+        List<Long> skipped = new ArrayList<>();
+        for (Long id : orderIds) (refused.containsKey(id) ? skipped : assigned).add(id);
+        if (assigned.isEmpty()) {
+            throw new IllegalArgumentException("None of the run's orders can be assigned any more");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        DeliveryRun current = deliveryRunRepository.findById(runId).orElse(run);
+        current.setStatus(DeliveryRun.ASSIGNED);
+        current.setDeliveryAgentId(agent.getId());
+        current.setAssignedAt(now);
+        deliveryRunRepository.save(current);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("run", current.getId());
+        result.put("agentId", agent.getId());
+        result.put("assigned", assigned);
+        result.put("skipped", skipped);
+        return result;
+    }
+
+    // Dissolve a planned run; its orders can be planned again
+    @Transactional
+    public void cancelRun(Long runId) {
+        DeliveryRun run = deliveryRunRepository.findForUpdate(runId)
+            .orElseThrow(() -> new IllegalArgumentException("Delivery run not found"));
+        if (!DeliveryRun.PLANNED.equals(run.getStatus())) {
+            throw new IllegalArgumentException("Only planned runs can be cancelled");
+        }
+        deliveryRunStopRepository.deleteByRunId(runId);
+        run.setStatus(DeliveryRun.CANCELLED);
+        deliveryRunRepository.save(run);
+    }
+
+    private Map<String, Object> saveRun(Slot slot, List<Stop> stops) {
+        DeliveryRun run = new DeliveryRun();
+        run.setArea(slot.area());
+        run.setDeliveryDate(slot.date());
+        run.setDeliveryTime(slot.time());
+        run.setStopCount(stops.size());
+        run.setDistanceKm(routeKm(stops));
+        run = deliveryRunRepository.save(run);
+        List<DeliveryRunStop> rows = new ArrayList<>(stops.size());
+        for (int i = 0; i < stops.size(); i++) {
+            rows.add(new DeliveryRunStop(run.getId(), stops.get(i).orderId(), i + 1));
+        }
+        deliveryRunStopRepository.saveAll(rows);
+        return toMap(run, stops);
+    }
+
+    // Located stops by nearest neighbour from the depot, then the rest by address
+    private List<Stop> nearestNeighbour(List<Stop> stops) {
+        List<Stop> remaining = new ArrayList<>();
+        List<Stop> unlocated = new ArrayList<>();
+        for (Stop stop : stops) (stop.located() ? remaining : unlocated).add(stop);
+
+        List<Stop> tour = new ArrayList<>(stops.size());
+        double lat = depotLatitude;
+        double lng = depotLongitude;
+        while (!remaining.isEmpty()) {
+            int best = 0;
+            double bestKm = Double.MAX_VALUE;
+            for (int i = 0; i < remaining.size(); i++) {
+                Stop s = remaining.get(i);
+                double km = AgentLocationService.distanceKm(lat, lng, s.latitude(), s.longitude());
+                if (km < bestKm) {
+                    bestKm = km;
+                    best = i;
+                }
+            }
+            // Swap-remove keeps this O(n^2) overall
+            Stop next = remaining.get(best);
+            remaining.set(best, remaining.get(remaining.size() - 1));
+            remaining.remove(remaining.size() - 1);
+            tour.add(next);
+            lat = next.latitude();
+            lng = next.longitude();
+        }
+        unlocated.sort(Comparator.comparing(s -> Objects.toString(s.address(), "")));
+        tour.addAll(unlocated);
+        return tour;
+    }
+
+    // 2-opt on the open path depot -> located stops: reverse any segment that shortens it, until none does
+    private List<Stop> twoOpt(List<Stop> stops) {
+        int n = 0;
+        while (n < stops.size() && stops.get(n).located()) n++;
+        if (n < 3) return stops;
+
+        // Point 0 is the depot, points 1..n the located stops
+        double[][] d = new double[n + 1][n + 1];
+        for (int i = 0; i <= n; i++) {
+            for (int j = i + 1; j <= n; j++) {
+                double km = AgentLocationService.distanceKm(latOf(stops, i), lngOf(stops, i), latOf(stops, j), lngOf(stops, j));
+                d[i][j] = km;
+                d[j][i] = km;
+            }
+        }
+        int[] path = new int[n + 1];
+        for (int i = 0; i <= n; i++) path[i] = i;
+
+        boolean improved = true;
+        for (int pass = 0; improved && pass < MAX_2OPT_PASSES; pass++) {
+            improved = false;
+            for (int i = 1; i < n; i++) {
+                for (int j = i + 1; j <= n; j++) {
+                    // Edges (i-1, i) and (j, j+1) become (i-1, j) and (i, j+1); the path end has no j+1
+                    double before = d[path[i - 1]][path[i]] + (j < n ? d[path[j]][path[j + 1]] : 0);
+                    double after = d[path[i - 1]][path[j]] + (j < n ? d[path[i]][path[j + 1]] : 0);
+                    if (after < before - 1e-9) {
+                        for (int a = i, b = j; a < b; a++, b--) {
+                            int t = path[a];
+                            path[a] = path[b];
+                            path[b] = t;
+                        }
+                        improved = true;
+                    }
+                }
+            }
+        }
+        List<Stop> ordered = new ArrayList<>(stops.size());
+        for (int i = 1; i <= n; i++) ordered.add(stops.get(path[i] - 1));
+        ordered.addAll(stops.subList(n, stops.size()));
+        return ordered;
+    }
+
+    private double latOf(List<Stop> stops, int point) {
+        return point == 0 ? depotLatitude : stops.get(point - 1).latitude();
+    }
+
+    private double lngOf(List<Stop> stops, int point) {
+        return point == 0 ? depotLongitude : stops.get(point - 1).longitude();
+    }
+
+    private Double routeKm(List<Stop> stops) {
+        double km = 0;
+        double lat = depotLatitude;
+        double lng = depotLongitude;
+        boolean any = false;
+        for (Stop s : stops) {
+            if (!s.located()) continue;
+            km += AgentLocationService.distanceKm(lat, lng, s.latitude(), s.longitude());
+            lat = s.latitude();
+            lng = s.longitude();
+            any = true;
+        }
+        return any ? Math.round(km * 100) / 100.0 : null;
+    }
+
+    private static Map<String, Object> toMap(DeliveryRun run, List<Stop> stops) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", run.getId());
+        map.put("area", run.getArea());
+        map.put("deliveryDate", run.getDeliveryDate());
+        map.put("deliveryTime", run.getDeliveryTime());
+        map.put("status", run.getStatus());
+        map.put("deliveryAgentId", run.getDeliveryAgentId());
+        map.put("distanceKm", run.getDistanceKm());
+        List<Map<String, Object>> stopList = new ArrayList<>(stops.size());
+        for (int i = 0; i < stops.size(); i++) {
+            Stop s = stops.get(i);
+            Map<String, Object> stop = new LinkedHashMap<>();
+            stop.put("sequence", i + 1);
+            stop.put("orderId", s.orderId());
+            stop.put("deliveryAddress", s.address());
+            stop.put("latitude", s.latitude());
+            stop.put("longitude", s.longitude());
+            stopList.add(stop);
+        }
+        map.put("stops", stopList);
+        return map;
+    }
+
+    /**
+     * Area of a free-text address: the last comma-separated part that is not just a number or postcode,
+     * lowercased with punctuation dropped and leading zeros removed ("No 5, Galle Rd, Colombo 03" -> "colombo 3").
+     */
+    static String areaOf(String address) {
+        if (address == null) return "unknown";
+        String[] parts = address.toLowerCase(Locale.ROOT).split("[,\\n]");
+        for (int i = parts.length - 1; i >= 0; i--) {
+            String part = parts[i].replaceAll("[^\\p{L}\\p{N} ]", " ").replaceAll("\\s+", " ").trim();
+            if (part.isEmpty() || part.matches("[\\d ]+")) continue;
+            part = part.replaceAll("\\b0+(\\d)", "$1");
+            return part.length() > 120 ? part.substring(0, 120) : part;
+        }
+        return "unknown";
+    }
+
+    // "10:00 AM - 12:00 PM" and "10:00 am-12:00 pm" are the same slot
+    static String slotOf(String deliveryTime) {
+        if (deliveryTime == null || deliveryTime.isBlank()) return "any";
+        String slot = deliveryTime.toLowerCase(Locale.ROOT).replaceAll("\\s*-\\s*", "-").replaceAll("\\s+", " ").trim();
+        return slot.length() > 60 ? slot.substring(0, 60) : slot;
+    }
+}
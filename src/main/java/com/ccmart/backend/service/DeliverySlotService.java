@@ -0,0 +1,326 @@
+package com.ccmart.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Delivery slot capacity. Each configured window on each day is a delivery_slots row with a capacity and a
+ * reserved count; checkout takes a place with one conditional UPDATE (reserved < capacity) inside the order's
+ * transaction, and cancellation gives it back, so the database count is exact across instances.
+ *
+ * Availability is served from an in-memory copy of the upcoming days: adjusted after each commit on this
+ * instance and reloaded on a schedule to pick up other instances.
+ */
+@Service
+public class DeliverySlotService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliverySlotService.class);
+
+    // First time of day in a free-text window: "10:00-12:00", "10 AM - 12 PM", "10.30am"
+    private static final Pattern TIME = Pattern.compile("(\\d{1,2})(?:[:.](\\d{2}))?\\s*(a\\.?m\\.?|p\\.?m\\.?)?",
+        Pattern.CASE_INSENSITIVE);
+
+    private static final String TAKE =
+        "UPDATE delivery_slots SET reserved = reserved + 1 WHERE id = ? AND reserved < capacity";
+    private static final String GIVE_BACK =
+        "UPDATE delivery_slots SET reserved = CASE WHEN reserved >= ? THEN reserved - ? ELSE 0 END WHERE id = ?";
+    private static final String INSERT =
+        "INSERT INTO delivery_slots (slot_date, slot_window, capacity, reserved) VALUES (?, ?, ?, 0)";
+    private static final String SELECT_ID =
+        "SELECT id FROM delivery_slots WHERE slot_date = ? AND slot_window = ?";
+
+    public record Window(LocalTime start, LocalTime end, String label) {}
+
+    // Slot id and the normalized window label to store on the order
+    public record Reservation(Long slotId, String window) {}
+
+    private static final class SlotState {
+        final long id;
+        final LocalDate date;
+        final String window;
+        volatile int capacity;
+        final AtomicInteger reserved;
+
+        SlotState(long id, LocalDate date, String window, int capacity, int reserved) {
+            this.id = id;
+            this.date = date;
+            this.window = window;
+            this.capacity = capacity;
+            this.reserved = new AtomicInteger(reserved);
+        }
+    }
+
+    private record Mirror(Map<String, SlotState> byKey, Map<Long, SlotState> byId) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate newTransaction;
+    private final List<Window> windows;
+    private final int defaultCapacity;
+    private final int daysAhead;
+    private final boolean strictWindows;
+    private volatile Mirror mirror = new Mirror(Map.of(), Map.of());
+
+    public DeliverySlotService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                               @Value("${delivery.slots.windows:08:00-10:00,10:00-12:00,12:00-14:00,14:00-16:00,16:00-18:00,18:00-20:00}") String windows,
+                               @Value("${delivery.slots.capacity:20}") int defaultCapacity,
+                               @Value("${delivery.slots.days-ahead:7}") int daysAhead,
+                               @Value("${delivery.slots.strict-windows:false}") boolean strictWindows) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.newTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.windows = parseWindows(windows);
+        this.defaultCapacity = defaultCapacity;
+        this.daysAhead = daysAhead;
+        this.strictWindows = strictWindows;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        createUpcoming();
+        log.info("Delivery slots ready ({} windows a day, {} days ahead)", windows.size(), daysAhead);
+    }
+
+    // Rows for the bookable days exist before the first checkout of the day needs them
+    @Scheduled(cron = "${delivery.slots.create-cron:0 5 0 * * *}")
+    public void createUpcoming() {
+        LocalDate today = LocalDate.now();
+        Set<String> existing = new HashSet<>();
+        jdbcTemplate.query("SELECT slot_date, slot_window FROM delivery_slots WHERE slot_date >= ? AND slot_date <= ?",
+            (RowCallbackHandler) rs -> existing.add(key(rs.getDate(1).toLocalDate(), rs.getString(2))),
+            Date.valueOf(today), Date.valueOf(today.plusDays(daysAhead)));
+        for (LocalDate day = today; !day.isAfter(today.plusDays(daysAhead)); day = day.plusDays(1)) {
+            for (Window window : windows) {
+                if (!existing.contains(key(day, window.label()))) ensureRow(day, window.label());
+            }
+        }
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${delivery.slots.refresh-ms:10000}")
+    public void reload() {
+        LocalDate today = LocalDate.now();
+        Map<String, SlotState> byKey = new HashMap<>();
+        Map<Long, SlotState> byId = new HashMap<>();
+        jdbcTemplate.query("SELECT id, slot_date, slot_window, capacity, reserved FROM delivery_slots WHERE slot_date >= ? AND slot_date <= ?",
+            (RowCallbackHandler) rs -> {
+                SlotState state = new SlotState(rs.getLong(1), rs.getDate(2).toLocalDate(), rs.getString(3), rs.getInt(4), rs.getInt(5));
+                byKey.put(key(state.date, state.window), state);
+                byId.put(state.id, state);
+            }, Date.valueOf(today), Date.valueOf(today.plusDays(daysAhead)));
+        mirror = new Mirror(byKey, byId);
+    }
+
+    /**
+     * Take a place in the slot of the order's delivery date and time. Must run inside the order's transaction.
+     * Returns null when the order names no slot, otherwise the slot id and normalized window. A delivery time
+     * that starts on no configured window also returns null (the order is taken without a slot) unless
+     * delivery.slots.strict-windows is set, in which case it is rejected like the errors below.
+     * Throws IllegalArgumentException for a date outside the bookable days or a full slot.
+     */
+    public Reservation reserve(LocalDateTime deliveryDate, String deliveryTime) {
+        if (deliveryDate == null || deliveryTime == null || deliveryTime.isBlank()) return null;
+        LocalDate day = deliveryDate.toLocalDate();
+        Window window = strictWindows ? windowOf(deliveryTime) : findWindow(deliveryTime);
+        if (window == null) {
+            log.debug("Delivery time '{}' matches no configured window; order taken without a slot", deliveryTime);
+            return null;
+        }
+        LocalDate today = LocalDate.now();
+        if (day.isBefore(today) || day.isAfter(today.plusDays(daysAhead))) {
+            throw new IllegalArgumentException("Delivery date must be within the next " + daysAhead + " days");
+        }
+        if (day.equals(today) && !window.end().isAfter(LocalTime.now())) {
+            throw new IllegalArgumentException("The " + window.label() + " delivery slot today has already passed");
+        }
+
+        long slotId = slotId(day, window.label());
+        // The only locking statement: a full slot keeps the row lock until the order rolls back, so nothing
+        // that could wait on it (such as ensureRow's separate transaction) may run after this
+        if (jdbcTemplate.update(TAKE, slotId) == 0) {
+            throw new IllegalArgumentException("The " + window.label() + " delivery slot on " + day + " is full");
+        }
+        afterCommit(() -> {
+            SlotState s = mirror.byId().get(slotId);
+            if (s != null) s.reserved.incrementAndGet();
+        });
+        return new Reservation(slotId, window.label());
+    }
+
+    // Give back the places of these orders (being cancelled, in the caller's transaction)
+    public void release(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) return;
+        Map<Long, Integer> counts = new LinkedHashMap<>();
+        namedJdbcTemplate.query("SELECT delivery_slot_id, COUNT(*) FROM orders WHERE id IN (:ids) AND delivery_slot_id IS NOT NULL " +
+                "GROUP BY delivery_slot_id ORDER BY delivery_slot_id", new MapSqlParameterSource("ids", orderIds),
+            (RowCallbackHandler) rs -> counts.put(rs.getLong(1), rs.getInt(2)));
+        if (counts.isEmpty()) return;
+        List<Object[]> rows = new ArrayList<>(counts.size());
+        counts.forEach((id, n) -> rows.add(new Object[] { n, n, id }));
+        jdbcTemplate.batchUpdate(GIVE_BACK, rows);
+        afterCommit(() -> counts.forEach((id, n) -> {
+            SlotState s = mirror.byId().get(id);
+            if (s != null) s.reserved.updateAndGet(r -> Math.max(0, r - n));
+        }));
+    }
+
+    // Change one slot's capacity; lowering it below the current reservations only stops new bookings
+    public void setCapacity(LocalDate day, String deliveryTime, int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("Capacity must not be negative");
+        Window window = windowOf(deliveryTime);
+        ensureRow(day, window.label());
+        jdbcTemplate.update("UPDATE delivery_slots SET capacity = ? WHERE slot_date = ? AND slot_window = ?",
+            capacity, Date.valueOf(day), window.label());
+        SlotState state = mirror.byKey().get(key(day, window.label()));
+        if (state != null) state.capacity = capacity;
+    }
+
+    /**
+     * Availability per day and window from memory: {date, slots: [{window, capacity, reserved, available, open}]}.
+     */
+    public List<Map<String, Object>> getAvailability(LocalDate from, int days) {
+        LocalDate today = LocalDate.now();
+        LocalDate start = from == null || from.isBefore(today) ? today : from;
+        LocalDate last = today.plusDays(daysAhead);
+        LocalTime now = LocalTime.now();
+        Mirror current = mirror;
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (LocalDate day = start; !day.isAfter(last) && result.size() < Math.max(1, days); day = day.plusDays(1)) {
+            List<Map<String, Object>> slots = new ArrayList<>(windows.size());
+            for (Window window : windows) {
+                SlotState state = current.byKey().get(key(day, window.label()));
+                int capacity = state != null ? state.capacity : defaultCapacity;
+                int reserved = state != null ? state.reserved.get() : 0;
+                boolean open = !day.equals(today) || window.end().isAfter(now);
+                Map<String, Object> slot = new LinkedHashMap<>();
+                slot.put("window", window.label());
+                slot.put("capacity", capacity);
+                slot.put("reserved", reserved);
+                slot.put("available", open ? Math.max(0, capacity - reserved) : 0);
+                slot.put("open", open);
+                slots.add(slot);
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("date", day);
+            entry.put("slots", slots);
+            result.add(entry);
+        }
+        return result;
+    }
+
+    public List<Window> getWindows() {
+        return windows;
+    }
+
+    // Configured window whose start matches the first time in the text
+    Window windowOf(String deliveryTime) {
+        Window window = findWindow(deliveryTime);
+        if (window != null) return window;
+        throw new IllegalArgumentException("Unknown delivery time slot: " + deliveryTime + ". Available: " +
+            String.join(", ", windows.stream().map(Window::label).toList()));
+    }
+
+    // Null when the text names no time or no configured window starts at it
+    Window findWindow(String deliveryTime) {
+        LocalTime start = firstTime(deliveryTime);
+        for (Window window : windows) {
+            if (window.start().equals(start)) return window;
+        }
+        return null;
+    }
+
+    /**
+     * Id of the slot row, created first if missing. Runs before reserve locks anything: the lookup and insert
+     * use their own transaction, which also sees a row committed after the caller's snapshot was taken.
+     */
+    private long slotId(LocalDate day, String window) {
+        SlotState state = mirror.byKey().get(key(day, window));
+        if (state != null) return state.id;
+        ensureRow(day, window);
+        Long id = newTransaction.execute(status -> jdbcTemplate.queryForObject(SELECT_ID, Long.class, Date.valueOf(day), window));
+        if (id == null) throw new IllegalStateException("Delivery slot row missing for " + key(day, window));
+        return id;
+    }
+
+    // Inserted in its own transaction so a concurrent insert of the same row cannot fail the order
+    private void ensureRow(LocalDate day, String window) {
+        try {
+            newTransaction.executeWithoutResult(status -> jdbcTemplate.update(INSERT, Date.valueOf(day), window, defaultCapacity));
+        } catch (DataIntegrityViolationException e) {
+            // Created by someone else
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static LocalTime firstTime(String text) {
+        Matcher m = TIME.matcher(text == null ? "" : text.trim());
+        if (!m.find()) return null;
+        int hour = Integer.parseInt(m.group(1));
+        int minute = m.group(2) != null ? Integer.parseInt(m.group(2)) : 0;
+        String meridiem = m.group(3) == null ? null : m.group(3).toLowerCase(Locale.ROOT);
+        if (meridiem != null && meridiem.startsWith("p") && hour < 12) hour += 12;
+        if (meridiem != null && meridiem.startsWith("a") && hour == 12) hour = 0;
+        if (hour > 23 || minute > 59) return null;
+        return LocalTime.of(hour, minute);
+    }
+
+    private static List<Window> parseWindows(String config) {
+        List<Window> parsed = new ArrayList<>();
+        for (String part : config.split(",")) {
+            String[] bounds = part.trim().split("-");
+            if (bounds.length != 2) throw new IllegalStateException("Bad delivery.slots.windows entry: " + part);
+            LocalTime start = LocalTime.parse(bounds[0].trim());
+            LocalTime end = LocalTime.parse(bounds[1].trim());
+            parsed.add(new Window(start, end, start + "-" + end));
+        }
+        return List.copyOf(parsed);
+    }
+
+    private static String key(LocalDate day, String window) {
+        return day + "|" + window;
+    }
+}
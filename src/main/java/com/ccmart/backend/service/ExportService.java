@@ -0,0 +1,111 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.dto.OrderExportRow;
+import com.ccmart.backend.dto.ProductExportRow;
+import com.ccmart.backend.repository.OrderRepository;
+import com.ccmart.backend.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Writes catalog and order exports row by row from forward-only repository streams, so memory use
+ * does not depend on table size. Rows are JPQL projections, so nothing accumulates in the persistence context.
+ */
+@Service
+public class ExportService {
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+
+    public ExportService(ProductRepository productRepository, OrderRepository orderRepository,
+                         TransactionTemplate transactionTemplate, ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        this.orderRepository = orderRepository;
+        this.objectMapper = objectMapper;
+        // Repository streams need an open transaction (and connection) for as long as they are read
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public long exportProducts(OutputStream out, String format) {
+        return readOnlyTransaction.execute(status -> {
+            try (Stream<ProductExportRow> rows = productRepository.streamExportRows()) {
+                return write(rows, out, format, ProductExportRow.COLUMNS, ProductExportRow::values);
+            }
+        });
+    }
+
+    public long exportOrders(OutputStream out, String format, String orderStatus, LocalDateTime from, LocalDateTime to) {
+        return readOnlyTransaction.execute(status -> {
+            try (Stream<OrderExportRow> rows = orderRepository.streamExportRows(orderStatus, from, to)) {
+                return write(rows, out, format, OrderExportRow.COLUMNS, OrderExportRow::values);
+            }
+        });
+    }
+
+    // Returns the number of rows written. The caller owns (and closes) the output stream.
+    private <T> long write(Stream<T> rows, OutputStream out, String format, String[] columns, Function<T, Object[]> values) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        long[] count = { 0 };
+        try {
+            if (CSV.equals(format)) {
+                writeCsvLine(writer, columns);
+            }
+            rows.forEach(row -> {
+                try {
+                    if (CSV.equals(format)) {
+                        writeCsvLine(writer, values.apply(row));
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(row));
+                        writer.write('\n');
+                    }
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count[0];
+    }
+
+    private static void writeCsvLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) writer.write(',');
+            writer.write(csvField(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    // RFC 4180 quoting; only fields that need it are quoted
+    static String csvField(Object value) {
+        if (value == null) return "";
+        String text = value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+}
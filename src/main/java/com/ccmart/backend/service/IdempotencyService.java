@@ -0,0 +1,218 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.cache.BoundedCache;
+import com.ccmart.backend.model.IdempotencyRecord;
+import com.ccmart.backend.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key handling for POST endpoints that must not run twice (order creation).
+ *
+ * A key is claimed by inserting its idempotency_keys row before the request runs; the unique (user, key)
+ * constraint makes the claim exclusive across instances. The request and the completion of the row commit
+ * in one transaction, so a stored response always belongs to a committed order. Retries with the same key
+ * get that response back without running the request again. Completed rows are also kept in a bounded
+ * in-memory cache, and duplicates arriving on this instance while the first is still running wait for its
+ * result instead of failing.
+ *
+ * Only successful responses are remembered; after a 4xx/5xx the key is free again so the client can retry.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate claimTransaction;
+    private final BoundedCache<String, IdempotencyRecord> completed;
+    private final ConcurrentHashMap<String, CompletableFuture<ResponseEntity<?>>> inFlight = new ConcurrentHashMap<>();
+    private final long retentionHours;
+    private final long waitSeconds;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository, ObjectMapper objectMapper,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${orders.idempotency.retention-hours:24}") long retentionHours,
+                              @Value("${orders.idempotency.cache-size:10000}") int cacheSize,
+                              @Value("${orders.idempotency.wait-seconds:30}") long waitSeconds) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        // The claim has to be visible to other requests before the order transaction starts
+        this.claimTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.claimTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.completed = new BoundedCache<>("idempotency", cacheSize, retentionHours * 3600);
+        this.retentionHours = retentionHours;
+        this.waitSeconds = waitSeconds;
+    }
+
+    public static boolean isValidKey(String key) {
+        return key != null && !key.isBlank() && key.length() <= MAX_KEY_LENGTH;
+    }
+
+    /**
+     * Run {@code action} once per (user, key). {@code request} is the deserialized request body; a retry whose
+     * body differs from the first one is answered with 422 rather than the stored response.
+     */
+    public ResponseEntity<?> execute(Long userId, String key, Object request, Supplier<ResponseEntity<?>> action) {
+        String cacheKey = userId + ":" + key;
+        String requestHash = hash(request);
+
+        IdempotencyRecord done = findCompleted(cacheKey, userId, key);
+        if (done != null) return replay(done, requestHash);
+
+        CompletableFuture<ResponseEntity<?>> mine = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<?>> running = inFlight.putIfAbsent(cacheKey, mine);
+        if (running != null) {
+            return awaitRunning(running, cacheKey, userId, key, requestHash);
+        }
+        try {
+            ResponseEntity<?> response = claimAndRun(cacheKey, userId, key, requestHash, action);
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    private ResponseEntity<?> claimAndRun(String cacheKey, Long userId, String key, String requestHash,
+                                          Supplier<ResponseEntity<?>> action) {
+        IdempotencyRecord claim;
+        try {
+            claim = claimTransaction.execute(status ->
+                idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(userId, key, requestHash)));
+        } catch (DataIntegrityViolationException e) {
+            // Claimed by another instance (or by a request that finished between our lookup and insert)
+            IdempotencyRecord existing = idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, key).orElse(null);
+            if (existing != null && existing.isCompleted()) return replay(existing, requestHash);
+            return ResponseEntity.status(409).body("A request with this Idempotency-Key is still being processed");
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = transactionTemplate.execute(status -> {
+                ResponseEntity<?> result = action.get();
+                if (!result.getStatusCode().is2xxSuccessful()) {
+                    status.setRollbackOnly();
+                    return result;
+                }
+                claim.setResponseStatus(result.getStatusCode().value());
+                claim.setResponseBody(toJson(result.getBody()));
+                idempotencyRecordRepository.save(claim);
+                return result;
+            });
+        } catch (RuntimeException e) {
+            release(claim);
+            throw e;
+        }
+
+        if (claim.isCompleted()) {
+            completed.invalidate(cacheKey);
+            completed.get(cacheKey, k -> claim);
+        } else {
+            release(claim);
+        }
+        return response;
+    }
+
+    private ResponseEntity<?> awaitRunning(CompletableFuture<ResponseEntity<?>> running, String cacheKey,
+                                           Long userId, String key, String requestHash) {
+        ResponseEntity<?> first;
+        try {
+            first = running.get(waitSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(409).body("A request with this Idempotency-Key is still being processed");
+        } catch (TimeoutException | ExecutionException e) {
+            return ResponseEntity.status(409).body("A request with this Idempotency-Key is still being processed");
+        }
+        IdempotencyRecord done = findCompleted(cacheKey, userId, key);
+        // Nothing stored means the first attempt failed; the duplicate gets the same answer
+        return done != null ? replay(done, requestHash) : first;
+    }
+
+    private IdempotencyRecord findCompleted(String cacheKey, Long userId, String key) {
+        return completed.get(cacheKey, k -> idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, key)
+            .filter(IdempotencyRecord::isCompleted)
+            .orElse(null));
+    }
+
+    private ResponseEntity<?> replay(IdempotencyRecord record, String requestHash) {
+        if (!record.getRequestHash().equals(requestHash)) {
+            return ResponseEntity.status(422).body("Idempotency-Key was already used for a different request");
+        }
+        return ResponseEntity.status(record.getResponseStatus())
+            .contentType(MediaType.APPLICATION_JSON)
+            .header(REPLAYED_HEADER, "true")
+            .body(record.getResponseBody());
+    }
+
+    private void release(IdempotencyRecord claim) {
+        try {
+            claimTransaction.executeWithoutResult(status -> idempotencyRecordRepository.deleteById(claim.getId()));
+        } catch (RuntimeException e) {
+            // Left for the abandoned-claim purge
+            log.warn("Failed to release idempotency key {}: {}", claim.getIdempotencyKey(), e.getMessage());
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response is not serializable", e);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] body = request == null ? new byte[0] : objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(digest.digest(body));
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Could not hash request", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${orders.idempotency.purge-ms:3600000}", initialDelayString = "${orders.idempotency.purge-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int expired = idempotencyRecordRepository.deleteOlderThan(LocalDateTime.now().minusHours(retentionHours));
+        int abandoned = idempotencyRecordRepository.deleteAbandonedClaims(LocalDateTime.now().minusMinutes(10));
+        if (expired + abandoned > 0) {
+            log.info("Purged {} expired and {} abandoned idempotency keys", expired, abandoned);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.event.ProductChangedEvent;
+import com.ccmart.backend.model.Product;
+import com.ccmart.backend.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves inline base64 data URIs out of products.image_url into the image store,
+ * leaving a short /api/images/... reference behind.
+ */
+@Service
+public class ImageMigrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageMigrationService.class);
+
+    private final ProductRepository productRepository;
+    private final ImageStorageService imageStorageService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean migrateOnStartup;
+
+    public ImageMigrationService(ProductRepository productRepository, ImageStorageService imageStorageService,
+                                 TransactionTemplate transactionTemplate, ApplicationEventPublisher eventPublisher,
+                                 @Value("${app.images.migrate-on-startup:true}") boolean migrateOnStartup) {
+        this.productRepository = productRepository;
+        this.imageStorageService = imageStorageService;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.migrateOnStartup = migrateOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (migrateOnStartup) {
+            migrateInlineImages();
+        }
+    }
+
+    /**
+     * Migrate every product that still holds an inline image. Each product is handled in its own
+     * transaction so one bad row does not roll back the rest; its ProductChangedEvent commits with it, so the
+     * change log, catalog cache and indexes pick up the short reference.
+     */
+    public Map<String, Object> migrateInlineImages() {
+        List<Long> ids = productRepository.findIdsWithInlineImages();
+        int migrated = 0;
+        int failed = 0;
+        for (Long id : ids) {
+            try {
+                Boolean changed = transactionTemplate.execute(status -> {
+                    Product p = productRepository.findById(id).orElse(null);
+                    if (p == null || !ImageStorageService.isDataUri(p.getImageUrl())) return false;
+                    p.setImageUrl(imageStorageService.externalizeDataUri(p.getImageUrl()));
+                    productRepository.save(p);
+                    eventPublisher.publishEvent(ProductChangedEvent.updated(p));
+                    return true;
+                });
+                if (Boolean.TRUE.equals(changed)) migrated++;
+            } catch (Exception e) {
+                failed++;
+                log.warn("Failed to migrate inline image for product {}: {}", id, e.getMessage());
+            }
+        }
+        if (!ids.isEmpty()) {
+            log.info("Inline image migration: {} migrated, {} failed", migrated, failed);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("candidates", ids.size());
+        result.put("migrated", migrated);
+        result.put("failed", failed);
+        return result;
+    }
+}
@@ -0,0 +1,179 @@
+package com.ccmart.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed image store on the local filesystem.
+ * Files are named by the SHA-256 of their bytes, so identical uploads are stored once
+ * and a stored file never changes - which is what makes strong ETags and immutable caching safe.
+ * SVG is not accepted: it can carry script, and the files are served from the API origin.
+ */
+@Service
+public class ImageStorageService {
+
+    public static final String URL_PREFIX = "/api/images/";
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("^[a-f0-9]{64}\\.(png|jpg|gif|webp|svg)$");
+
+    private static final Map<String, String> EXTENSIONS = Map.of(
+        "image/png", "png",
+        "image/jpeg", "jpg",
+        "image/jpg", "jpg",
+        "image/gif", "gif",
+        "image/webp", "webp"
+    );
+
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+        "png", "image/png",
+        "jpg", "image/jpeg",
+        "gif", "image/gif",
+        "webp", "image/webp",
+        "svg", "image/svg+xml"
+    );
+
+    private final Path root;
+
+    public ImageStorageService(@Value("${app.images.dir:uploads/images}") String imagesDir) {
+        this.root = Paths.get(imagesDir).toAbsolutePath().normalize();
+    }
+
+    public static class StoredImage {
+        private final String name;
+        private final String contentType;
+        private final long size;
+
+        StoredImage(String name, String contentType, long size) {
+            this.name = name;
+            this.contentType = contentType;
+            this.size = size;
+        }
+
+        public String getName() { return name; }
+        public String getHash() { return name.substring(0, name.indexOf('.')); }
+        public String getContentType() { return contentType; }
+        public long getSize() { return size; }
+        public String getUrl() { return URL_PREFIX + name; }
+    }
+
+    /**
+     * Stream an upload to disk while hashing it, then move it into its content-addressed location.
+     */
+    public StoredImage store(InputStream in, String contentType) throws IOException {
+        String ext = extensionFor(contentType);
+        Files.createDirectories(root);
+        Path tmp = Files.createTempFile(root, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (DigestInputStream din = new DigestInputStream(in, digest);
+                 OutputStream out = Files.newOutputStream(tmp)) {
+                size = din.transferTo(out);
+            }
+            String name = HexFormat.of().formatHex(digest.digest()) + "." + ext;
+            Path target = pathFor(name);
+            Files.createDirectories(target.getParent());
+            if (!Files.exists(target)) {
+                try {
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException dup) {
+                    // A concurrent upload of the same bytes won the race - keep its file
+                }
+            }
+            return new StoredImage(name, CONTENT_TYPES.get(ext), size);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public StoredImage store(byte[] data, String contentType) {
+        try {
+            return store(new ByteArrayInputStream(data), contentType);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store image", e);
+        }
+    }
+
+    /**
+     * If the value is an inline base64 data URI, store the bytes and return the short image URL.
+     * Anything else (external URLs, existing references, null) is returned unchanged.
+     */
+    public String externalizeDataUri(String value) {
+        if (!isDataUri(value)) return value;
+        int comma = value.indexOf(',');
+        String header = comma > 0 ? value.substring(5, comma) : "";
+        if (comma < 0 || !header.endsWith(";base64")) {
+            throw new IllegalArgumentException("Only base64 encoded image data URIs are supported");
+        }
+        String contentType = header.substring(0, header.length() - ";base64".length());
+        byte[] data;
+        try {
+            data = Base64.getMimeDecoder().decode(value.substring(comma + 1));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid base64 image data");
+        }
+        return store(data, contentType).getUrl();
+    }
+
+    public static boolean isDataUri(String value) {
+        return value != null && value.regionMatches(true, 0, "data:", 0, 5);
+    }
+
+    /**
+     * Resolve a stored file by name, or null if the name is malformed or the file does not exist.
+     */
+    public Path resolve(String name) {
+        if (name == null || !NAME_PATTERN.matcher(name).matches()) return null;
+        Path path = pathFor(name);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    // SVGs stored before uploads were restricted; they are only ever served as downloads
+    public static boolean isScriptable(String name) {
+        return name.endsWith(".svg");
+    }
+
+    public String contentTypeOf(String name) {
+        return CONTENT_TYPES.getOrDefault(name.substring(name.lastIndexOf('.') + 1), "application/octet-stream");
+    }
+
+    private Path pathFor(String name) {
+        // Two-character fan-out keeps directory sizes small
+        return root.resolve(name.substring(0, 2)).resolve(name);
+    }
+
+    private static String extensionFor(String contentType) {
+        String ext = contentType == null ? null : EXTENSIONS.get(contentType.toLowerCase(Locale.ROOT).trim());
+        if (ext == null) {
+            throw new IllegalArgumentException("Unsupported image type: " + contentType);
+        }
+        return ext;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.event.ProductChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional in-memory inventory (inventory.ledger.enabled). Available stock per product lives in striped
+ * primitive maps, so checkouts for the same hot products contend on a short in-process lock instead of
+ * queueing on the products row lock. Committed deltas are coalesced per product and written behind to
+ * MySQL in JDBC batches; the ledger is loaded from the table at startup and reconciled against it periodically.
+ *
+ * Reservations are applied in memory immediately and tied to the caller's transaction: on rollback the units
+ * go back, on commit the delta is queued for the next flush. The ledger is per process, so only enable it when
+ * a single instance takes orders.
+ */
+@Component
+public class InventoryLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryLedger.class);
+
+    private static final int STRIPES = 64;
+    private static final int MISSING = Integer.MIN_VALUE;
+
+    private static final String FLUSH_SQL =
+        "UPDATE products SET stock_quantity = stock_quantity + ?, updated_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    // Flush and reconcile never overlap, so a reconcile never reads a half-applied flush
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile boolean loaded;
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final LongIntMap available = new LongIntMap(64);
+        // Committed deltas not yet written to products
+        LongIntMap pending = new LongIntMap(16);
+        // Units held by reservations whose transaction has not finished
+        final LongIntMap inFlight = new LongIntMap(16);
+    }
+
+    /** Thrown when a reservation cannot be granted; nothing has been taken. */
+    public static class Shortfall extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final long productId;
+        private final int available;
+        private final int requested;
+
+        Shortfall(long productId, int available, int requested) {
+            super("Insufficient stock for product " + productId);
+            this.productId = productId;
+            this.available = available;
+            this.requested = requested;
+        }
+
+        public long getProductId() { return productId; }
+        public int getAvailable() { return available; } // -1 when the product is unknown
+        public int getRequested() { return requested; }
+    }
+
+    public InventoryLedger(JdbcTemplate jdbcTemplate,
+                           @Value("${inventory.ledger.enabled:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+    }
+
+    public boolean isEnabled() {
+        return enabled && loaded;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) return;
+        flushLock.lock();
+        try {
+            jdbcTemplate.query("SELECT id, stock_quantity FROM products", rs -> {
+                long id = rs.getLong(1);
+                int stock = rs.getInt(2);
+                Stripe stripe = stripeOf(id);
+                stripe.lock.lock();
+                try {
+                    // Unflushed and in-flight changes are relative to the table value
+                    stripe.available.put(id, stock + stripe.pending.get(id, 0) - stripe.inFlight.get(id, 0));
+                } finally {
+                    stripe.lock.unlock();
+                }
+            });
+            loaded = true;
+        } finally {
+            flushLock.unlock();
+        }
+        log.info("Inventory ledger loaded: {} products", size());
+    }
+
+    /**
+     * All-or-nothing reservation (productId -> units). Stripes are locked in index order so concurrent
+     * multi-product reservations cannot deadlock. Returns the new available level per product.
+     */
+    public Map<Long, Integer> reserve(Map<Long, Integer> quantities) {
+        Map<Integer, List<Map.Entry<Long, Integer>>> byStripe = groupByStripe(quantities);
+        Map<Long, Integer> levels = new HashMap<>();
+        List<Stripe> locked = new ArrayList<>();
+        try {
+            for (Integer index : byStripe.keySet()) {
+                stripes[index].lock.lock();
+                locked.add(stripes[index]);
+            }
+            for (Map.Entry<Integer, List<Map.Entry<Long, Integer>>> group : byStripe.entrySet()) {
+                Stripe stripe = stripes[group.getKey()];
+                for (Map.Entry<Long, Integer> line : group.getValue()) {
+                    int available = stripe.available.get(line.getKey(), MISSING);
+                    if (available == MISSING) throw new Shortfall(line.getKey(), -1, line.getValue());
+                    if (available < line.getValue()) throw new Shortfall(line.getKey(), available, line.getValue());
+                }
+            }
+            for (Map.Entry<Integer, List<Map.Entry<Long, Integer>>> group : byStripe.entrySet()) {
+                Stripe stripe = stripes[group.getKey()];
+                for (Map.Entry<Long, Integer> line : group.getValue()) {
+                    levels.put(line.getKey(), stripe.available.addTo(line.getKey(), -line.getValue()));
+                    stripe.inFlight.addTo(line.getKey(), line.getValue());
+                }
+            }
+        } finally {
+            for (Stripe stripe : locked) stripe.lock.unlock();
+        }
+
+        afterTransaction(committed -> {
+            for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+                Stripe stripe = stripeOf(line.getKey());
+                stripe.lock.lock();
+                try {
+                    stripe.inFlight.addTo(line.getKey(), -line.getValue());
+                    if (committed) {
+                        stripe.pending.addTo(line.getKey(), -line.getValue());
+                    } else {
+                        stripe.available.addTo(line.getKey(), line.getValue());
+                    }
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        });
+        return levels;
+    }
+
+    /**
+     * Give units back once the caller's transaction commits. Returns the expected available levels.
+     */
+    public Map<Long, Integer> release(Map<Long, Integer> quantities) {
+        Map<Long, Integer> levels = new HashMap<>();
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            int current = available(line.getKey());
+            levels.put(line.getKey(), current == MISSING ? line.getValue() : current + line.getValue());
+        }
+        afterTransaction(committed -> {
+            if (!committed) return;
+            for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+                Stripe stripe = stripeOf(line.getKey());
+                stripe.lock.lock();
+                try {
+                    if (stripe.available.get(line.getKey(), MISSING) != MISSING) {
+                        stripe.available.addTo(line.getKey(), line.getValue());
+                    }
+                    stripe.pending.addTo(line.getKey(), line.getValue());
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        });
+        return levels;
+    }
+
+    public int available(long productId) {
+        Stripe stripe = stripeOf(productId);
+        stripe.lock.lock();
+        try {
+            return stripe.available.get(productId, MISSING);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /*
+     * One rule for every write: a stock value an admin set absolutely (product edit or import) replaces whatever
+     * deltas were still waiting to be flushed for that product, which would otherwise be applied on top of it.
+     * Any other write keeps them and re-reads the table value, as load() does. Reservations still in flight
+     * commit after the write and are kept either way. Holding the flush lock keeps a flush from draining
+     * deltas while they are dropped or the table is read here.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!isEnabled()) return;
+        switch (event.getType()) {
+            case STOCK_CHANGED -> { } // produced by reservations, already reflected
+            case BULK -> {
+                flushLock.lock();
+                try {
+                    for (Long id : event.getStockSetIds()) {
+                        Stripe stripe = stripeOf(id);
+                        stripe.lock.lock();
+                        try {
+                            stripe.pending.remove(id);
+                        } finally {
+                            stripe.lock.unlock();
+                        }
+                    }
+                    load();
+                } finally {
+                    flushLock.unlock();
+                }
+            }
+            case DELETED -> {
+                Stripe stripe = stripeOf(event.getProductId());
+                stripe.lock.lock();
+                try {
+                    stripe.available.remove(event.getProductId());
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+            default -> {
+                Long id = event.getProductId();
+                Stripe stripe = stripeOf(id);
+                flushLock.lock();
+                try {
+                    Integer set = event.getProduct().getStockQuantity();
+                    int stock = event.isStockSet() ? (set == null ? 0 : set) : tableStock(id);
+                    if (stock == MISSING) return; // deleted again since this write
+                    stripe.lock.lock();
+                    try {
+                        if (event.isStockSet()) stripe.pending.remove(id);
+                        stripe.available.put(id, stock + stripe.pending.get(id, 0) - stripe.inFlight.get(id, 0));
+                    } finally {
+                        stripe.lock.unlock();
+                    }
+                } finally {
+                    flushLock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Write coalesced committed deltas to products in one JDBC batch. A failed batch is merged back into
+     * pending so the next flush retries it.
+     */
+    @Scheduled(fixedDelayString = "${inventory.ledger.flush-ms:500}")
+    public void flush() {
+        if (!isEnabled()) return;
+        flushLock.lock();
+        try {
+            List<long[]> deltas = new ArrayList<>();
+            for (Stripe stripe : stripes) {
+                LongIntMap drained;
+                stripe.lock.lock();
+                try {
+                    if (stripe.pending.isEmpty()) continue;
+                    drained = stripe.pending;
+                    stripe.pending = new LongIntMap(16);
+                } finally {
+                    stripe.lock.unlock();
+                }
+                drained.forEach((id, delta) -> {
+                    if (delta != 0) deltas.add(new long[] { id, delta });
+                });
+            }
+            if (deltas.isEmpty()) return;
+
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> batch = new ArrayList<>(deltas.size());
+            for (long[] d : deltas) batch.add(new Object[] { (int) d[1], now, d[0] });
+            try {
+                jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+            } catch (RuntimeException e) {
+                log.warn("Inventory ledger flush failed, will retry {} deltas: {}", deltas.size(), e.getMessage());
+                for (long[] d : deltas) {
+                    Stripe stripe = stripeOf(d[0]);
+                    stripe.lock.lock();
+                    try {
+                        stripe.pending.addTo(d[0], (int) d[1]);
+                    } finally {
+                        stripe.lock.unlock();
+                    }
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Compare the ledger with the table and adopt the table value wherever they disagree. Products with
+     * unflushed or in-flight changes are skipped; they are checked again on the next run.
+     */
+    @Scheduled(fixedDelayString = "${inventory.ledger.reconcile-ms:60000}", initialDelayString = "${inventory.ledger.reconcile-ms:60000}")
+    public void reconcile() {
+        if (!isEnabled()) return;
+        int[] drift = { 0 };
+        flushLock.lock();
+        try {
+            jdbcTemplate.query("SELECT id, stock_quantity FROM products", rs -> {
+                long id = rs.getLong(1);
+                int stock = rs.getInt(2);
+                Stripe stripe = stripeOf(id);
+                stripe.lock.lock();
+                try {
+                    if (stripe.pending.get(id, 0) != 0 || stripe.inFlight.get(id, 0) != 0) return;
+                    if (stripe.available.get(id, MISSING) != stock) {
+                        stripe.available.put(id, stock);
+                        drift[0]++;
+                    }
+                } finally {
+                    stripe.lock.unlock();
+                }
+            });
+        } finally {
+            flushLock.unlock();
+        }
+        if (drift[0] > 0) {
+            log.info("Inventory ledger reconciled {} products against the database", drift[0]);
+        }
+    }
+
+    // The committed table value, which pending deltas are relative to while the flush lock is held
+    private int tableStock(long productId) {
+        List<Integer> stock = jdbcTemplate.queryForList("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+        if (stock.isEmpty()) return MISSING;
+        return stock.get(0) == null ? 0 : stock.get(0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public int size() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                total += stripe.available.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return total;
+    }
+
+    // Runs the callback when the caller's transaction completes, or right away when there is none
+    private static void afterTransaction(java.util.function.Consumer<Boolean> callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.accept(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private Map<Integer, List<Map.Entry<Long, Integer>>> groupByStripe(Map<Long, Integer> quantities) {
+        Map<Integer, List<Map.Entry<Long, Integer>>> byStripe = new TreeMap<>();
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            byStripe.computeIfAbsent(stripeIndex(line.getKey()), k -> new ArrayList<>()).add(line);
+        }
+        return byStripe;
+    }
+
+    private Stripe stripeOf(long productId) {
+        return stripes[stripeIndex(productId)];
+    }
+
+    private static int stripeIndex(long productId) {
+        return LongIntMap.mix(productId) & (STRIPES - 1);
+    }
+
+    /**
+     * Open-addressing long -> int hash map (linear probing, backward-shift deletion), so the ledger holds
+     * no boxed keys or values. Not thread-safe; callers hold the stripe lock.
+     */
+    static final class LongIntMap {
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        interface Visitor {
+            void visit(long key, int value);
+        }
+
+        private long[] keys;
+        private int[] values;
+        private int size;
+        private int mask;
+
+        LongIntMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(8, expected * 2) - 1) << 1;
+            allocate(capacity);
+        }
+
+        int get(long key, int defaultValue) {
+            int slot = slotOf(key);
+            return keys[slot] == key ? values[slot] : defaultValue;
+        }
+
+        void put(long key, int value) {
+            int slot = slotOf(key);
+            if (keys[slot] != key) {
+                keys[slot] = key;
+                if (++size * 4 >= keys.length * 3) {
+                    values[slot] = value;
+                    rehash(keys.length * 2);
+                    return;
+                }
+            }
+            values[slot] = value;
+        }
+
+        // Returns the new value; a missing key counts as 0
+        int addTo(long key, int delta) {
+            int value = get(key, 0) + delta;
+            put(key, value);
+            return value;
+        }
+
+        void remove(long key) {
+            int hole = slotOf(key);
+            if (keys[hole] != key) return;
+            int j = hole;
+            while (true) {
+                j = (j + 1) & mask;
+                if (keys[j] == EMPTY) break;
+                int home = mix(keys[j]) & mask;
+                // Move the entry back into the hole unless its home slot lies cyclically in (hole, j]
+                boolean stays = hole <= j ? (home > hole && home <= j) : (home > hole || home <= j);
+                if (!stays) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    hole = j;
+                }
+            }
+            keys[hole] = EMPTY;
+            size--;
+        }
+
+        int size() { return size; }
+        boolean isEmpty() { return size == 0; }
+
+        void forEach(Visitor visitor) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY) visitor.visit(keys[i], values[i]);
+            }
+        }
+
+        private int slotOf(long key) {
+            int slot = mix(key) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            mask = capacity - 1;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            allocate(capacity);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
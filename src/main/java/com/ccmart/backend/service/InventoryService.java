@@ -0,0 +1,109 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.event.ProductChangedEvent;
+import com.ccmart.backend.repository.ProductRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Stock reservation with set-based conditional updates instead of read-check-write in Java.
+ *
+ * Each product is decremented with "UPDATE ... WHERE stock_quantity >= qty", so the database row lock is the
+ * only synchronisation and two checkouts can never both take the last unit. Products are always touched in
+ * ascending id order, which keeps concurrent multi-item orders from deadlocking on each other's row locks.
+ * Callers must be transactional: a shortfall throws and rolls back every decrement already made.
+ *
+ * With inventory.ledger.enabled the checks and decrements go to the in-memory {@link InventoryLedger} instead,
+ * which writes the coalesced deltas behind to the table.
+ */
+@Service
+public class InventoryService {
+
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InventoryLedger ledger;
+
+    public InventoryService(ProductRepository productRepository, ApplicationEventPublisher eventPublisher,
+                            InventoryLedger ledger) {
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.ledger = ledger;
+    }
+
+    /**
+     * Take the requested quantities (productId -> units) or throw IllegalArgumentException naming the first
+     * product that is short.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Map<Long, Integer> quantities) {
+        if (ledger.isEnabled()) {
+            try {
+                publishLevels(ledger.reserve(quantities));
+            } catch (InventoryLedger.Shortfall e) {
+                throw ledgerShortfall(e);
+            }
+            return;
+        }
+        SortedMap<Long, Integer> ordered = new TreeMap<>(quantities);
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<Long, Integer> line : ordered.entrySet()) {
+            if (productRepository.decrementStock(line.getKey(), line.getValue(), now) == 0) {
+                throw shortfall(line.getKey(), line.getValue());
+            }
+        }
+        publishStockLevels(ordered);
+    }
+
+    // Give units back (cancellation); also in id order for the same deadlock reason
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Map<Long, Integer> quantities) {
+        if (ledger.isEnabled()) {
+            publishLevels(ledger.release(quantities));
+            return;
+        }
+        SortedMap<Long, Integer> ordered = new TreeMap<>(quantities);
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<Long, Integer> line : ordered.entrySet()) {
+            productRepository.incrementStock(line.getKey(), line.getValue(), now);
+        }
+        publishStockLevels(ordered);
+    }
+
+    // The entity may already be in the persistence context with a stale stock value, so read the level separately
+    private IllegalArgumentException shortfall(Long productId, int requested) {
+        List<Object[]> level = productRepository.findStockLevels(List.of(productId));
+        if (level.isEmpty()) return new IllegalArgumentException("Product not found with ID: " + productId);
+        String name = productRepository.findById(productId).map(p -> p.getName()).orElse("product " + productId);
+        return new IllegalArgumentException("Insufficient stock for " + name +
+            ". Available: " + level.get(0)[1] + ", Requested: " + requested);
+    }
+
+    private IllegalArgumentException ledgerShortfall(InventoryLedger.Shortfall e) {
+        if (e.getAvailable() < 0) return new IllegalArgumentException("Product not found with ID: " + e.getProductId());
+        String name = productRepository.findById(e.getProductId()).map(p -> p.getName()).orElse("product " + e.getProductId());
+        return new IllegalArgumentException("Insufficient stock for " + name +
+            ". Available: " + e.getAvailable() + ", Requested: " + e.getRequested());
+    }
+
+    private void publishLevels(Map<Long, Integer> levels) {
+        for (Map.Entry<Long, Integer> level : levels.entrySet()) {
+            eventPublisher.publishEvent(ProductChangedEvent.stockChanged(level.getKey(), level.getValue()));
+        }
+    }
+
+    // One query for the new levels of every touched product; listeners see them after commit
+    private void publishStockLevels(SortedMap<Long, Integer> touched) {
+        List<Object[]> levels = productRepository.findStockLevels(touched.keySet());
+        for (Object[] level : levels) {
+            eventPublisher.publishEvent(ProductChangedEvent.stockChanged((Long) level[0], (Integer) level[1]));
+        }
+    }
+}
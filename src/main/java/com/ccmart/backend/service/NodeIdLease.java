@@ -0,0 +1,206 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.repository.NodeLeaseRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Hands this instance a node id (0..maxNodes-1) that no other running instance holds, leased from the
+ * node_leases table and renewed on a schedule.
+ *
+ * A lost lease is only noticed at the next renewal, so uniqueness does not depend on noticing it. Every lease
+ * carries a fence, the latest timestamp its owner may put into an order number (the lease expiry, on the
+ * owner's clock). The owner stops issuing at its fence or once its local deadline passes without a renewal,
+ * and whoever takes the id over next only issues timestamps above the previous fence.
+ */
+@Component
+public class NodeIdLease {
+
+    private static final Logger log = LoggerFactory.getLogger(NodeIdLease.class);
+
+    /** A leased node id and the timestamps (epoch millis) its order numbers must fall between. */
+    static final class Lease {
+        final int nodeId;
+        final long floorMillis;
+        final long fenceMillis;
+        final long deadlineNanos;
+
+        Lease(int nodeId, long floorMillis, long fenceMillis, long deadlineNanos) {
+            this.nodeId = nodeId;
+            this.floorMillis = floorMillis;
+            this.fenceMillis = fenceMillis;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        boolean expired() {
+            return System.nanoTime() - deadlineNanos > 0;
+        }
+    }
+
+    private final NodeLeaseRepository nodeLeaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxNodes;
+    private final long leaseMillis;
+    private final String owner;
+    private volatile Lease lease;
+    private volatile boolean released;
+
+    public NodeIdLease(NodeLeaseRepository nodeLeaseRepository, TransactionTemplate transactionTemplate,
+                       @Value("${orders.number.lease-seconds:60}") long leaseSeconds) {
+        this.nodeLeaseRepository = nodeLeaseRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.maxNodes = 1 << SnowflakeOrderNumberGenerator.NODE_BITS;
+        this.leaseMillis = leaseSeconds * 1000;
+        this.owner = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @PostConstruct
+    public void init() {
+        Lease acquired = acquire();
+        log.info("Order number node id {} leased by {}", acquired.nodeId, owner);
+    }
+
+    /**
+     * The lease to issue under. Past its deadline it is renewed (or replaced, if it was lost) first; when that
+     * is not possible this throws rather than let the id be used without a valid lease.
+     */
+    Lease current() {
+        Lease current = lease;
+        if (current != null && !current.expired()) return current;
+        synchronized (this) {
+            if (released) throw new IllegalStateException("Order number node lease has been released");
+            current = lease;
+            if (current == null) return acquire();
+            if (!current.expired()) return current;
+            Lease renewed;
+            try {
+                renewed = extend(current);
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("Order number node lease expired and could not be renewed", e);
+            }
+            return renewed != null ? renewed : acquire();
+        }
+    }
+
+    // Renew at a third of the lease so two missed renewals still leave the lease valid
+    @Scheduled(fixedDelayString = "#{${orders.number.lease-seconds:60} * 1000 / 3}")
+    public void renew() {
+        try {
+            synchronized (this) {
+                Lease current = lease;
+                if (current != null) extend(current);
+            }
+        } catch (RuntimeException e) {
+            // Keep the lease: it stays usable until its deadline, and the next renewal retries
+            log.warn("Failed to renew order number node lease: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Give the id back at shutdown. {@code issuedMillis} is the latest timestamp handed out, which becomes the
+     * fence so the next owner does not have to start a whole lease ahead of the clock.
+     */
+    public synchronized void release(long issuedMillis) {
+        released = true;
+        Lease current = lease;
+        lease = null;
+        if (current == null) return;
+        long fence = Math.min(current.fenceMillis, Math.max(issuedMillis, current.floorMillis - 1));
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                nodeLeaseRepository.renew(current.nodeId, owner, LocalDateTime.now(), fence));
+        } catch (RuntimeException e) {
+            // It expires on its own, with the fence it already has
+        }
+    }
+
+    @PreDestroy
+    public void release() {
+        release(Long.MAX_VALUE);
+    }
+
+    // Null when the lease was lost; the fence never moves backwards
+    private Lease extend(Lease current) {
+        long started = System.nanoTime();
+        long expiryMillis = System.currentTimeMillis() + leaseMillis;
+        long fence = Math.max(expiryMillis, current.fenceMillis);
+        Integer renewed = transactionTemplate.execute(status ->
+            nodeLeaseRepository.renew(current.nodeId, owner, toLocal(expiryMillis), fence));
+        if (renewed == null || renewed == 0) {
+            log.warn("Order number node id {} lease was lost, leasing a new one", current.nodeId);
+            lease = null;
+            return null;
+        }
+        Lease next = new Lease(current.nodeId, current.floorMillis, fence, started + leaseMillis * 1_000_000);
+        lease = next;
+        return next;
+    }
+
+    private synchronized Lease acquire() {
+        long started = System.nanoTime();
+        long expiryMillis = System.currentTimeMillis() + leaseMillis;
+        long deadline = started + leaseMillis * 1_000_000;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = toLocal(expiryMillis);
+        Set<Integer> existing = new HashSet<>(nodeLeaseRepository.findAllNodeIds());
+
+        // Prefer ids that were never used, then take over expired ones
+        for (int candidate = 0; candidate < maxNodes; candidate++) {
+            if (existing.contains(candidate)) continue;
+            int id = candidate;
+            try {
+                transactionTemplate.executeWithoutResult(status -> nodeLeaseRepository.insert(id, owner, expiresAt, expiryMillis));
+                return install(new Lease(id, 0, expiryMillis, deadline));
+            } catch (DataIntegrityViolationException e) {
+                // Inserted by another instance just now
+            }
+        }
+        for (Integer id : existing) {
+            // The previous owner may still be issuing until it notices; start above everything it was allowed to use
+            Long previousFence = transactionTemplate.execute(status -> {
+                if (nodeLeaseRepository.takeOver(id, owner, expiresAt, now) == 0) return null;
+                Long fence = nodeLeaseRepository.findFence(id);
+                long previous = fence == null ? 0 : fence;
+                nodeLeaseRepository.renew(id, owner, expiresAt, Math.max(previous, expiryMillis));
+                return previous;
+            });
+            if (previousFence != null) {
+                return install(new Lease(id, previousFence + 1, Math.max(previousFence, expiryMillis), deadline));
+            }
+        }
+        throw new IllegalStateException("No free order number node id (all " + maxNodes + " are leased)");
+    }
+
+    private Lease install(Lease acquired) {
+        lease = acquired;
+        return acquired;
+    }
+
+    private static LocalDateTime toLocal(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static String hostName() {
+        try {
+            String host = InetAddress.getLocalHost().getHostName();
+            return host.length() > 80 ? host.substring(0, 80) : host;
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
@@ -29,7 +29,7 @@ public class NotificationService {
      */
     @Transactional
     public Notification createOrderNotification(Order order, String oldStatus, String newStatus) {
-        String message = generateMessageForStatus(order, newStatus);
+        String message = generateMessageForStatus(order.getId(), newStatus);
         String notificationType = getNotificationTypeForStatus(newStatus);
         
         Notification notification = new Notification(
@@ -45,8 +45,8 @@ public class NotificationService {
     /**
      * Generate user-friendly message based on order status
      */
-    private String generateMessageForStatus(Order order, String status) {
-        String orderNumber = "#" + order.getId();
+    public String generateMessageForStatus(Long orderId, String status) {
+        String orderNumber = "#" + orderId;
         
         switch (status.toLowerCase()) {
             case "approved":
@@ -73,7 +73,7 @@ public class NotificationService {
     /**
      * Map order status to notification type
      */
-    private String getNotificationTypeForStatus(String status) {
+    public String getNotificationTypeForStatus(String status) {
         switch (status.toLowerCase()) {
             case "approved":
                 return ORDER_APPROVED;
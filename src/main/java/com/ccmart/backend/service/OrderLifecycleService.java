@@ -0,0 +1,217 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.model.DeliveryAgent;
+import com.ccmart.backend.model.OrderStatus;
+import com.ccmart.backend.repository.DeliveryAgentRepository;
+import com.ccmart.backend.repository.OrderItemRepository;
+import com.ccmart.backend.repository.OrderRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Every order status change goes through here. Allowed moves come from {@link OrderStatus}; a transition of
+ * any number of orders is one locking read of (id, user, status) and one conditional UPDATE, without loading
+ * the order graph. Each order that actually changed gets an outbox row, and cancellations restock all their
+ * items with a single InventoryService call and give back their delivery slot places. Assignments (single,
+ * automatic or a whole delivery run), deliveries and cancellations of assigned orders also move the agents'
+ * workload counters.
+ */
+@Service
+public class OrderLifecycleService {
+
+    public static final String NOT_FOUND = "Order not found";
+    // Bulk calls are one statement each; this keeps the IN lists and the lock set reasonable
+    public static final int MAX_BULK_SIZE = 1000;
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final InventoryService inventoryService;
+    private final OrderOutbox orderOutbox;
+    private final DeliverySlotService deliverySlotService;
+    private final AgentStatsService agentStatsService;
+    private final DeliveryAgentRepository deliveryAgentRepository;
+
+    public OrderLifecycleService(OrderRepository orderRepository, OrderItemRepository orderItemRepository,
+                                 InventoryService inventoryService, OrderOutbox orderOutbox,
+                                 DeliverySlotService deliverySlotService, AgentStatsService agentStatsService,
+                                 DeliveryAgentRepository deliveryAgentRepository) {
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.inventoryService = inventoryService;
+        this.orderOutbox = orderOutbox;
+        this.deliverySlotService = deliverySlotService;
+        this.agentStatsService = agentStatsService;
+        this.deliveryAgentRepository = deliveryAgentRepository;
+    }
+
+    /**
+     * Move the given orders to {@code target}. Orders that do not exist or cannot make that move are skipped
+     * and reported with the reason; orders already in the target state are listed as unchanged, so retrying a
+     * bulk call is harmless: {"status", "updated": [ids], "unchanged": [ids], "skipped": {id: reason}}.
+     */
+    @Transactional
+    public Map<String, Object> transition(Collection<Long> orderIds, OrderStatus target) {
+        if (target == OrderStatus.ASSIGNED) {
+            throw new IllegalArgumentException("Orders are assigned through /api/orders/{id}/assign with a delivery agent");
+        }
+        if (orderIds.size() > MAX_BULK_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_SIZE + " orders per request");
+        }
+        Set<Long> requested = new TreeSet<>(orderIds);
+        Map<Long, String> skipped = new LinkedHashMap<>();
+        List<Long> changed = new ArrayList<>();
+        List<Long> unchanged = new ArrayList<>();
+        Map<Long, Object[]> current = new HashMap<>();
+        if (!requested.isEmpty()) {
+            for (Object[] row : orderRepository.lockStatuses(requested)) {
+                current.put(((Number) row[0]).longValue(), row);
+            }
+        }
+        for (Long id : requested) {
+            Object[] row = current.get(id);
+            if (row == null) {
+                skipped.put(id, NOT_FOUND);
+                continue;
+            }
+            OrderStatus from = OrderStatus.fromValue((String) row[2]);
+            if (from == target) {
+                unchanged.add(id);
+            } else if (from == null || !from.canTransitionTo(target)) {
+                skipped.put(id, "Cannot change order status from " + row[2] + " to " + target.value());
+            } else {
+                changed.add(id);
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            Set<String> sources = OrderStatus.sourcesOf(target).stream().map(OrderStatus::value).collect(Collectors.toSet());
+            orderRepository.transitionStatus(changed, sources, target.value(), now,
+                target == OrderStatus.APPROVED ? now : null,
+                target == OrderStatus.DELIVERED ? now : null,
+                target == OrderStatus.CANCELLED ? "refunded" : null);
+
+            if (target == OrderStatus.CANCELLED) {
+                restock(changed);
+                deliverySlotService.release(changed);
+            }
+            if (target == OrderStatus.DELIVERED || target == OrderStatus.CANCELLED) {
+                List<Long> wereOpen = changed.stream().filter(id -> {
+                    OrderStatus from = OrderStatus.fromValue((String) current.get(id)[2]);
+                    return from == OrderStatus.ASSIGNED || from == OrderStatus.IN_DELIVERY;
+                }).toList();
+                agentStatsService.closed(wereOpen, target == OrderStatus.DELIVERED);
+            }
+            for (Long id : changed) {
+                Object[] row = current.get(id);
+                orderOutbox.statusChanged(id, row[1] == null ? null : ((Number) row[1]).longValue(), (String) row[2], target.value());
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", target.value());
+        result.put("updated", changed);
+        result.put("unchanged", unchanged);
+        result.put("skipped", skipped);
+        return result;
+    }
+
+    /**
+     * Assign an approved order to a delivery agent. Returns null on success, otherwise the reason it was refused.
+     */
+    @Transactional
+    public String assign(Long orderId, DeliveryAgent agent) {
+        return assignAll(Map.of(orderId, agent.getId())).get(orderId);
+    }
+
+    /**
+     * Assign approved orders to delivery agents (order id -> agent id) with one UPDATE per agent. Orders that do
+     * not exist or are no longer approved are left alone and returned with the reason; the rest get their
+     * outbox rows and count towards their agent's workload.
+     */
+    @Transactional
+    public Map<Long, String> assignAll(Map<Long, Long> agentByOrder) {
+        if (agentByOrder.size() > MAX_BULK_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_SIZE + " orders per request");
+        }
+        Map<Long, String> refused = new TreeMap<>();
+        if (agentByOrder.isEmpty()) return refused;
+        Map<Long, Object[]> current = new HashMap<>();
+        for (Object[] row : orderRepository.lockStatuses(new TreeSet<>(agentByOrder.keySet()))) {
+            current.put(((Number) row[0]).longValue(), row);
+        }
+        Map<Long, List<Long>> ordersByAgent = new TreeMap<>();
+        agentByOrder.forEach((orderId, agentId) -> {
+            Object[] row = current.get(orderId);
+            if (row == null) {
+                refused.put(orderId, NOT_FOUND);
+            } else if (!OrderStatus.APPROVED.value().equals(row[2])) {
+                refused.put(orderId, "Only approved orders can be assigned");
+            } else {
+                ordersByAgent.computeIfAbsent(agentId, k -> new ArrayList<>()).add(orderId);
+            }
+        });
+        if (ordersByAgent.isEmpty()) return refused;
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Integer> counts = new HashMap<>();
+        ordersByAgent.forEach((agentId, orderIds) -> {
+            // The rows are locked and approved, so every one of them is updated
+            orderRepository.assignAgentToAll(orderIds, deliveryAgentRepository.getReferenceById(agentId), now);
+            counts.put(agentId, orderIds.size());
+            for (Long orderId : orderIds) {
+                Object[] row = current.get(orderId);
+                orderOutbox.statusChanged(orderId, row[1] == null ? null : ((Number) row[1]).longValue(),
+                    (String) row[2], OrderStatus.ASSIGNED.value());
+            }
+        });
+        agentStatsService.assigned(counts, now);
+        return refused;
+    }
+
+    /**
+     * Move assigned orders that {@code fromAgentId} has not picked up yet to other agents (order id -> agent id).
+     * The status stays "assigned", so no outbox rows are written; only the workload counters move.
+     * Returns the number of orders moved.
+     */
+    @Transactional
+    public int reassign(Long fromAgentId, Map<Long, Long> agentByOrder) {
+        if (agentByOrder.isEmpty()) return 0;
+        Map<Long, List<Long>> ordersByAgent = new TreeMap<>();
+        agentByOrder.forEach((orderId, agentId) -> ordersByAgent.computeIfAbsent(agentId, k -> new ArrayList<>()).add(orderId));
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Integer> counts = new HashMap<>();
+        int moved = 0;
+        for (Map.Entry<Long, List<Long>> entry : ordersByAgent.entrySet()) {
+            int updated = orderRepository.reassignAgent(entry.getValue(), deliveryAgentRepository.getReferenceById(entry.getKey()), now);
+            if (updated > 0) counts.put(entry.getKey(), updated);
+            moved += updated;
+        }
+        if (moved == 0) return 0;
+        agentStatsService.unassigned(Map.of(fromAgentId, moved));
+        agentStatsService.assigned(counts, now);
+        return moved;
+    }
+
+    private void restock(List<Long> orderIds) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (Object[] row : orderItemRepository.sumQuantityByProductForOrders(orderIds)) {
+            if (row[0] != null && row[1] != null) quantities.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        if (!quantities.isEmpty()) {
+            inventoryService.release(quantities);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.ccmart.backend.service;
+
+/**
+ * Source of order numbers. Implementations must return a value that is unique across all instances,
+ * since orders.order_number is unique and checkout must not fail on it.
+ */
+public interface OrderNumberGenerator {
+
+    String next();
+}
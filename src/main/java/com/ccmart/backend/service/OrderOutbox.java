@@ -0,0 +1,35 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.model.Order;
+import com.ccmart.backend.model.OrderOutboxEvent;
+import com.ccmart.backend.repository.OrderOutboxRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Writes order outbox rows. Must run inside the transaction that changes the order, so the row exists
+ * exactly when the change does; {@link OrderOutboxDispatcher} does the follow-up work later.
+ */
+@Service
+public class OrderOutbox {
+
+    private final OrderOutboxRepository orderOutboxRepository;
+
+    public OrderOutbox(OrderOutboxRepository orderOutboxRepository) {
+        this.orderOutboxRepository = orderOutboxRepository;
+    }
+
+    // oldStatus is null for a new order
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void statusChanged(Order order, String oldStatus, String newStatus) {
+        Long userId = order.getUser() != null ? order.getUser().getId() : null;
+        statusChanged(order.getId(), userId, oldStatus, newStatus);
+    }
+
+    // For set-based updates, where only ids and the previous status are at hand
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void statusChanged(Long orderId, Long userId, String oldStatus, String newStatus) {
+        orderOutboxRepository.save(new OrderOutboxEvent(orderId, userId, OrderOutboxEvent.STATUS_CHANGED, oldStatus, newStatus));
+    }
+}
@@ -0,0 +1,159 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.model.OrderOutboxEvent;
+import com.ccmart.backend.repository.OrderOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Background side of the order outbox. Unprocessed rows are claimed in batches and turned into Notification
+ * rows with one JDBC batch insert per claim; the claim, the inserts and the processed marks commit together.
+ *
+ * On MySQL the claim is SELECT ... FOR UPDATE SKIP LOCKED, so several instances can poll without handing
+ * out the same row twice. Databases without SKIP LOCKED (H2 in development) are polled without row locks,
+ * which is fine for the single instance they run.
+ */
+@Component
+public class OrderOutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderOutboxDispatcher.class);
+
+    private static final int BATCH_SIZE = 200;
+    private static final int MAX_ATTEMPTS = 5;
+
+    private static final String SELECT_PENDING =
+        "SELECT id, order_id, user_id, event_type, old_status, new_status FROM order_outbox " +
+        "WHERE processed_at IS NULL AND attempts < " + MAX_ATTEMPTS + " ORDER BY id LIMIT ?";
+    private static final String INSERT_NOTIFICATION =
+        "INSERT INTO notifications (user_id, message, status, order_id, notification_type, created_at, updated_at) " +
+        "VALUES (?, ?, 'UNREAD', ?, ?, ?, ?)";
+    private static final String MARK_PROCESSED = "UPDATE order_outbox SET processed_at = ? WHERE id = ?";
+    private static final String MARK_FAILED =
+        "UPDATE order_outbox SET attempts = attempts + 1, last_error = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationService notificationService;
+    private final OrderOutboxRepository orderOutboxRepository;
+    private final int retentionDays;
+    private volatile String claimSql;
+
+    private record Row(long id, long orderId, Long userId, String eventType, String oldStatus, String newStatus) {}
+
+    private static final RowMapper<Row> ROW_MAPPER = (rs, i) -> new Row(rs.getLong(1), rs.getLong(2),
+        rs.getObject(3, Long.class), rs.getString(4), rs.getString(5), rs.getString(6));
+
+    public OrderOutboxDispatcher(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                 NotificationService notificationService, OrderOutboxRepository orderOutboxRepository,
+                                 @Value("${orders.outbox.retention-days:7}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.notificationService = notificationService;
+        this.orderOutboxRepository = orderOutboxRepository;
+        this.retentionDays = retentionDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        boolean skipLocked = product != null && product.toLowerCase(Locale.ROOT).contains("mysql");
+        claimSql = skipLocked ? SELECT_PENDING + " FOR UPDATE SKIP LOCKED" : SELECT_PENDING;
+        log.info("Order outbox dispatcher started ({})", skipLocked ? "SKIP LOCKED" : "polling");
+    }
+
+    @Scheduled(fixedDelayString = "${orders.outbox.poll-ms:1000}")
+    public void dispatch() {
+        String sql = claimSql;
+        if (sql == null) return;
+        while (true) {
+            int processed;
+            try {
+                processed = transactionTemplate.execute(status -> {
+                    List<Row> rows = jdbcTemplate.query(sql, ROW_MAPPER, BATCH_SIZE);
+                    process(rows);
+                    return rows.size();
+                });
+            } catch (RuntimeException e) {
+                log.warn("Order outbox batch failed, retrying row by row: {}", e.getMessage());
+                dispatchOneByOne(sql);
+                return;
+            }
+            if (processed < BATCH_SIZE) return;
+        }
+    }
+
+    // Isolates a failing row: it gets its attempt counted and is given up on after MAX_ATTEMPTS
+    private void dispatchOneByOne(String sql) {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Row[] failed = new Row[1];
+            Integer processed;
+            try {
+                processed = transactionTemplate.execute(status -> {
+                    List<Row> rows = jdbcTemplate.query(sql, ROW_MAPPER, 1);
+                    if (rows.isEmpty()) return 0;
+                    failed[0] = rows.get(0);
+                    process(rows);
+                    return 1;
+                });
+            } catch (RuntimeException e) {
+                if (failed[0] == null) return;
+                String error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+                String message = error.length() > 500 ? error.substring(0, 500) : error;
+                jdbcTemplate.update(MARK_FAILED, message, failed[0].id());
+                log.warn("Order outbox event {} failed: {}", failed[0].id(), message);
+                continue;
+            }
+            if (processed == null || processed == 0) return;
+        }
+    }
+
+    private void process(List<Row> rows) {
+        if (rows.isEmpty()) return;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> notifications = new ArrayList<>();
+        List<Object[]> processed = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            if (OrderOutboxEvent.STATUS_CHANGED.equals(row.eventType()) && row.userId() != null
+                    && row.newStatus() != null && !Objects.equals(row.oldStatus(), row.newStatus())) {
+                notifications.add(new Object[] {
+                    row.userId(),
+                    notificationService.generateMessageForStatus(row.orderId(), row.newStatus()),
+                    row.orderId(),
+                    notificationService.getNotificationTypeForStatus(row.newStatus()),
+                    now, now
+                });
+            }
+            processed.add(new Object[] { now, row.id() });
+        }
+        if (!notifications.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_NOTIFICATION, notifications);
+        }
+        jdbcTemplate.batchUpdate(MARK_PROCESSED, processed);
+    }
+
+    @Scheduled(cron = "${orders.outbox.purge-cron:0 45 3 * * *}")
+    @Transactional
+    public void purgeProcessed() {
+        int removed = orderOutboxRepository.deleteProcessedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (removed > 0) {
+            log.info("Purged {} processed order outbox rows older than {} days", removed, retentionDays);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.dto.OrderDTO;
+import com.ccmart.backend.dto.OrderSearchFilter;
+import com.ccmart.backend.model.Order;
+import com.ccmart.backend.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read side of the admin order listing and search. A page costs a constant number of queries whatever its
+ * size: the id page (plus a count for the listing), then one fetch-join for orders with their user, agent,
+ * items, products and categories. Paging on ids first keeps LIMIT away from the joined item rows.
+ *
+ * Search pages by keyset on (createdAt, id) descending rather than OFFSET, so page 500 costs the same as
+ * page 1; the composite indexes on orders all end in (created_at, id) to serve that order directly.
+ */
+@Service
+public class OrderQueryService {
+
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private final OrderRepository orderRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public static class SearchPage {
+        private final List<OrderDTO> items;
+        private final String nextCursor;
+
+        SearchPage(List<OrderDTO> items, String nextCursor) {
+            this.items = items;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<OrderDTO> getItems() { return items; }
+        // Null on the last page
+        public String getNextCursor() { return nextCursor; }
+    }
+
+    public OrderQueryService(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public Page<OrderDTO> findOrders(String status, Long userId, LocalDateTime from, LocalDateTime to, int page, int size) {
+        PageRequest pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+        List<Long> ids = orderRepository.findIdPage(status, userId, from, to, pageable);
+        long total = orderRepository.countFiltered(status, userId, from, to);
+        if (ids.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, total);
+        }
+
+        return new PageImpl<>(loadDetails(ids), pageable, total);
+    }
+
+    /**
+     * Filtered search, newest first. {@code cursor} is the nextCursor of the previous page (null for the first).
+     * Throws IllegalArgumentException for a malformed cursor.
+     */
+    @Transactional(readOnly = true)
+    public SearchPage search(OrderSearchFilter filter, String cursor, int limit) {
+        int size = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Order> o = query.from(Order.class);
+        Path<Long> id = o.get("id");
+        Path<LocalDateTime> createdAt = o.get("createdAt");
+
+        List<Predicate> where = new ArrayList<>();
+        if (filter.getStatus() != null) where.add(cb.equal(o.get("status"), filter.getStatus()));
+        if (filter.getPaymentStatus() != null) where.add(cb.equal(o.get("paymentStatus"), filter.getPaymentStatus()));
+        if (filter.getUserId() != null) where.add(cb.equal(o.get("user").get("id"), filter.getUserId()));
+        if (filter.getDeliveryAgentId() != null) where.add(cb.equal(o.get("deliveryAgent").get("id"), filter.getDeliveryAgentId()));
+        if (filter.getFrom() != null) where.add(cb.greaterThanOrEqualTo(createdAt, filter.getFrom().atStartOfDay()));
+        if (filter.getTo() != null) where.add(cb.lessThan(createdAt, filter.getTo().atStartOfDay()));
+        if (filter.getMinAmount() != null) where.add(cb.greaterThanOrEqualTo(o.<BigDecimal>get("totalAmount"), filter.getMinAmount()));
+        if (filter.getMaxAmount() != null) where.add(cb.lessThanOrEqualTo(o.<BigDecimal>get("totalAmount"), filter.getMaxAmount()));
+        if (cursor != null && !cursor.isBlank()) {
+            Object[] position = decodeCursor(cursor);
+            LocalDateTime afterCreatedAt = (LocalDateTime) position[0];
+            Long afterId = (Long) position[1];
+            // (createdAt, id) < (afterCreatedAt, afterId), spelled out so every database can use the index
+            where.add(cb.or(cb.lessThan(createdAt, afterCreatedAt),
+                cb.and(cb.equal(createdAt, afterCreatedAt), cb.lessThan(id, afterId))));
+        }
+
+        query.multiselect(id, createdAt)
+            .where(where.toArray(new Predicate[0]))
+            .orderBy(cb.desc(createdAt), cb.desc(id));
+        List<Tuple> rows = entityManager.createQuery(query).setMaxResults(size + 1).getResultList();
+
+        boolean hasMore = rows.size() > size;
+        if (hasMore) rows = rows.subList(0, size);
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (Tuple row : rows) ids.add(row.get(0, Long.class));
+        String nextCursor = null;
+        if (hasMore) {
+            Tuple last = rows.get(rows.size() - 1);
+            nextCursor = encodeCursor(last.get(1, LocalDateTime.class), last.get(0, Long.class));
+        }
+        return new SearchPage(ids.isEmpty() ? List.of() : loadDetails(ids), nextCursor);
+    }
+
+    // One fetch-join for the page, returned in the id page's order (the join comes back unordered)
+    private List<OrderDTO> loadDetails(List<Long> ids) {
+        Map<Long, Order> byId = new HashMap<>();
+        for (Order o : orderRepository.findWithDetailsByIds(ids)) {
+            byId.put(o.getId(), o);
+        }
+        List<OrderDTO> content = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Order o = byId.get(id);
+            if (o != null) content.add(OrderDTO.fromOrder(o));
+        }
+        return content;
+    }
+
+    // Opaque to clients: base64url of "<createdAt>|<id>"
+    private static String encodeCursor(LocalDateTime createdAt, Long id) {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new Object[] { LocalDateTime.parse(raw.substring(0, sep)), Long.valueOf(raw.substring(sep + 1)) };
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
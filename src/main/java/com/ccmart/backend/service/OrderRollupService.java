@@ -0,0 +1,569 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.model.OrderStatus;
+import com.ccmart.backend.model.RollupState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the dashboard rollup tables (order_rollups_hourly, order_status_rollups, product_sales_rollups) up to
+ * date from the order outbox. Every order placement and status change already writes an outbox row in the
+ * order's transaction, so the rollups follow creates, status changes and cancellations without touching the
+ * order write path: a scheduled consumer folds new outbox rows into the tables and moves the rollup_state
+ * cursor in the same transaction.
+ *
+ * Outbox ids are handed out before commit, so rows can become visible out of id order. The consumer applies
+ * every visible row above the cursor and records it in rollup_applied_events; the cursor only moves over a
+ * contiguous run of applied ids. A missing id (a transaction still open, or one that rolled back) holds the
+ * cursor until the row after it is older than the gap window, so a long transaction is still picked up when
+ * it commits, as long as it commits within that window.
+ *
+ * {@link #startRebuild()} recomputes everything from orders/order_items, scanning id ranges in parallel.
+ */
+@Service
+public class OrderRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderRollupService.class);
+
+    private static final int BATCH_SIZE = 500;
+    private static final int REBUILD_CHUNK = 20000;
+    private static final int MAX_RANGE_DAYS = 366;
+    private static final int TOP_PRODUCTS = 10;
+    private static final String CANCELLED = OrderStatus.CANCELLED.value();
+
+    private static final String LOCK_CURSOR = "SELECT last_event_id FROM rollup_state WHERE id = " + RollupState.ID + " FOR UPDATE";
+    private static final String MOVE_CURSOR = "UPDATE rollup_state SET last_event_id = ? WHERE id = " + RollupState.ID;
+    private static final String SELECT_EVENTS =
+        "SELECT o.id, o.order_id, o.old_status, o.new_status FROM order_outbox o WHERE o.id > ? AND NOT EXISTS " +
+        "(SELECT 1 FROM rollup_applied_events a WHERE a.event_id = o.id) ORDER BY o.id LIMIT ?";
+    private static final String SELECT_PROGRESS =
+        "SELECT o.id, o.created_at, a.event_id FROM order_outbox o LEFT JOIN rollup_applied_events a ON a.event_id = o.id " +
+        "WHERE o.id > ? ORDER BY o.id LIMIT ?";
+    private static final String MARK_APPLIED = "INSERT INTO rollup_applied_events (event_id) VALUES (?)";
+    private static final String FORGET_APPLIED = "DELETE FROM rollup_applied_events WHERE event_id <= ?";
+
+    private static final String UPDATE_HOUR =
+        "UPDATE order_rollups_hourly SET orders_count = orders_count + ?, revenue = revenue + ?, " +
+        "delivery_fees = delivery_fees + ?, cancelled_count = cancelled_count + ? WHERE bucket = ?";
+    private static final String INSERT_HOUR =
+        "INSERT INTO order_rollups_hourly (orders_count, revenue, delivery_fees, cancelled_count, bucket) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPDATE_STATUS =
+        "UPDATE order_status_rollups SET order_count = order_count + ? WHERE bucket = ? AND status = ?";
+    private static final String INSERT_STATUS =
+        "INSERT INTO order_status_rollups (order_count, bucket, status) VALUES (?, ?, ?)";
+    private static final String UPDATE_SALES =
+        "UPDATE product_sales_rollups SET units = units + ?, revenue = revenue + ? WHERE sales_day = ? AND product_id = ?";
+    private static final String INSERT_SALES =
+        "INSERT INTO product_sales_rollups (units, revenue, sales_day, product_id) VALUES (?, ?, ?, ?)";
+
+    // One row per order item (or one with null item columns for an order without items)
+    private static final String SCAN_ORDERS =
+        "SELECT o.id, o.created_at, o.status, o.total_amount, o.delivery_fee, oi.product_id, oi.quantity, oi.price " +
+        "FROM orders o LEFT JOIN order_items oi ON oi.order_id = o.id WHERE o.id BETWEEN ? AND ? ORDER BY o.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final long gapWindowMillis;
+    private final int rebuildThreads;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private volatile Map<String, Object> lastRebuild;
+
+    private record StatusKey(LocalDateTime bucket, String status) {}
+    private record SalesKey(LocalDate day, long productId) {}
+    private record Event(long id, long orderId, String oldStatus, String newStatus) {}
+    private record OrderFacts(LocalDateTime bucket, BigDecimal total, BigDecimal fee) {}
+    private record Item(long productId, long units, BigDecimal revenue) {}
+    private record Chunk(Rollup rollup, List<Long> events) {}
+
+    private static final class HourTotals {
+        long orders;
+        BigDecimal revenue = BigDecimal.ZERO;
+        BigDecimal fees = BigDecimal.ZERO;
+        long cancelled;
+    }
+
+    private static final class SalesTotals {
+        long units;
+        BigDecimal revenue = BigDecimal.ZERO;
+    }
+
+    // Either deltas to add to the tables (consumer) or their full contents (rebuild)
+    private static final class Rollup {
+        final Map<LocalDateTime, HourTotals> hours = new HashMap<>();
+        final Map<StatusKey, Long> statuses = new HashMap<>();
+        final Map<SalesKey, SalesTotals> sales = new HashMap<>();
+
+        void hour(LocalDateTime bucket, long orders, BigDecimal revenue, BigDecimal fees, long cancelled) {
+            HourTotals t = hours.computeIfAbsent(bucket, b -> new HourTotals());
+            t.orders += orders;
+            t.revenue = t.revenue.add(revenue);
+            t.fees = t.fees.add(fees);
+            t.cancelled += cancelled;
+        }
+
+        void status(LocalDateTime bucket, String status, long delta) {
+            statuses.merge(new StatusKey(bucket, status), delta, Long::sum);
+        }
+
+        void sale(LocalDate day, long productId, long units, BigDecimal revenue) {
+            SalesTotals t = sales.computeIfAbsent(new SalesKey(day, productId), k -> new SalesTotals());
+            t.units += units;
+            t.revenue = t.revenue.add(revenue);
+        }
+
+        void merge(Rollup other) {
+            other.hours.forEach((b, t) -> hour(b, t.orders, t.revenue, t.fees, t.cancelled));
+            other.statuses.forEach((k, d) -> statuses.merge(k, d, Long::sum));
+            other.sales.forEach((k, t) -> sale(k.day(), k.productId(), t.units, t.revenue));
+        }
+    }
+
+    public OrderRollupService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                              @Value("${rollups.gap-window-millis:600000}") long gapWindowMillis,
+                              @Value("${rollups.rebuild-threads:4}") int rebuildThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        // Each rebuild chunk reads its orders and their outbox rows from one snapshot
+        this.snapshotTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+        this.gapWindowMillis = gapWindowMillis;
+        this.rebuildThreads = Math.max(1, rebuildThreads);
+    }
+
+    // The first instance to create the cursor row also fills the tables from the orders placed so far
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.update("INSERT INTO rollup_state (id, last_event_id) VALUES (?, 0)", RollupState.ID));
+        } catch (DataIntegrityViolationException e) {
+            return;
+        }
+        log.info("Dashboard rollups initialised, rebuilding from existing orders");
+        startRebuild();
+    }
+
+    public boolean isRebuilding() {
+        return rebuilding.get();
+    }
+
+    public Map<String, Object> getLastRebuild() {
+        return lastRebuild;
+    }
+
+    // ---------------------------------------------------------------- incremental consumer
+
+    @Scheduled(fixedDelayString = "${rollups.poll-ms:5000}")
+    public void poll() {
+        // A rebuild on this instance replaces the tables and the cursor; the next poll continues from there
+        if (rebuilding.get()) return;
+        try {
+            while (true) {
+                Integer applied = transactionTemplate.execute(status -> applyBatch());
+                if (applied == null || applied < BATCH_SIZE) return;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to update dashboard rollups: {}", e.getMessage());
+        }
+    }
+
+    private int applyBatch() {
+        List<Long> locked = jdbcTemplate.queryForList(LOCK_CURSOR, Long.class);
+        if (locked.isEmpty()) return 0;
+        long cursor = locked.get(0);
+        List<Event> events = jdbcTemplate.query(SELECT_EVENTS, (rs, i) -> new Event(rs.getLong(1), rs.getLong(2),
+            rs.getString(3), rs.getString(4)), cursor, BATCH_SIZE);
+        if (!events.isEmpty()) {
+            applyEvents(events);
+            jdbcTemplate.batchUpdate(MARK_APPLIED, events.stream().map(e -> new Object[] { e.id() }).toList());
+        }
+        long advanced = advance(cursor);
+        if (advanced > cursor) {
+            jdbcTemplate.update(FORGET_APPLIED, advanced);
+            jdbcTemplate.update(MOVE_CURSOR, advanced);
+        }
+        return events.size();
+    }
+
+    // Walks the applied run above the cursor; a missing id is waited for until the row after it is older than the gap window
+    private long advance(long cursor) {
+        Timestamp horizon = horizon();
+        long[] low = { cursor };
+        boolean[] blocked = new boolean[1];
+        jdbcTemplate.query(SELECT_PROGRESS, (RowCallbackHandler) rs -> {
+            if (blocked[0]) return;
+            long id = rs.getLong(1);
+            Timestamp createdAt = rs.getTimestamp(2);
+            boolean applied = rs.getObject(3) != null;
+            boolean gap = id != low[0] + 1;
+            if (!applied || (gap && createdAt != null && !createdAt.before(horizon))) {
+                blocked[0] = true;
+                return;
+            }
+            low[0] = id;
+        }, cursor, BATCH_SIZE * 4);
+        return low[0];
+    }
+
+    private Timestamp horizon() {
+        return Timestamp.valueOf(LocalDateTime.now().minusNanos(gapWindowMillis * 1_000_000));
+    }
+
+    private void applyEvents(List<Event> events) {
+
+        List<Long> orderIds = events.stream().map(Event::orderId).distinct().toList();
+        Map<Long, OrderFacts> orders = new HashMap<>();
+        namedJdbcTemplate.query("SELECT id, created_at, total_amount, delivery_fee FROM orders WHERE id IN (:ids)",
+            new MapSqlParameterSource("ids", orderIds), (RowCallbackHandler) rs -> orders.put(rs.getLong(1), new OrderFacts(
+                hourOf(rs.getTimestamp(2)), amount(rs.getBigDecimal(3)), amount(rs.getBigDecimal(4)))));
+
+        // Items are only needed for placements and cancellations
+        List<Long> itemOrderIds = events.stream()
+            .filter(e -> e.oldStatus() == null || (CANCELLED.equals(e.newStatus()) && !CANCELLED.equals(e.oldStatus())))
+            .map(Event::orderId).distinct().toList();
+        Map<Long, List<Item>> items = new HashMap<>();
+        if (!itemOrderIds.isEmpty()) {
+            namedJdbcTemplate.query("SELECT order_id, product_id, quantity, price FROM order_items WHERE order_id IN (:ids)",
+                new MapSqlParameterSource("ids", itemOrderIds), (RowCallbackHandler) rs -> {
+                    long units = rs.getLong(3);
+                    items.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>())
+                        .add(new Item(rs.getLong(2), units, amount(rs.getBigDecimal(4)).multiply(BigDecimal.valueOf(units))));
+                });
+        }
+
+        Rollup delta = new Rollup();
+        for (Event event : events) {
+            OrderFacts order = orders.get(event.orderId());
+            if (order == null || event.newStatus() == null || event.newStatus().equals(event.oldStatus())) continue;
+            LocalDate day = order.bucket().toLocalDate();
+            if (event.oldStatus() == null) {
+                delta.hour(order.bucket(), 1, order.total(), order.fee(), 0);
+                for (Item item : items.getOrDefault(event.orderId(), List.of())) {
+                    delta.sale(day, item.productId(), item.units(), item.revenue());
+                }
+            } else {
+                delta.status(order.bucket(), event.oldStatus(), -1);
+                if (CANCELLED.equals(event.newStatus())) {
+                    delta.hour(order.bucket(), 0, order.total().negate(), order.fee().negate(), 1);
+                    for (Item item : items.getOrDefault(event.orderId(), List.of())) {
+                        delta.sale(day, item.productId(), -item.units(), item.revenue().negate());
+                    }
+                }
+            }
+            delta.status(order.bucket(), event.newStatus(), 1);
+        }
+        applyDelta(delta);
+    }
+
+    // Update-then-insert works on every database; the cursor row lock keeps two writers from inserting the same key
+    private void applyDelta(Rollup delta) {
+        List<Object[]> hours = new ArrayList<>();
+        delta.hours.forEach((bucket, t) -> hours.add(new Object[] { t.orders, t.revenue, t.fees, t.cancelled, Timestamp.valueOf(bucket) }));
+        upsert(UPDATE_HOUR, INSERT_HOUR, hours);
+
+        List<Object[]> statuses = new ArrayList<>();
+        delta.statuses.forEach((key, d) -> {
+            if (d != 0) statuses.add(new Object[] { d, Timestamp.valueOf(key.bucket()), key.status() });
+        });
+        upsert(UPDATE_STATUS, INSERT_STATUS, statuses);
+
+        List<Object[]> sales = new ArrayList<>();
+        delta.sales.forEach((key, t) -> sales.add(new Object[] { t.units, t.revenue, Date.valueOf(key.day()), key.productId() }));
+        upsert(UPDATE_SALES, INSERT_SALES, sales);
+    }
+
+    private void upsert(String update, String insert, List<Object[]> rows) {
+        if (rows.isEmpty()) return;
+        int[] counts = jdbcTemplate.batchUpdate(update, rows);
+        List<Object[]> missing = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) missing.add(rows.get(i));
+        }
+        if (!missing.isEmpty()) jdbcTemplate.batchUpdate(insert, missing);
+    }
+
+    // ---------------------------------------------------------------- rebuild
+
+    /**
+     * Recompute the rollups from orders/order_items in the background.
+     * Throws IllegalStateException if a rebuild is already running on this instance.
+     */
+    public void startRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new IllegalStateException("A rollup rebuild is already running");
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("status", "RUNNING");
+        report.put("startedAt", LocalDateTime.now());
+        lastRebuild = report;
+        Thread thread = new Thread(() -> {
+            Map<String, Object> result = new LinkedHashMap<>(report);
+            try {
+                result.putAll(rebuild());
+                result.put("status", "COMPLETED");
+                log.info("Dashboard rollups rebuilt: {} orders", result.get("orders"));
+            } catch (RuntimeException e) {
+                result.put("status", "FAILED");
+                result.put("error", e.getMessage());
+                log.warn("Dashboard rollup rebuild failed: {}", e.getMessage());
+            } finally {
+                result.put("finishedAt", LocalDateTime.now());
+                lastRebuild = result;
+                rebuilding.set(false);
+            }
+        }, "rollup-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /*
+     * The scan is not one transaction. Each chunk reads its orders and their outbox rows from one snapshot, so
+     * it knows exactly which events its figures already include. The cursor is set to the newest outbox row
+     * older than the gap window (everything up to it has committed, or is given up on just as the consumer
+     * would), and the included events above it are recorded as applied. Changes that commit while or after a
+     * chunk is read are then left to the consumer, so a busy shop does not keep the rebuild from finishing.
+     */
+    private Map<String, Object> rebuild() {
+        Long base = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM order_outbox WHERE created_at < ?",
+            Long.class, horizon());
+        long position = base == null ? 0 : base;
+
+        long[] orderCount = new long[1];
+        List<Long> included = new ArrayList<>();
+        Rollup rollup = scan(position, orderCount, included);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (jdbcTemplate.queryForList(LOCK_CURSOR, Long.class).isEmpty()) {
+                jdbcTemplate.update("INSERT INTO rollup_state (id, last_event_id) VALUES (?, 0)", RollupState.ID);
+            }
+            replaceAll(rollup);
+            jdbcTemplate.update("DELETE FROM rollup_applied_events");
+            batchInsert(MARK_APPLIED, included.stream().map(id -> new Object[] { id }).toList());
+            jdbcTemplate.update(MOVE_CURSOR, position);
+        });
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("orders", orderCount[0]);
+        result.put("hours", rollup.hours.size());
+        result.put("productDays", rollup.sales.size());
+        result.put("lastEventId", position);
+        result.put("includedEvents", included.size());
+        return result;
+    }
+
+    private Rollup scan(long position, long[] orderCount, List<Long> included) {
+        Long minId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM orders", Long.class);
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM orders", Long.class);
+        Rollup total = new Rollup();
+        if (minId == null || maxId == null) return total;
+
+        ExecutorService executor = Executors.newFixedThreadPool(rebuildThreads);
+        try {
+            List<Future<Chunk>> chunks = new ArrayList<>();
+            for (long from = minId; from <= maxId; from += REBUILD_CHUNK) {
+                long lo = from;
+                long hi = Math.min(maxId, from + REBUILD_CHUNK - 1);
+                chunks.add(executor.submit(() -> snapshotTransaction.execute(status -> scanChunk(lo, hi, position))));
+            }
+            for (Future<Chunk> chunk : chunks) {
+                Chunk part = chunk.get();
+                total.merge(part.rollup());
+                included.addAll(part.events());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Rollup rebuild interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new IllegalStateException("Rollup rebuild failed: " + cause.getMessage(), cause);
+        } finally {
+            executor.shutdownNow();
+        }
+        total.hours.values().forEach(t -> orderCount[0] += t.orders);
+        return total;
+    }
+
+    // Runs in a snapshot transaction, so the events read here are exactly the ones the scanned orders reflect
+    private Chunk scanChunk(long fromId, long toId, long position) {
+        List<Long> events = jdbcTemplate.queryForList(
+            "SELECT id FROM order_outbox WHERE id > ? AND order_id BETWEEN ? AND ?", Long.class, position, fromId, toId);
+        Rollup part = new Rollup();
+        long[] lastOrder = { -1 };
+        boolean[] cancelled = new boolean[1];
+        LocalDateTime[] bucket = new LocalDateTime[1];
+        jdbcTemplate.query(SCAN_ORDERS, (RowCallbackHandler) rs -> {
+            long orderId = rs.getLong(1);
+            if (orderId != lastOrder[0]) {
+                lastOrder[0] = orderId;
+                bucket[0] = hourOf(rs.getTimestamp(2));
+                String status = rs.getString(3);
+                cancelled[0] = CANCELLED.equals(status);
+                BigDecimal total = amount(rs.getBigDecimal(4));
+                BigDecimal fee = amount(rs.getBigDecimal(5));
+                if (cancelled[0]) {
+                    part.hour(bucket[0], 1, BigDecimal.ZERO, BigDecimal.ZERO, 1);
+                } else {
+                    part.hour(bucket[0], 1, total, fee, 0);
+                }
+                if (status != null) part.status(bucket[0], status, 1);
+            }
+            long productId = rs.getLong(6);
+            if (!rs.wasNull() && !cancelled[0]) {
+                long units = rs.getLong(7);
+                part.sale(bucket[0].toLocalDate(), productId, units, amount(rs.getBigDecimal(8)).multiply(BigDecimal.valueOf(units)));
+            }
+        }, fromId, toId);
+        return new Chunk(part, events);
+    }
+
+    private void replaceAll(Rollup rollup) {
+        jdbcTemplate.update("DELETE FROM order_rollups_hourly");
+        jdbcTemplate.update("DELETE FROM order_status_rollups");
+        jdbcTemplate.update("DELETE FROM product_sales_rollups");
+
+        List<Object[]> hours = new ArrayList<>();
+        rollup.hours.forEach((bucket, t) -> hours.add(new Object[] { t.orders, t.revenue, t.fees, t.cancelled, Timestamp.valueOf(bucket) }));
+        batchInsert(INSERT_HOUR, hours);
+
+        List<Object[]> statuses = new ArrayList<>();
+        rollup.statuses.forEach((key, count) -> {
+            if (count != 0) statuses.add(new Object[] { count, Timestamp.valueOf(key.bucket()), key.status() });
+        });
+        batchInsert(INSERT_STATUS, statuses);
+
+        List<Object[]> sales = new ArrayList<>();
+        rollup.sales.forEach((key, t) -> sales.add(new Object[] { t.units, t.revenue, Date.valueOf(key.day()), key.productId() }));
+        batchInsert(INSERT_SALES, sales);
+    }
+
+    private void batchInsert(String sql, List<Object[]> rows) {
+        for (int i = 0; i < rows.size(); i += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(i, Math.min(rows.size(), i + BATCH_SIZE)));
+        }
+    }
+
+    // ---------------------------------------------------------------- reads
+
+    /**
+     * Dashboard figures for the days from..to (inclusive): totals, a per-day or per-hour series, current
+     * status counts of the orders placed in the range, and the best-selling products by units.
+     */
+    public Map<String, Object> getStats(LocalDate from, LocalDate to, String granularity) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("At most " + MAX_RANGE_DAYS + " days per request");
+        }
+        boolean hourly = "hour".equalsIgnoreCase(granularity);
+        if (!hourly && !"day".equalsIgnoreCase(granularity)) {
+            throw new IllegalArgumentException("granularity must be 'day' or 'hour'");
+        }
+        Timestamp start = Timestamp.valueOf(from.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(to.plusDays(1).atStartOfDay());
+
+        // Per-day points are summed here rather than in SQL, which keeps the query free of date functions
+        Map<LocalDateTime, HourTotals> series = new TreeMap<>();
+        HourTotals totals = new HourTotals();
+        jdbcTemplate.query("SELECT bucket, orders_count, revenue, delivery_fees, cancelled_count FROM order_rollups_hourly " +
+                "WHERE bucket >= ? AND bucket < ?", (RowCallbackHandler) rs -> {
+            LocalDateTime bucket = rs.getTimestamp(1).toLocalDateTime();
+            LocalDateTime key = hourly ? bucket : bucket.truncatedTo(ChronoUnit.DAYS);
+            HourTotals point = series.computeIfAbsent(key, k -> new HourTotals());
+            for (HourTotals t : List.of(point, totals)) {
+                t.orders += rs.getLong(2);
+                t.revenue = t.revenue.add(amount(rs.getBigDecimal(3)));
+                t.fees = t.fees.add(amount(rs.getBigDecimal(4)));
+                t.cancelled += rs.getLong(5);
+            }
+        }, start, end);
+
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT status, SUM(order_count) FROM order_status_rollups WHERE bucket >= ? AND bucket < ? " +
+                "GROUP BY status ORDER BY status", (RowCallbackHandler) rs -> {
+            long count = rs.getLong(2);
+            if (count != 0) byStatus.put(rs.getString(1), count);
+        }, start, end);
+
+        List<Map<String, Object>> topProducts = jdbcTemplate.query(
+            "SELECT r.product_id, p.name, SUM(r.units) AS units, SUM(r.revenue) AS revenue FROM product_sales_rollups r " +
+            "LEFT JOIN products p ON p.id = r.product_id WHERE r.sales_day >= ? AND r.sales_day <= ? " +
+            "GROUP BY r.product_id, p.name HAVING SUM(r.units) > 0 ORDER BY units DESC, r.product_id LIMIT ?",
+            (rs, i) -> {
+                Map<String, Object> product = new LinkedHashMap<>();
+                product.put("productId", rs.getLong(1));
+                product.put("name", rs.getString(2));
+                product.put("units", rs.getLong(3));
+                product.put("revenue", amount(rs.getBigDecimal(4)));
+                return product;
+            }, Date.valueOf(from), Date.valueOf(to), TOP_PRODUCTS);
+
+        List<Map<String, Object>> points = new ArrayList<>(series.size());
+        series.forEach((bucket, t) -> {
+            Map<String, Object> point = toMap(t);
+            point.put(hourly ? "hour" : "date", hourly ? bucket : bucket.toLocalDate());
+            points.add(point);
+        });
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("from", from);
+        stats.put("to", to);
+        stats.put("granularity", hourly ? "hour" : "day");
+        stats.put("totals", toMap(totals));
+        stats.put("series", points);
+        stats.put("byStatus", byStatus);
+        stats.put("topProducts", topProducts);
+        return stats;
+    }
+
+    private static Map<String, Object> toMap(HourTotals t) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("orders", t.orders);
+        map.put("cancelled", t.cancelled);
+        map.put("revenue", t.revenue);
+        map.put("deliveryFees", t.fees);
+        return map;
+    }
+
+    private static LocalDateTime hourOf(Timestamp createdAt) {
+        LocalDateTime at = createdAt != null ? createdAt.toLocalDateTime() : LocalDateTime.now();
+        return at.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static BigDecimal amount(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
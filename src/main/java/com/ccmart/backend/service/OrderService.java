@@ -2,27 +2,47 @@ package com.ccmart.backend.service;
 
 import com.ccmart.backend.model.Order;
 import com.ccmart.backend.model.OrderItem;
+import com.ccmart.backend.model.OrderStatus;
 import com.ccmart.backend.model.Product;
 import com.ccmart.backend.repository.OrderRepository;
 import com.ccmart.backend.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 public class OrderService {
 
+    private static final Logger log = LoggerFactory.getLogger(OrderService.class);
+
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
-    private final NotificationService notificationService;
+    private final OrderOutbox orderOutbox;
+    private final InventoryService inventoryService;
+    private final StockHoldService stockHoldService;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final OrderLifecycleService orderLifecycleService;
+    private final DeliverySlotService deliverySlotService;
 
     public OrderService(OrderRepository orderRepository, ProductRepository productRepository,
-                       NotificationService notificationService) {
+                       OrderOutbox orderOutbox, InventoryService inventoryService,
+                       StockHoldService stockHoldService, OrderNumberGenerator orderNumberGenerator,
+                       OrderLifecycleService orderLifecycleService, DeliverySlotService deliverySlotService) {
         this.orderRepository = orderRepository;
         this.productRepository = productRepository;
-        this.notificationService = notificationService;
+        this.orderOutbox = orderOutbox;
+        this.inventoryService = inventoryService;
+        this.stockHoldService = stockHoldService;
+        this.orderNumberGenerator = orderNumberGenerator;
+        this.orderLifecycleService = orderLifecycleService;
+        this.deliverySlotService = deliverySlotService;
     }
 
     @Transactional
@@ -33,40 +53,46 @@ public class OrderService {
                 throw new IllegalArgumentException("Order must contain at least one item");
             }
             
-            BigDecimal total = BigDecimal.ZERO;
-            
+            // Units per product (lines for the same product are merged), validated before touching stock
+            Map<Long, Integer> quantities = new TreeMap<>();
             for (OrderItem it : order.getItems()) {
-                // Validate product ID
                 if (it.getProduct() == null || it.getProduct().getId() == null) {
                     throw new IllegalArgumentException("Invalid product in order item");
                 }
-                
-                Long pid = it.getProduct().getId();
-                Optional<Product> pOpt = productRepository.findById(pid);
-                
-                if (pOpt.isEmpty()) {
-                    throw new IllegalArgumentException("Product not found with ID: " + pid);
+                if (it.getQuantity() == null || it.getQuantity() <= 0) {
+                    throw new IllegalArgumentException("Quantity must be at least 1");
                 }
-                
-                Product p = pOpt.get();
-                
-                // Check stock availability
-                if (p.getStockQuantity() < it.getQuantity()) {
-                    throw new IllegalArgumentException("Insufficient stock for " + p.getName() + 
-                        ". Available: " + p.getStockQuantity() + ", Requested: " + it.getQuantity());
+                quantities.merge(it.getProduct().getId(), it.getQuantity(), Integer::sum);
+            }
+
+            // Units already held by the customer's cart are used as they are; only the rest is reserved now,
+            // with conditional decrements in product-id order. Any shortfall (or unknown product) throws and
+            // rolls the whole order back.
+            Long userId = order.getUser() != null ? order.getUser().getId() : null;
+            Map<Long, Integer> unheld = stockHoldService.consume(userId, quantities);
+            if (!unheld.isEmpty()) {
+                inventoryService.reserve(unheld);
+            }
+
+            // Loaded after the decrements (which clear the persistence context), so the response shows the new
+            // stock. One query for all products instead of one per line.
+            Map<Long, Product> products = new HashMap<>();
+            for (Product p : productRepository.findAllById(quantities.keySet())) {
+                products.put(p.getId(), p);
+            }
+            for (Long pid : quantities.keySet()) {
+                if (!products.containsKey(pid)) {
+                    throw new IllegalArgumentException("Product not found with ID: " + pid);
                 }
-                
-                // Set order item details
+            }
+
+            BigDecimal total = BigDecimal.ZERO;
+            for (OrderItem it : order.getItems()) {
+                Product p = products.get(it.getProduct().getId());
+                it.setProduct(p);
                 it.setPrice(p.getPrice());
                 it.setOrder(order);
-                
-                // Calculate total
-                BigDecimal itemTotal = p.getPrice().multiply(new BigDecimal(it.getQuantity()));
-                total = total.add(itemTotal);
-                
-                // Update stock
-                p.setStockQuantity(p.getStockQuantity() - it.getQuantity());
-                productRepository.save(p);
+                total = total.add(p.getPrice().multiply(new BigDecimal(it.getQuantity())));
             }
             
             // Get delivery fee from order (sent from frontend) or default to 0
@@ -75,56 +101,43 @@ public class OrderService {
             // Calculate final total (items total + delivery fee)
             BigDecimal finalTotal = total.add(deliveryFee);
             
-            // Log the calculation for debugging
-            System.out.println("📦 Order Calculation:");
-            System.out.println("   Items Subtotal: Rs. " + total);
-            System.out.println("   Delivery Fee: Rs. " + deliveryFee);
-            System.out.println("   Final Total: Rs. " + finalTotal);
-            
             // Set order total amount (includes delivery fee)
             order.setTotalAmount(finalTotal);
             
+            // A place in the chosen delivery slot, taken atomically; a full slot rolls the order back like a stock shortfall
+            DeliverySlotService.Reservation slot = deliverySlotService.reserve(order.getDeliveryDate(), order.getDeliveryTime());
+            order.setDeliverySlotId(slot != null ? slot.slotId() : null);
+            if (slot != null) {
+                order.setDeliveryTime(slot.window());
+            }
+
+            // Always server-assigned (a client-supplied number could collide), unique across instances
+            order.setOrderNumber(orderNumberGenerator.next());
+
             // Save order
             Order savedOrder = orderRepository.save(order);
             
-            // Create notification for order placement
-            try {
-                notificationService.createOrderNotification(savedOrder, null, savedOrder.getStatus());
-                System.out.println("✅ Notification created for new order: " + savedOrder.getId());
-            } catch (Exception notifEx) {
-                // Log but don't fail the order creation
-                System.err.println("⚠️ Failed to create notification for order " + savedOrder.getId() + ": " + notifEx.getMessage());
-            }
+            // The "order placed" notification is created by the outbox dispatcher after commit
+            orderOutbox.statusChanged(savedOrder, null, savedOrder.getStatus());
             
             // Return saved order
             return savedOrder;
             
         } catch (Exception ex) {
-            // Log and rethrow
-            System.err.println("Error creating order: " + ex.getMessage());
-            ex.printStackTrace();
+            log.debug("Error creating order: {}", ex.getMessage(), ex);
             throw ex;
         }
     }
 
+    // Restocking, refund status and the outbox event are handled by the lifecycle transition
     @Transactional
     public void cancelOrder(Long orderId) throws IllegalArgumentException {
-        Optional<Order> oOpt = orderRepository.findById(orderId);
-        if (oOpt.isEmpty()) throw new IllegalArgumentException("Order not found");
-        Order order = oOpt.get();
-        if (order.getStatus().equals("delivered") || order.getStatus().equals("cancelled")) {
-            throw new IllegalArgumentException("Order cannot be cancelled");
-        }
-        // restore stock
-        if (order.getItems() != null) {
-            for (OrderItem it : order.getItems()) {
-                Product p = it.getProduct();
-                p.setStockQuantity(p.getStockQuantity() + it.getQuantity());
-                productRepository.save(p);
-            }
+        Map<String, Object> result = orderLifecycleService.transition(List.of(orderId), OrderStatus.CANCELLED);
+        @SuppressWarnings("unchecked")
+        Map<Long, String> skipped = (Map<Long, String>) result.get("skipped");
+        if (skipped.containsKey(orderId)) {
+            String reason = skipped.get(orderId);
+            throw new IllegalArgumentException(OrderLifecycleService.NOT_FOUND.equals(reason) ? reason : "Order cannot be cancelled");
         }
-        order.setStatus("cancelled");
-        order.setPaymentStatus("refunded");
-        orderRepository.save(order);
     }
 }
@@ -0,0 +1,146 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.dto.ProductSummaryDTO;
+import com.ccmart.backend.event.CategoryChangedEvent;
+import com.ccmart.backend.event.ProductChangedEvent;
+import com.ccmart.backend.model.ProductChange;
+import com.ccmart.backend.repository.ProductChangeRepository;
+import com.ccmart.backend.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Product change log for delta sync. Every product write appends a product_changes row in the same
+ * transaction; clients keep the last token they saw and ask for what changed after it.
+ *
+ * Auto-increment ids are handed out at insert time but become visible at commit, so a slow transaction can
+ * commit a lower id after a client has already read past it. Rows are therefore only served once they are
+ * older than a short settle window, which is far longer than any product write transaction.
+ *
+ * A snapshot is paged by product id: the first page pins the token, and the client keeps passing that token
+ * with the last product id it got (after=) until hasMore is false, then switches to deltas from the token.
+ */
+@Service
+public class ProductChangeService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductChangeService.class);
+
+    private final ProductChangeRepository productChangeRepository;
+    private final ProductRepository productRepository;
+    private final long settleMillis;
+    private final int retentionDays;
+
+    public ProductChangeService(ProductChangeRepository productChangeRepository, ProductRepository productRepository,
+                                @Value("${catalog.changes.settle-millis:2000}") long settleMillis,
+                                @Value("${catalog.changes.retention-days:30}") int retentionDays) {
+        this.productChangeRepository = productChangeRepository;
+        this.productRepository = productRepository;
+        this.settleMillis = settleMillis;
+        this.retentionDays = retentionDays;
+    }
+
+    // Runs inside the writer's transaction (or on its own when the write was not transactional)
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        switch (event.getType()) {
+            case BULK -> { } // the importer writes its own change rows per chunk
+            case DELETED -> productChangeRepository.save(new ProductChange(event.getProductId(), ProductChange.ChangeType.DELETE));
+            default -> productChangeRepository.save(new ProductChange(event.getProductId(), ProductChange.ChangeType.UPSERT));
+        }
+    }
+
+    // Products carry their category's name, so a rename is a change to every product in it
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        if (event.isRenamed()) {
+            productChangeRepository.recordCategoryChange(event.getCategoryId(), LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Changes after the given token, collapsed per product: current rows for products that still exist
+     * (deactivated ones included, with isActive=false) and tombstone ids for hard-deleted ones.
+     * A missing/zero token, or one older than the retained log, starts a snapshot with reset=true; a
+     * non-null {@code after} continues the snapshot pinned to {@code since}.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> changesSince(Long since, Long after, int limit) {
+        if (after != null && since != null && since >= 0) {
+            return snapshotPage(since, after, limit, false);
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(settleMillis * 1_000_000L);
+        Long minId = productChangeRepository.findMinId();
+        Long maxId = productChangeRepository.findMaxId();
+        boolean expired = since != null && since > 0 && minId != null && since < minId - 1;
+        boolean unknown = since != null && since > 0 && (maxId == null || since > maxId);
+        if (since == null || since <= 0 || expired || unknown) {
+            Long token = productChangeRepository.findMaxSettledId(cutoff);
+            return snapshotPage(token == null ? 0L : token, 0L, limit, true);
+        }
+
+        List<ProductChange> changes = productChangeRepository.findSettledSince(since, cutoff, PageRequest.of(0, limit));
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (ProductChange change : changes) productIds.add(change.getProductId());
+
+        List<ProductSummaryDTO> products = productIds.isEmpty() ? List.of() : productRepository.findSummariesByIds(productIds);
+        Set<Long> existing = new LinkedHashSet<>();
+        for (ProductSummaryDTO p : products) existing.add(p.getId());
+        List<Long> deleted = new ArrayList<>();
+        for (Long id : productIds) {
+            if (!existing.contains(id)) deleted.add(id);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("token", changes.isEmpty() ? since : changes.get(changes.size() - 1).getId());
+        result.put("reset", false);
+        result.put("products", products);
+        result.put("deleted", deleted);
+        result.put("hasMore", changes.size() == limit);
+        return result;
+    }
+
+    /*
+     * One snapshot page of products after the given id. The token was taken before the first page was read, so
+     * anything written while the client pages through is also returned by the first delta, which is harmless.
+     */
+    private Map<String, Object> snapshotPage(long token, long afterId, int limit, boolean reset) {
+        List<ProductSummaryDTO> rows = productRepository.findSummariesAfter(afterId, PageRequest.of(0, limit + 1));
+        boolean hasMore = rows.size() > limit;
+        List<ProductSummaryDTO> products = hasMore ? rows.subList(0, limit) : rows;
+        Map<String, Object> result = new HashMap<>();
+        result.put("token", token);
+        result.put("reset", reset);
+        result.put("products", products);
+        result.put("deleted", List.of());
+        result.put("hasMore", hasMore);
+        if (hasMore) result.put("after", products.get(products.size() - 1).getId());
+        return result;
+    }
+
+    // Nightly trim of the log. The newest row is always kept so old tokens can still be recognised as expired.
+    @Scheduled(cron = "${catalog.changes.purge-cron:0 30 3 * * *}")
+    @Transactional
+    public void purgeOldChanges() {
+        Long maxId = productChangeRepository.findMaxId();
+        if (maxId == null) return;
+        int removed = productChangeRepository.deleteOlderThan(LocalDateTime.now().minusDays(retentionDays), maxId);
+        if (removed > 0) {
+            log.info("Purged {} product change log rows older than {} days", removed, retentionDays);
+        }
+    }
+}
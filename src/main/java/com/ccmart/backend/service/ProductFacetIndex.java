@@ -0,0 +1,329 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.dto.ProductSummaryDTO;
+import com.ccmart.backend.event.CategoryChangedEvent;
+import com.ccmart.backend.event.ProductChangedEvent;
+import com.ccmart.backend.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Bitmap index for storefront filters. Every facet value (category, featured, active, in stock, price band)
+ * owns a bitmap of product ids, so a filter is a handful of AND/OR operations and facet counts are cardinalities.
+ * Product ids are dense auto-increment values, which keeps plain BitSets small.
+ * Updates that arrive while a rebuild is loading are recorded and replayed onto the fresh bitmaps before
+ * they are swapped in, as in ProductSearchIndex.
+ */
+@Service
+public class ProductFacetIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    // Lower bounds of the price bands; the last band is open-ended
+    private static final BigDecimal[] PRICE_BANDS = {
+        BigDecimal.ZERO, new BigDecimal("100"), new BigDecimal("250"), new BigDecimal("500"),
+        new BigDecimal("1000"), new BigDecimal("2500"), new BigDecimal("5000")
+    };
+
+    private final ProductRepository productRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // One rebuild at a time
+    private final Object rebuildLock = new Object();
+
+    private Bitmaps bitmaps = new Bitmaps();
+    // Updates made since the running rebuild started loading; null when no rebuild runs. Guarded by the write lock.
+    private List<Consumer<Bitmaps>> replay;
+
+    private static class Bitmaps {
+        final BitSet all = new BitSet();
+        final BitSet featured = new BitSet();
+        final BitSet active = new BitSet();
+        final BitSet inStock = new BitSet();
+        final Map<Long, BitSet> categories = new HashMap<>();
+        final BitSet[] priceBands = new BitSet[PRICE_BANDS.length];
+        // id -> row returned to the client (and the values needed to clear its bits again)
+        final Map<Integer, ProductSummaryDTO> rows = new HashMap<>();
+
+        Bitmaps() {
+            for (int i = 0; i < priceBands.length; i++) priceBands[i] = new BitSet();
+        }
+    }
+
+    public ProductFacetIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            lock.writeLock().lock();
+            try {
+                replay = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Bitmaps fresh = new Bitmaps();
+            boolean loaded = false;
+            try {
+                for (ProductSummaryDTO row : productRepository.findSummaries(Pageable.unpaged())) {
+                    add(fresh, row);
+                }
+                loaded = true;
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    List<Consumer<Bitmaps>> updates = replay;
+                    replay = null;
+                    if (loaded) {
+                        // In arrival order; each one is idempotent, so an update the load already saw is harmless
+                        updates.forEach(update -> update.accept(fresh));
+                        bitmaps = fresh;
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            log.info("Product facet index built: {} products", fresh.rows.size());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        switch (event.getType()) {
+            case BULK -> rebuild();
+            case DELETED -> remove(event.getProductId());
+            case STOCK_CHANGED -> updateStock(event.getProductId(), event.getStockQuantity());
+            default -> index(ProductSummaryDTO.fromProduct(event.getProduct()));
+        }
+    }
+
+    // Category rows are embedded (id and name) in every indexed product
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        rebuild();
+    }
+
+    public void index(ProductSummaryDTO row) {
+        int bit = toBit(row.getId());
+        if (bit < 0) return;
+        update(b -> {
+            clear(b, bit);
+            add(b, row);
+        });
+    }
+
+    public void updateStock(Long productId, Integer stockQuantity) {
+        int bit = toBit(productId);
+        if (bit < 0) return;
+        update(b -> {
+            ProductSummaryDTO row = b.rows.get(bit);
+            if (row == null) return;
+            row.setStockQuantity(stockQuantity);
+            b.inStock.set(bit, stockQuantity != null && stockQuantity > 0);
+        });
+    }
+
+    public void remove(Long productId) {
+        int bit = toBit(productId);
+        if (bit < 0) return;
+        update(b -> clear(b, bit));
+    }
+
+    // Applies the change to the live bitmaps, and records it for the fresh ones if a rebuild is loading
+    private void update(Consumer<Bitmaps> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(bitmaps);
+            if (replay != null) replay.add(change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Apply the filters and return one page of matching rows (in id order) plus facet counts.
+     * Each facet is counted with every filter except its own, so the UI can show what selecting
+     * another value would yield. Null filter values mean "any".
+     */
+    public Map<String, Object> filter(Set<Long> categoryIds, BigDecimal minPrice, BigDecimal maxPrice,
+                                      Boolean featured, Boolean inStock, Boolean active, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            Bitmaps b = bitmaps;
+            BitSet categoryMask = categoryIds == null || categoryIds.isEmpty() ? null : union(b, categoryIds);
+            BitSet priceMask = minPrice == null && maxPrice == null ? null : priceMask(b, minPrice, maxPrice);
+            BitSet featuredMask = flagMask(b, b.featured, featured);
+            BitSet inStockMask = flagMask(b, b.inStock, inStock);
+            BitSet activeMask = flagMask(b, b.active, active);
+
+            BitSet matches = intersect(b.all, categoryMask, priceMask, featuredMask, inStockMask, activeMask);
+
+            List<ProductSummaryDTO> items = new ArrayList<>();
+            int skipped = 0;
+            for (int bit = matches.nextSetBit(0); bit >= 0 && items.size() < limit; bit = matches.nextSetBit(bit + 1)) {
+                if (skipped++ < offset) continue;
+                items.add(b.rows.get(bit));
+            }
+
+            Map<String, Object> facets = new LinkedHashMap<>();
+            BitSet withoutCategory = intersect(b.all, priceMask, featuredMask, inStockMask, activeMask);
+            Map<Long, Integer> categoryCounts = new LinkedHashMap<>();
+            b.categories.forEach((id, bits) -> {
+                int count = andCardinality(withoutCategory, bits);
+                if (count > 0) categoryCounts.put(id, count);
+            });
+            facets.put("categories", categoryCounts);
+
+            BitSet withoutPrice = intersect(b.all, categoryMask, featuredMask, inStockMask, activeMask);
+            List<Map<String, Object>> priceCounts = new ArrayList<>();
+            for (int i = 0; i < PRICE_BANDS.length; i++) {
+                Map<String, Object> band = new LinkedHashMap<>();
+                band.put("min", PRICE_BANDS[i]);
+                band.put("max", i + 1 < PRICE_BANDS.length ? PRICE_BANDS[i + 1] : null);
+                band.put("count", andCardinality(withoutPrice, b.priceBands[i]));
+                priceCounts.add(band);
+            }
+            facets.put("priceBands", priceCounts);
+
+            facets.put("featured", andCardinality(intersect(b.all, categoryMask, priceMask, inStockMask, activeMask), b.featured));
+            facets.put("inStock", andCardinality(intersect(b.all, categoryMask, priceMask, featuredMask, activeMask), b.inStock));
+            facets.put("active", andCardinality(intersect(b.all, categoryMask, priceMask, featuredMask, inStockMask), b.active));
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("items", items);
+            result.put("total", matches.cardinality());
+            result.put("facets", facets);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return bitmaps.rows.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void add(Bitmaps b, ProductSummaryDTO row) {
+        int bit = toBit(row.getId());
+        if (bit < 0) return;
+        b.rows.put(bit, row);
+        b.all.set(bit);
+        if (Boolean.TRUE.equals(row.getIsFeatured())) b.featured.set(bit);
+        // Null isActive is treated as active, matching the storefront
+        if (!Boolean.FALSE.equals(row.getIsActive())) b.active.set(bit);
+        if (row.getStockQuantity() != null && row.getStockQuantity() > 0) b.inStock.set(bit);
+        if (row.getCategoryId() != null) {
+            b.categories.computeIfAbsent(row.getCategoryId(), k -> new BitSet()).set(bit);
+        }
+        int band = priceBand(row.getPrice());
+        if (band >= 0) b.priceBands[band].set(bit);
+    }
+
+    private static void clear(Bitmaps b, int bit) {
+        ProductSummaryDTO old = b.rows.remove(bit);
+        if (old == null) return;
+        b.all.clear(bit);
+        b.featured.clear(bit);
+        b.active.clear(bit);
+        b.inStock.clear(bit);
+        if (old.getCategoryId() != null) {
+            BitSet bits = b.categories.get(old.getCategoryId());
+            if (bits != null) {
+                bits.clear(bit);
+                if (bits.isEmpty()) b.categories.remove(old.getCategoryId());
+            }
+        }
+        for (BitSet band : b.priceBands) band.clear(bit);
+    }
+
+    private static BitSet union(Bitmaps b, Set<Long> categoryIds) {
+        BitSet result = new BitSet();
+        for (Long id : categoryIds) {
+            BitSet bits = b.categories.get(id);
+            if (bits != null) result.or(bits);
+        }
+        return result;
+    }
+
+    // Whole bands inside the range are OR-ed in; only the bands cut by a bound need per-row price checks
+    private static BitSet priceMask(Bitmaps b, BigDecimal min, BigDecimal max) {
+        BitSet result = new BitSet();
+        for (int i = 0; i < PRICE_BANDS.length; i++) {
+            BigDecimal low = PRICE_BANDS[i];
+            BigDecimal high = i + 1 < PRICE_BANDS.length ? PRICE_BANDS[i + 1] : null;
+            if (max != null && low.compareTo(max) > 0) continue;
+            if (min != null && high != null && high.compareTo(min) <= 0) continue;
+
+            boolean coveredBelow = min == null || low.compareTo(min) >= 0;
+            boolean coveredAbove = max == null || (high != null && high.compareTo(max) <= 0);
+            if (coveredBelow && coveredAbove) {
+                result.or(b.priceBands[i]);
+                continue;
+            }
+            BitSet band = b.priceBands[i];
+            for (int bit = band.nextSetBit(0); bit >= 0; bit = band.nextSetBit(bit + 1)) {
+                BigDecimal price = b.rows.get(bit).getPrice();
+                if ((min == null || price.compareTo(min) >= 0) && (max == null || price.compareTo(max) <= 0)) {
+                    result.set(bit);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static BitSet flagMask(Bitmaps b, BitSet bits, Boolean wanted) {
+        if (wanted == null) return null;
+        if (wanted) return bits;
+        BitSet negated = (BitSet) b.all.clone();
+        negated.andNot(bits);
+        return negated;
+    }
+
+    // AND of all non-null masks, starting from a copy of the base set
+    private static BitSet intersect(BitSet base, BitSet... masks) {
+        BitSet result = (BitSet) base.clone();
+        for (BitSet mask : masks) {
+            if (mask != null) result.and(mask);
+        }
+        return result;
+    }
+
+    private static int andCardinality(BitSet a, BitSet b) {
+        BitSet tmp = (BitSet) a.clone();
+        tmp.and(b);
+        return tmp.cardinality();
+    }
+
+    private static int priceBand(BigDecimal price) {
+        if (price == null || price.signum() < 0) return -1;
+        for (int i = PRICE_BANDS.length - 1; i >= 0; i--) {
+            if (price.compareTo(PRICE_BANDS[i]) >= 0) return i;
+        }
+        return -1;
+    }
+
+    private static int toBit(Long id) {
+        return id == null || id < 0 || id > Integer.MAX_VALUE ? -1 : id.intValue();
+    }
+}
@@ -0,0 +1,485 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.dto.ImportReport;
+import com.ccmart.backend.event.ProductChangedEvent;
+import com.ccmart.backend.model.Category;
+import com.ccmart.backend.repository.CategoryRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bulk product import from a CSV or NDJSON stream. Rows are parsed one at a time and written in chunks:
+ * each chunk is one transaction that looks up existing products by name with a single IN query and then
+ * issues one JDBC batch of UPDATEs and one of INSERTs. Only the current chunk is ever held in memory.
+ *
+ * Recognised fields (CSV header or JSON keys, case and underscores ignored): name, price, description,
+ * category (name) or categoryId, stockQuantity, unit, imageUrl, isActive, isFeatured. Only name and price
+ * are required; on update, missing optional fields keep their current values.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    private static final int CHUNK_SIZE = 500;
+
+    private static final String INSERT_SQL =
+        "INSERT INTO products (name, description, price, category_id, image_url, stock_quantity, unit, " +
+        "is_active, is_featured, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL =
+        "UPDATE products SET description = COALESCE(?, description), price = ?, category_id = COALESCE(?, category_id), " +
+        "image_url = COALESCE(?, image_url), stock_quantity = COALESCE(?, stock_quantity), unit = COALESCE(?, unit), " +
+        "is_active = COALESCE(?, is_active), is_featured = COALESCE(?, is_featured), updated_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CategoryRepository categoryRepository;
+    private final ImageStorageService imageStorageService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    // One import at a time; the report of the running (or last) import is kept for the status endpoint
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile ImportReport lastReport;
+
+    private static class Row {
+        long line;
+        String name;
+        String description;
+        BigDecimal price;
+        Long categoryId;
+        String imageUrl;
+        Integer stockQuantity;
+        String unit;
+        Boolean isActive;
+        Boolean isFeatured;
+    }
+
+    public ProductImportService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                CategoryRepository categoryRepository, ImageStorageService imageStorageService,
+                                ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        this.categoryRepository = categoryRepository;
+        this.imageStorageService = imageStorageService;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+    }
+
+    public ImportReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Import the stream and return the final report.
+     * Throws IllegalStateException if another import is running and IllegalArgumentException for an unusable file.
+     */
+    public ImportReport importProducts(InputStream input, String format) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Another product import is already running");
+        }
+        ImportReport report = new ImportReport(format);
+        lastReport = report;
+        Set<Long> stockSet = new HashSet<>();
+        try {
+            CategoryLookup categories = new CategoryLookup(categoryRepository.findAll());
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            Iterator<Map<String, String>> records = NDJSON.equals(format) ? new NdjsonRecords(reader) : new CsvRecords(reader);
+
+            List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+            while (records.hasNext()) {
+                Map<String, String> record = records.next();
+                long line = Long.parseLong(record.remove("#line"));
+                report.rowRead();
+                try {
+                    chunk.add(toRow(record, line, categories));
+                } catch (IllegalArgumentException e) {
+                    report.rowFailed(line, e.getMessage());
+                } catch (UncheckedIOException e) {
+                    // The row's inline image could not be written to the image store
+                    report.rowFailed(line, "Failed to store image: " + e.getCause().getMessage());
+                }
+                if (chunk.size() >= CHUNK_SIZE) {
+                    writeChunk(chunk, report, stockSet);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) writeChunk(chunk, report, stockSet);
+            report.finish("COMPLETED");
+        } catch (RuntimeException | IOException e) {
+            report.finish("FAILED");
+            throw e;
+        } finally {
+            running.set(false);
+            if (report.getInserted() + report.getUpdated() > 0) {
+                eventPublisher.publishEvent(ProductChangedEvent.bulk(stockSet));
+            }
+            log.info("Product import {}: {} rows, {} inserted, {} updated, {} failed", report.getStatus(),
+                report.getRowsRead(), report.getInserted(), report.getUpdated(), report.getFailed());
+        }
+        return report;
+    }
+
+    /**
+     * Write one chunk in a single transaction. If the batch fails (a constraint violation somewhere in it),
+     * fall back to one transaction per row so the bad rows are reported and the rest still land.
+     * Existing products whose stock a committed row set are added to stockSet.
+     */
+    private void writeChunk(List<Row> chunk, ImportReport report, Set<Long> stockSet) {
+        // Last occurrence of a name within the chunk wins
+        Map<String, Row> byName = new LinkedHashMap<>();
+        for (Row row : chunk) byName.put(row.name.toLowerCase(Locale.ROOT), row);
+        List<Row> rows = new ArrayList<>(byName.values());
+
+        try {
+            List<Long> chunkStockSet = new ArrayList<>();
+            int[] counts = transactionTemplate.execute(status -> upsert(rows, chunkStockSet));
+            report.addInserted(counts[0]);
+            report.addUpdated(counts[1]);
+            stockSet.addAll(chunkStockSet);
+            report.chunkCommitted();
+        } catch (DataAccessException e) {
+            for (Row row : rows) {
+                try {
+                    List<Long> rowStockSet = new ArrayList<>();
+                    int[] counts = transactionTemplate.execute(status -> upsert(List.of(row), rowStockSet));
+                    report.addInserted(counts[0]);
+                    report.addUpdated(counts[1]);
+                    stockSet.addAll(rowStockSet);
+                } catch (DataAccessException rowError) {
+                    report.rowFailed(row.line, rootMessage(rowError));
+                }
+            }
+            report.chunkCommitted();
+        }
+        log.debug("Product import progress: {} rows read, {} inserted, {} updated, {} failed",
+            report.getRowsRead(), report.getInserted(), report.getUpdated(), report.getFailed());
+    }
+
+    // Returns {inserted, updated}; existing products given a stock value go to stockSet. Caller provides the transaction.
+    private int[] upsert(List<Row> rows, List<Long> stockSet) {
+        Map<String, Long> existing = new HashMap<>();
+        namedJdbcTemplate.query("SELECT id, name FROM products WHERE name IN (:names) ORDER BY id",
+            Map.of("names", rows.stream().map(r -> r.name).toList()),
+            rs -> { existing.putIfAbsent(rs.getString("name").toLowerCase(Locale.ROOT), rs.getLong("id")); });
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (Row r : rows) {
+            Long id = existing.get(r.name.toLowerCase(Locale.ROOT));
+            if (id == null) {
+                inserts.add(new Object[] { r.name, r.description, r.price, r.categoryId, r.imageUrl,
+                    r.stockQuantity == null ? 0 : r.stockQuantity, r.unit == null ? "piece" : r.unit,
+                    r.isActive == null ? Boolean.TRUE : r.isActive, r.isFeatured == null ? Boolean.FALSE : r.isFeatured,
+                    now, now });
+            } else {
+                updates.add(new Object[] { r.description, r.price, r.categoryId, r.imageUrl, r.stockQuantity, r.unit,
+                    r.isActive, r.isFeatured, now, id });
+                if (r.stockQuantity != null) stockSet.add(id);
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates, new int[] { Types.VARCHAR, Types.DECIMAL, Types.BIGINT,
+                Types.VARCHAR, Types.INTEGER, Types.VARCHAR, Types.BOOLEAN, Types.BOOLEAN, Types.TIMESTAMP, Types.BIGINT });
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts, new int[] { Types.VARCHAR, Types.VARCHAR, Types.DECIMAL,
+                Types.BIGINT, Types.VARCHAR, Types.INTEGER, Types.VARCHAR, Types.BOOLEAN, Types.BOOLEAN,
+                Types.TIMESTAMP, Types.TIMESTAMP });
+        }
+        // Change-log rows for delta sync, in the same transaction as the chunk
+        namedJdbcTemplate.update("INSERT INTO product_changes (product_id, change_type, changed_at) " +
+            "SELECT id, 'UPSERT', :now FROM products WHERE name IN (:names)",
+            Map.of("now", now, "names", rows.stream().map(r -> r.name).toList()));
+        return new int[] { inserts.size(), updates.size() };
+    }
+
+    private Row toRow(Map<String, String> fields, long line, CategoryLookup categories) {
+        if (fields.containsKey("#error")) throw new IllegalArgumentException(fields.get("#error"));
+        Row row = new Row();
+        row.line = line;
+        row.name = fields.get("name");
+        if (row.name == null) throw new IllegalArgumentException("name is required");
+        if (row.name.length() > 255) throw new IllegalArgumentException("name is longer than 255 characters");
+        row.price = parseDecimal(fields.get("price"), "price");
+        if (row.price == null) throw new IllegalArgumentException("price is required");
+        if (row.price.signum() < 0) throw new IllegalArgumentException("price must not be negative");
+        row.description = fields.get("description");
+        row.stockQuantity = parseInteger(fields.get("stockquantity"), "stockQuantity");
+        if (row.stockQuantity != null && row.stockQuantity < 0) throw new IllegalArgumentException("stockQuantity must not be negative");
+        row.unit = fields.get("unit");
+        row.isActive = parseBoolean(fields.get("isactive"), "isActive");
+        row.isFeatured = parseBoolean(fields.get("isfeatured"), "isFeatured");
+
+        String categoryId = fields.get("categoryid");
+        String categoryName = fields.get("category");
+        if (categoryId != null) {
+            row.categoryId = categories.byId(parseLong(categoryId, "categoryId"));
+            if (row.categoryId == null) throw new IllegalArgumentException("Unknown categoryId " + categoryId);
+        } else if (categoryName != null) {
+            row.categoryId = categories.byName(categoryName);
+            if (row.categoryId == null) throw new IllegalArgumentException("Unknown category '" + categoryName + "'");
+        }
+
+        // Inline images go to the image store like they do for single product writes
+        row.imageUrl = imageStorageService.externalizeDataUri(fields.get("imageurl"));
+        if (row.imageUrl != null && row.imageUrl.length() > 1024) throw new IllegalArgumentException("imageUrl is longer than 1024 characters");
+        return row;
+    }
+
+    private static BigDecimal parseDecimal(String value, String field) {
+        if (value == null) return null;
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a number: " + value);
+        }
+    }
+
+    private static Integer parseInteger(String value, String field) {
+        if (value == null) return null;
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a whole number: " + value);
+        }
+    }
+
+    private static Long parseLong(String value, String field) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a whole number: " + value);
+        }
+    }
+
+    private static Boolean parseBoolean(String value, String field) {
+        if (value == null) return null;
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "1", "yes", "y" -> { return true; }
+            case "false", "0", "no", "n" -> { return false; }
+            default -> throw new IllegalArgumentException(field + " is not a boolean: " + value);
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null) root = root.getCause();
+        return root.getMessage();
+    }
+
+    // "Stock_Quantity", "stock quantity" and "stockQuantity" all become "stockquantity"
+    private static String normalizeKey(String key) {
+        return key.replaceAll("[\\s_\\-]", "").toLowerCase(Locale.ROOT);
+    }
+
+    // Blank values are treated as absent so an empty CSV cell never overwrites an existing value
+    private static void putField(Map<String, String> record, String key, String value) {
+        if (value == null) return;
+        String trimmed = value.trim();
+        if (!trimmed.isEmpty()) record.put(normalizeKey(key), trimmed);
+    }
+
+    /** Category name/id resolution from a map loaded once per import. */
+    private static class CategoryLookup {
+        private final Map<String, Long> byName = new HashMap<>();
+        private final Map<Long, Long> byId = new HashMap<>();
+
+        CategoryLookup(List<Category> categories) {
+            for (Category c : categories) {
+                byName.put(c.getName().trim().toLowerCase(Locale.ROOT), c.getId());
+                byId.put(c.getId(), c.getId());
+            }
+        }
+
+        Long byName(String name) { return byName.get(name.trim().toLowerCase(Locale.ROOT)); }
+        Long byId(Long id) { return byId.get(id); }
+    }
+
+    /**
+     * RFC 4180 CSV reader: the first record is the header, quoted fields may contain commas,
+     * doubled quotes and line breaks. Each record map carries its starting line under "#line".
+     */
+    private static class CsvRecords implements Iterator<Map<String, String>> {
+        private final BufferedReader reader;
+        private final List<String> header = new ArrayList<>();
+        private long line = 1;
+        private Map<String, String> next;
+
+        CsvRecords(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            List<String> names = readRecord();
+            if (names == null) throw new IllegalArgumentException("CSV file is empty");
+            for (String name : names) header.add(name.replace("\uFEFF", ""));
+            if (!header.stream().map(ProductImportService::normalizeKey).toList().containsAll(List.of("name", "price"))) {
+                throw new IllegalArgumentException("CSV header must contain at least 'name' and 'price' columns");
+            }
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map<String, String> next() {
+            Map<String, String> current = next;
+            try {
+                advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return current;
+        }
+
+        private void advance() throws IOException {
+            next = null;
+            while (next == null) {
+                long startLine = line;
+                List<String> values = readRecord();
+                if (values == null) return;
+                if (values.size() == 1 && values.get(0).isBlank()) continue; // blank line
+                Map<String, String> record = new HashMap<>();
+                for (int i = 0; i < header.size() && i < values.size(); i++) {
+                    putField(record, header.get(i), values.get(i));
+                }
+                record.put("#line", String.valueOf(startLine));
+                next = record;
+            }
+        }
+
+        private List<String> readRecord() throws IOException {
+            int c = reader.read();
+            if (c == -1) return null;
+            List<String> values = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) throw new IllegalArgumentException("Unterminated quoted field starting before line " + line);
+                    if (c == '"') {
+                        reader.mark(1);
+                        int peek = reader.read();
+                        if (peek == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            reader.reset();
+                        }
+                    } else {
+                        if (c == '\n') line++;
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    line++;
+                    values.add(field.toString());
+                    return values;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+        }
+    }
+
+    /** One JSON object per line; blank lines are skipped, a malformed line becomes a "#error" record. */
+    private class NdjsonRecords implements Iterator<Map<String, String>> {
+        private final BufferedReader reader;
+        private long line;
+        private Map<String, String> next;
+
+        NdjsonRecords(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map<String, String> next() {
+            Map<String, String> current = next;
+            try {
+                advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return current;
+        }
+
+        private void advance() throws IOException {
+            next = null;
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) continue;
+                Map<String, String> record = new HashMap<>();
+                try {
+                    JsonNode node = objectMapper.readTree(text);
+                    if (!node.isObject()) throw new IOException("not a JSON object");
+                    node.fields().forEachRemaining(e -> {
+                        JsonNode value = e.getValue();
+                        if (value.isNull()) return;
+                        // Nested {"category": {"id": 3}} or {"category": {"name": "Fruits"}} as produced by the API
+                        if (value.isObject() && normalizeKey(e.getKey()).equals("category")) {
+                            if (value.hasNonNull("id")) putField(record, "categoryId", value.get("id").asText());
+                            else if (value.hasNonNull("name")) putField(record, "category", value.get("name").asText());
+                            return;
+                        }
+                        putField(record, e.getKey(), value.isValueNode() ? value.asText() : value.toString());
+                    });
+                } catch (IOException e) {
+                    record.clear();
+                    record.put("#error", "Malformed JSON: " + e.getMessage());
+                }
+                record.put("#line", String.valueOf(line));
+                next = record;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.dto.ProductSummaryDTO;
+import com.ccmart.backend.event.CategoryChangedEvent;
+import com.ccmart.backend.event.ProductChangedEvent;
+import com.ccmart.backend.model.Product;
+import com.ccmart.backend.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over product name, description and category name.
+ * Built once at startup and kept current from ProductChangedEvent, so searches never touch the database.
+ * Updates that arrive while a rebuild is loading are applied to the live maps and also recorded, then
+ * replayed onto the rebuilt maps when they are swapped in, so none are lost.
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    // Field weights - a hit in the name matters more than one buried in the description
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float CATEGORY_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    // How much a non-exact term match is worth relative to an exact one
+    private static final float PREFIX_FACTOR = 0.6f;
+    private static final float FUZZY_FACTOR = 0.4f;
+
+    private final ProductRepository productRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // One rebuild at a time
+    private final Object rebuildLock = new Object();
+
+    // term -> (productId -> weight); sorted so prefix lookups are a subMap range scan
+    private TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    // productId -> indexed document (terms kept so a product can be removed without re-tokenizing)
+    private Map<Long, Doc> docs = new HashMap<>();
+    // Updates made since the running rebuild started loading; null when no rebuild runs. Guarded by the write lock.
+    private List<Runnable> replay;
+
+    private static class Doc {
+        final ProductSummaryDTO summary;
+        final Map<String, Float> terms;
+
+        Doc(ProductSummaryDTO summary, Map<String, Float> terms) {
+            this.summary = summary;
+            this.terms = terms;
+        }
+    }
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            lock.writeLock().lock();
+            try {
+                replay = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            TreeMap<String, Map<Long, Float>> newPostings = new TreeMap<>();
+            Map<Long, Doc> newDocs = new HashMap<>();
+            boolean loaded = false;
+            try {
+                for (Product p : productRepository.findAll()) {
+                    Doc doc = toDoc(p);
+                    newDocs.put(p.getId(), doc);
+                    addPostings(newPostings, p.getId(), doc);
+                }
+                loaded = true;
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    List<Runnable> updates = replay;
+                    replay = null;
+                    if (loaded) {
+                        postings = newPostings;
+                        docs = newDocs;
+                        // Replayed in arrival order; each one is idempotent, so an update the load already saw is harmless
+                        updates.forEach(Runnable::run);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            log.info("Product search index built: {} products, {} terms", newDocs.size(), newPostings.size());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        switch (event.getType()) {
+            case BULK -> rebuild();
+            case DELETED -> remove(event.getProductId());
+            case STOCK_CHANGED -> updateStock(event.getProductId(), event.getStockQuantity());
+            default -> index(event.getProduct());
+        }
+    }
+
+    // Category names are indexed with each product, so a rename needs a full rebuild
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        rebuild();
+    }
+
+    public void index(Product product) {
+        Long id = product.getId();
+        Doc doc = toDoc(product);
+        update(() -> {
+            Doc old = docs.put(id, doc);
+            if (old != null) removePostings(id, old);
+            addPostings(postings, id, doc);
+        });
+    }
+
+    // Stock does not affect matching, only the summary returned with each hit
+    public void updateStock(Long productId, Integer stockQuantity) {
+        update(() -> {
+            Doc doc = docs.get(productId);
+            if (doc != null) doc.summary.setStockQuantity(stockQuantity);
+        });
+    }
+
+    public void remove(Long productId) {
+        update(() -> {
+            Doc old = docs.remove(productId);
+            if (old != null) removePostings(productId, old);
+        });
+    }
+
+    // Applies the change to the live maps, and records it for the rebuilt ones if a rebuild is loading
+    private void update(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+            if (replay != null) replay.add(change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ranked search. Every query term must match (exactly, as a prefix, or within a small edit distance);
+     * the score is the sum of the best field-weighted match per query term.
+     */
+    public List<ProductSummaryDTO> search(String query, int limit, boolean includeInactive) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (queryTerms.isEmpty()) return List.of();
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Float> scores = null;
+            for (String term : queryTerms) {
+                Map<Long, Float> termScores = matchTerm(term);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    Map<Long, Float> merged = new HashMap<>();
+                    for (Map.Entry<Long, Float> e : scores.entrySet()) {
+                        Float s = termScores.get(e.getKey());
+                        if (s != null) merged.put(e.getKey(), e.getValue() + s);
+                    }
+                    scores = merged;
+                }
+                if (scores.isEmpty()) return List.of();
+            }
+
+            List<Map.Entry<Long, Float>> ranked = new ArrayList<>(scores.entrySet());
+            Map<Long, Doc> currentDocs = docs;
+            ranked.sort(Comparator.<Map.Entry<Long, Float>>comparingDouble(Map.Entry::getValue).reversed()
+                .thenComparing(e -> !Boolean.TRUE.equals(currentDocs.get(e.getKey()).summary.getIsFeatured()))
+                .thenComparing(e -> currentDocs.get(e.getKey()).summary.getName(), String.CASE_INSENSITIVE_ORDER));
+
+            List<ProductSummaryDTO> results = new ArrayList<>();
+            for (Map.Entry<Long, Float> e : ranked) {
+                ProductSummaryDTO summary = currentDocs.get(e.getKey()).summary;
+                if (!includeInactive && Boolean.FALSE.equals(summary.getIsActive())) continue;
+                results.add(summary);
+                if (results.size() >= limit) break;
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Best score per product for a single query term. Caller holds the read lock.
+    private Map<Long, Float> matchTerm(String term) {
+        Map<Long, Float> result = new HashMap<>();
+        Map<Long, Float> exact = postings.get(term);
+        if (exact != null) {
+            exact.forEach((id, w) -> result.merge(id, w, Math::max));
+        }
+
+        if (term.length() >= 2) {
+            NavigableMap<String, Map<Long, Float>> prefixed = postings.subMap(term, false, term + Character.MAX_VALUE, false);
+            for (Map<Long, Float> posting : prefixed.values()) {
+                posting.forEach((id, w) -> result.merge(id, w * PREFIX_FACTOR, Math::max));
+            }
+        }
+
+        // Typo tolerance only kicks in when nothing matched literally
+        if (result.isEmpty() && term.length() >= 4) {
+            int maxEdits = term.length() >= 8 ? 2 : 1;
+            for (Map.Entry<String, Map<Long, Float>> e : postings.entrySet()) {
+                String candidate = e.getKey();
+                if (Math.abs(candidate.length() - term.length()) > maxEdits) continue;
+                if (editDistance(term, candidate, maxEdits) <= maxEdits) {
+                    e.getValue().forEach((id, w) -> result.merge(id, w * FUZZY_FACTOR, Math::max));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Doc toDoc(Product p) {
+        Map<String, Float> terms = new HashMap<>();
+        for (String t : tokenize(p.getName())) terms.merge(t, NAME_WEIGHT, Float::sum);
+        if (p.getCategory() != null) {
+            for (String t : tokenize(p.getCategory().getName())) terms.merge(t, CATEGORY_WEIGHT, Float::sum);
+        }
+        for (String t : new LinkedHashSet<>(tokenize(p.getDescription()))) terms.merge(t, DESCRIPTION_WEIGHT, Float::sum);
+        return new Doc(ProductSummaryDTO.fromProduct(p), terms);
+    }
+
+    private static void addPostings(TreeMap<String, Map<Long, Float>> target, Long id, Doc doc) {
+        doc.terms.forEach((term, weight) -> target.computeIfAbsent(term, k -> new HashMap<>()).put(id, weight));
+    }
+
+    private void removePostings(Long id, Doc doc) {
+        for (String term : doc.terms.keySet()) {
+            Map<Long, Float> posting = postings.get(term);
+            if (posting == null) continue;
+            posting.remove(id);
+            if (posting.isEmpty()) postings.remove(term);
+        }
+    }
+
+    /**
+     * Lowercase, strip accents, split on anything that is not a letter or digit,
+     * and fold simple plurals ("apples" -> "apple") so queries and documents meet in the middle.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) return tokens;
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+            .replaceAll("\\p{M}", "")
+            .toLowerCase(Locale.ROOT);
+        for (String raw : normalized.split("[^\\p{L}\\p{N}]+")) {
+            if (raw.length() < 2) continue;
+            String token = raw;
+            if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+                token = token.substring(0, token.length() - 1);
+            }
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /**
+     * Optimal string alignment distance (Levenshtein plus adjacent transpositions),
+     * abandoning early once every cell in a row exceeds maxEdits.
+     */
+    static int editDistance(String a, String b, int maxEdits) {
+        int n = a.length();
+        int m = b.length();
+        int[] prevPrev = new int[m + 1];
+        int[] prev = new int[m + 1];
+        int[] curr = new int[m + 1];
+        for (int j = 0; j <= m; j++) prev[j] = j;
+
+        for (int i = 1; i <= n; i++) {
+            curr[0] = i;
+            int rowMin = curr[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(prev[j] + 1, curr[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, prevPrev[j - 2] + 1);
+                }
+                curr[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxEdits) return maxEdits + 1;
+            int[] tmp = prevPrev;
+            prevPrev = prev;
+            prev = curr;
+            curr = tmp;
+        }
+        return prev[m];
+    }
+}
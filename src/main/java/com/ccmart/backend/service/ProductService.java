@@ -0,0 +1,116 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.dto.ProductDTO;
+import com.ccmart.backend.event.ProductChangedEvent;
+import com.ccmart.backend.model.Product;
+import com.ccmart.backend.repository.CategoryRepository;
+import com.ccmart.backend.repository.ProductRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Admin product writes. Each one runs in a transaction together with its ProductChangedEvent, so the
+ * product_changes row written before commit lands or rolls back with the product itself.
+ * Image data URIs are externalized by the caller first; file I/O stays outside the transaction.
+ */
+@Service
+public class ProductService {
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository,
+                          ApplicationEventPublisher eventPublisher) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional
+    public Product create(ProductDTO dto, String imageUrl) {
+        Product p = new Product();
+        p.setName(dto.getName());
+        p.setDescription(dto.getDescription());
+        p.setPrice(dto.getPrice());
+        p.setImageUrl(imageUrl);
+        p.setStockQuantity(dto.getStockQuantity() == null ? 0 : dto.getStockQuantity());
+        p.setUnit(dto.getUnit() == null ? "piece" : dto.getUnit());
+        p.setIsFeatured(dto.getIsFeatured() == null ? false : dto.getIsFeatured());
+        p.setIsActive(true); // Explicitly set new products as active
+
+        // Set category if provided
+        if (dto.getCategoryId() != null) {
+            categoryRepository.findById(dto.getCategoryId()).ifPresent(p::setCategory);
+        }
+
+        Product saved = productRepository.save(p);
+        eventPublisher.publishEvent(ProductChangedEvent.created(saved));
+        return saved;
+    }
+
+    // Empty when the product does not exist
+    @Transactional
+    public Optional<Product> update(Long id, ProductDTO dto, String imageUrl) {
+        Optional<Product> existing = productRepository.findById(id);
+        if (existing.isEmpty()) return existing;
+        Product e = existing.get();
+        e.setName(dto.getName());
+        e.setDescription(dto.getDescription());
+        e.setPrice(dto.getPrice());
+        e.setImageUrl(imageUrl);
+        e.setStockQuantity(dto.getStockQuantity());
+        e.setUnit(dto.getUnit());
+        e.setIsFeatured(dto.getIsFeatured());
+
+        // Set isActive to true if not provided (ensures existing products become active)
+        e.setIsActive(dto.getIsActive() != null ? dto.getIsActive() : true);
+
+        // Update category if provided
+        if (dto.getCategoryId() != null) {
+            categoryRepository.findById(dto.getCategoryId()).ifPresent(e::setCategory);
+        }
+
+        productRepository.save(e);
+        eventPublisher.publishEvent(ProductChangedEvent.updated(e, dto.getStockQuantity() != null));
+        return Optional.of(e);
+    }
+
+    /**
+     * Hard delete. The flush surfaces constraint violations here (as DataIntegrityViolationException, after
+     * rolling back), and the tombstone row commits together with the delete.
+     */
+    @Transactional
+    public void delete(Long id) {
+        productRepository.deleteById(id);
+        productRepository.flush();
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
+    }
+
+    @Transactional
+    public void deactivate(Product product) {
+        product.setIsActive(false);
+        productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.updated(product));
+    }
+
+    // Returns the number of products that were inactive
+    @Transactional
+    public int activateAll() {
+        List<Product> allProducts = productRepository.findAll();
+        int fixed = 0;
+        for (Product p : allProducts) {
+            if (p.getIsActive() == null || !p.getIsActive()) {
+                p.setIsActive(true);
+                productRepository.save(p);
+                eventPublisher.publishEvent(ProductChangedEvent.updated(p));
+                fixed++;
+            }
+        }
+        return fixed;
+    }
+}
@@ -0,0 +1,341 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.dto.ProductSummaryDTO;
+import com.ccmart.backend.dto.SuggestionDTO;
+import com.ccmart.backend.event.CategoryChangedEvent;
+import com.ccmart.backend.event.ProductChangedEvent;
+import com.ccmart.backend.model.Category;
+import com.ccmart.backend.repository.CategoryRepository;
+import com.ccmart.backend.repository.OrderItemRepository;
+import com.ccmart.backend.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Autocomplete over product and category names, served from a radix trie (edges carry whole label strings,
+ * so single-child chains are collapsed). Each name is inserted once per word start, so "milk" finds
+ * "Fresh Milk 1L". Every node caches the top suggestions of its subtree, which makes a lookup a walk down
+ * the prefix with no scoring at query time.
+ *
+ * Scores are units sold from order_items (categories get the sum of their products), refreshed periodically.
+ * Product changes that arrive while a rebuild is loading are recorded and replayed onto the new trie when it
+ * is swapped in, as in ProductSearchIndex.
+ */
+@Service
+public class ProductSuggestIndex {
+
+    // Per-node cache size, and so the largest limit a lookup can return
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final Comparator<Entry> RANKING = Comparator.<Entry>comparingLong(e -> e.score).reversed()
+        .thenComparingInt(e -> e.text.length())
+        .thenComparing(e -> e.text, String.CASE_INSENSITIVE_ORDER);
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // One rebuild at a time
+    private final Object rebuildLock = new Object();
+
+    private Node root = new Node("");
+    // "p:<id>" / "c:<id>" -> entry, so an entry can be found again to remove all of its keys
+    private Map<String, Entry> entries = new HashMap<>();
+    private Map<Long, Long> unitsSold = new HashMap<>();
+    // Updates made since the running rebuild started loading; null when no rebuild runs. Guarded by the write lock.
+    private List<Runnable> replay;
+
+    private static final class Entry {
+        final String type;
+        final Long id;
+        final String text;
+        final long score;
+        final List<String> keys;
+
+        Entry(String type, Long id, String text, long score) {
+            this.type = type;
+            this.id = id;
+            this.text = text;
+            this.score = score;
+            this.keys = wordStartKeys(text);
+        }
+
+        String ref() { return refOf(type, id); }
+    }
+
+    private static final class Node {
+        String label;
+        final Map<Character, Node> children = new HashMap<>(4);
+        final List<Entry> terminals = new ArrayList<>(1);
+        List<Entry> top = List.of();
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+
+    public ProductSuggestIndex(ProductRepository productRepository, CategoryRepository categoryRepository,
+                               OrderItemRepository orderItemRepository) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.orderItemRepository = orderItemRepository;
+    }
+
+    /**
+     * Reload names and sales figures and swap in a fresh trie. Runs at startup, on category changes and bulk
+     * imports, and periodically so rankings follow sales.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${catalog.suggest.refresh-ms:3600000}", initialDelayString = "${catalog.suggest.refresh-ms:3600000}")
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            lock.writeLock().lock();
+            try {
+                replay = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Map<Long, Long> sold = new HashMap<>();
+            Node newRoot = new Node("");
+            Map<String, Entry> newEntries = new HashMap<>();
+            boolean loaded = false;
+            try {
+                for (Object[] row : orderItemRepository.sumQuantityByProduct()) {
+                    if (row[0] != null && row[1] != null) sold.put((Long) row[0], ((Number) row[1]).longValue());
+                }
+                Map<Long, Long> categoryScores = new HashMap<>();
+                for (ProductSummaryDTO p : productRepository.findSummaries(Pageable.unpaged())) {
+                    if (Boolean.FALSE.equals(p.getIsActive())) continue;
+                    long score = sold.getOrDefault(p.getId(), 0L);
+                    if (p.getCategoryId() != null) categoryScores.merge(p.getCategoryId(), score, Long::sum);
+                    Entry entry = new Entry("product", p.getId(), p.getName(), score);
+                    newEntries.put(entry.ref(), entry);
+                    for (String key : entry.keys) insert(newRoot, key, entry);
+                }
+                for (Category c : categoryRepository.findAll()) {
+                    if (Boolean.FALSE.equals(c.getIsActive())) continue;
+                    Entry entry = new Entry("category", c.getId(), c.getName(), categoryScores.getOrDefault(c.getId(), 0L));
+                    newEntries.put(entry.ref(), entry);
+                    for (String key : entry.keys) insert(newRoot, key, entry);
+                }
+                loaded = true;
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    List<Runnable> updates = replay;
+                    replay = null;
+                    if (loaded) {
+                        root = newRoot;
+                        entries = newEntries;
+                        unitsSold = sold;
+                        // Replayed in arrival order against the new trie; a remove-then-add is idempotent
+                        updates.forEach(Runnable::run);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        switch (event.getType()) {
+            case BULK -> rebuild();
+            case STOCK_CHANGED -> { } // names and sales figures are unaffected
+            case DELETED -> removeProduct(event.getProductId());
+            default -> {
+                ProductSummaryDTO p = ProductSummaryDTO.fromProduct(event.getProduct());
+                removeProduct(p.getId());
+                if (!Boolean.FALSE.equals(p.getIsActive())) addProduct(p);
+            }
+        }
+    }
+
+    // Category renames also change category scores; cheap enough to reload everything
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        rebuild();
+    }
+
+    public void addProduct(ProductSummaryDTO p) {
+        update(() -> {
+            Entry entry = new Entry("product", p.getId(), p.getName(), unitsSold.getOrDefault(p.getId(), 0L));
+            Entry old = entries.put(entry.ref(), entry);
+            if (old != null) for (String key : old.keys) remove(root, key, old);
+            for (String key : entry.keys) insert(root, key, entry);
+        });
+    }
+
+    public void removeProduct(Long productId) {
+        update(() -> {
+            Entry entry = entries.remove(refOf("product", productId));
+            if (entry == null) return;
+            for (String key : entry.keys) remove(root, key, entry);
+        });
+    }
+
+    // Applies the change to the live trie, and records it for the new one if a rebuild is loading
+    private void update(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+            if (replay != null) replay.add(change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) return List.of();
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int i = 0;
+            while (i < key.length()) {
+                Node child = node.children.get(key.charAt(i));
+                if (child == null) return List.of();
+                int common = commonPrefix(child.label, key, i);
+                // The prefix may end part-way along an edge; everything below that edge still matches
+                if (common < child.label.length() && i + common < key.length()) return List.of();
+                i += common;
+                node = child;
+            }
+            List<SuggestionDTO> result = new ArrayList<>();
+            for (Entry e : node.top) {
+                if (result.size() >= limit) break;
+                result.add(new SuggestionDTO(e.type, e.id, e.text, e.score));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void insert(Node root, String key, Entry entry) {
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.children.get(key.charAt(i));
+            if (child == null) {
+                child = new Node(key.substring(i));
+                node.children.put(key.charAt(i), child);
+                node = child;
+                path.add(node);
+                break;
+            }
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // Split the edge: node -> mid(common part) -> child(rest)
+                Node mid = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                mid.children.put(child.label.charAt(0), child);
+                mid.top = child.top;
+                node.children.put(mid.label.charAt(0), mid);
+                child = mid;
+            }
+            i += common;
+            node = child;
+            path.add(node);
+        }
+        node.terminals.add(entry);
+        for (int p = path.size() - 1; p >= 0; p--) recomputeTop(path.get(p));
+    }
+
+    private static void remove(Node root, String key, Entry entry) {
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.children.get(key.charAt(i));
+            if (child == null || !key.startsWith(child.label, i)) return;
+            i += child.label.length();
+            node = child;
+            path.add(node);
+        }
+        if (!node.terminals.remove(entry)) return;
+
+        // Prune empty leaves and re-merge single-child chains so the trie stays compressed
+        for (int p = path.size() - 1; p > 0; p--) {
+            Node current = path.get(p);
+            Node parent = path.get(p - 1);
+            if (current.terminals.isEmpty() && current.children.isEmpty()) {
+                parent.children.remove(current.label.charAt(0));
+            } else if (current.terminals.isEmpty() && current.children.size() == 1) {
+                Node only = current.children.values().iterator().next();
+                only.label = current.label + only.label;
+                parent.children.put(only.label.charAt(0), only);
+            } else {
+                recomputeTop(current);
+            }
+        }
+        recomputeTop(root);
+    }
+
+    // Top entries of this subtree: own terminals plus the children's cached tops, de-duplicated per entry
+    private static void recomputeTop(Node node) {
+        List<Entry> candidates = new ArrayList<>(node.terminals);
+        for (Node child : node.children.values()) candidates.addAll(child.top);
+        candidates.sort(RANKING);
+        Set<String> seen = new HashSet<>();
+        List<Entry> top = new ArrayList<>(MAX_SUGGESTIONS);
+        for (Entry e : candidates) {
+            if (seen.add(e.ref())) top.add(e);
+            if (top.size() >= MAX_SUGGESTIONS) break;
+        }
+        node.top = top;
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int n = 0;
+        while (n < max && label.charAt(n) == key.charAt(offset + n)) n++;
+        return n;
+    }
+
+    // "Fresh Milk 1L" -> ["fresh milk 1l", "milk 1l", "1l"]
+    private static List<String> wordStartKeys(String text) {
+        String normalized = normalize(text);
+        Set<String> keys = new LinkedHashSet<>();
+        if (normalized.isEmpty()) return List.of();
+        keys.add(normalized);
+        for (int i = 1; i < normalized.length(); i++) {
+            if (normalized.charAt(i - 1) == ' ') keys.add(normalized.substring(i));
+        }
+        return new ArrayList<>(keys);
+    }
+
+    // Lowercase, strip accents, and collapse punctuation/whitespace runs to a single space
+    static String normalize(String text) {
+        if (text == null) return "";
+        return Normalizer.normalize(text, Normalizer.Form.NFD)
+            .replaceAll("\\p{M}", "")
+            .toLowerCase(Locale.ROOT)
+            .replaceAll("[^\\p{L}\\p{N}]+", " ")
+            .trim();
+    }
+
+    private static String refOf(String type, Long id) {
+        return type.charAt(0) + ":" + id;
+    }
+}
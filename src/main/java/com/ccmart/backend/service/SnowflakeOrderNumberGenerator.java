@@ -0,0 +1,79 @@
+package com.ccmart.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style order numbers: a 63-bit id of milliseconds since 2024-01-01 (41 bits), the leased node id
+ * (10 bits) and a per-millisecond sequence (12 bits), written as 13 Crockford base32 characters after "ORD-".
+ * Ids from different nodes never collide, and ids from one node never repeat, so the unique constraint on
+ * order_number cannot fail. The fixed width keeps the strings in creation order.
+ *
+ * Within a node the (time, sequence) pair is advanced with a single CAS, no lock. When 4096 numbers are taken
+ * in one millisecond, or the clock steps backwards, the sequence carries over into the time part, so the
+ * generator runs slightly ahead of the clock instead of blocking or repeating.
+ *
+ * Timestamps stay inside the node lease's window: never below its floor (above everything the id's previous
+ * owner could have issued) and never past its fence, which the next owner will start above.
+ */
+@Component
+public class SnowflakeOrderNumberGenerator implements OrderNumberGenerator {
+
+    static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final String PREFIX = "ORD-";
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13; // ceil(63 / 5)
+    private static final long CLOSED = Long.MAX_VALUE;
+
+    private final NodeIdLease nodeIdLease;
+    // (millis since EPOCH << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong last = new AtomicLong();
+
+    public SnowflakeOrderNumberGenerator(NodeIdLease nodeIdLease) {
+        this.nodeIdLease = nodeIdLease;
+    }
+
+    @Override
+    public String next() {
+        return PREFIX + encode(nextId());
+    }
+
+    public long nextId() {
+        NodeIdLease.Lease lease = nodeIdLease.current();
+        long now = (Math.max(System.currentTimeMillis(), lease.floorMillis) - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long previous;
+        long stamp;
+        do {
+            previous = last.get();
+            if (previous == CLOSED) throw new IllegalStateException("Order number generator is shut down");
+            stamp = now > previous ? now : previous + 1;
+        } while (!last.compareAndSet(previous, stamp));
+        long millis = stamp >>> SEQUENCE_BITS;
+        if (millis + EPOCH_MILLIS > lease.fenceMillis) {
+            throw new IllegalStateException("Order number node lease fence reached; numbers resume after the next renewal");
+        }
+        long sequence = stamp & ((1L << SEQUENCE_BITS) - 1);
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | ((long) lease.nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    // Stop issuing before the lease goes, and let its fence shrink to the last timestamp actually used
+    @PreDestroy
+    public void shutdown() {
+        long issued = last.getAndSet(CLOSED);
+        nodeIdLease.release((issued >>> SEQUENCE_BITS) + EPOCH_MILLIS);
+    }
+
+    static String encode(long id) {
+        char[] out = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            out[i] = CROCKFORD[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(out);
+    }
+}
@@ -0,0 +1,141 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.model.StockHold;
+import com.ccmart.backend.repository.StockHoldRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Cart stock holds. Adding to the cart takes the units from stock through {@link InventoryService} and records
+ * a hold with a TTL; adding the same product again tops the hold up and restarts the TTL. Checkout consumes
+ * the user's holds, so only the part of an order not already held is reserved again. Holds left alone past
+ * their TTL are swept back into stock in batches.
+ *
+ * Hold rows are locked while they are changed, so an extension, a checkout and the sweeper never act on the
+ * same hold at once.
+ */
+@Service
+public class StockHoldService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockHoldService.class);
+
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    private final StockHoldRepository stockHoldRepository;
+    private final InventoryService inventoryService;
+    private final TransactionTemplate transactionTemplate;
+    private final long ttlMinutes;
+
+    public StockHoldService(StockHoldRepository stockHoldRepository, InventoryService inventoryService,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${inventory.holds.ttl-minutes:15}") long ttlMinutes) {
+        this.stockHoldRepository = stockHoldRepository;
+        this.inventoryService = inventoryService;
+        this.transactionTemplate = transactionTemplate;
+        this.ttlMinutes = ttlMinutes;
+    }
+
+    /**
+     * Hold another {@code quantity} units for the user, or throw IllegalArgumentException when they are not
+     * in stock. Returns the hold with its new total and expiry.
+     */
+    @Transactional
+    public StockHold hold(Long userId, Long productId, int quantity) {
+        if (quantity <= 0) throw new IllegalArgumentException("Quantity must be at least 1");
+        // Hold row before product row, the same order checkout and the sweeper lock them in
+        StockHold hold = stockHoldRepository.findForUpdate(userId, productId).orElse(null);
+        inventoryService.reserve(Map.of(productId, quantity));
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(ttlMinutes);
+        if (hold == null) {
+            hold = new StockHold(userId, productId, quantity, expiresAt);
+        } else {
+            hold.setQuantity(hold.getQuantity() + quantity);
+            hold.setExpiresAt(expiresAt);
+        }
+        return stockHoldRepository.save(hold);
+    }
+
+    // Cart item removed: give back up to that many held units
+    @Transactional
+    public void release(Long userId, Long productId, int quantity) {
+        StockHold hold = stockHoldRepository.findForUpdate(userId, productId).orElse(null);
+        if (hold == null || quantity <= 0) return;
+        int released = Math.min(quantity, hold.getQuantity());
+        inventoryService.release(Map.of(productId, released));
+        if (released == hold.getQuantity()) {
+            stockHoldRepository.delete(hold);
+        } else {
+            hold.setQuantity(hold.getQuantity() - released);
+            stockHoldRepository.save(hold);
+        }
+    }
+
+    public List<StockHold> getHolds(Long userId) {
+        return stockHoldRepository.findByUserId(userId);
+    }
+
+    /**
+     * Turn the user's holds into order lines (productId -> units). Held units are used as they are; the
+     * returned map is what the holds did not cover and still has to be reserved. Holds that are used up are
+     * deleted, partly used ones keep the rest.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, Integer> consume(Long userId, Map<Long, Integer> quantities) {
+        Map<Long, Integer> uncovered = new TreeMap<>(quantities);
+        if (userId == null) return uncovered;
+        List<StockHold> used = new ArrayList<>();
+        for (StockHold hold : stockHoldRepository.findByUserIdForUpdate(userId)) {
+            Integer wanted = uncovered.get(hold.getProductId());
+            if (wanted == null) continue;
+            int covered = Math.min(wanted, hold.getQuantity());
+            if (covered == wanted) {
+                uncovered.remove(hold.getProductId());
+            } else {
+                uncovered.put(hold.getProductId(), wanted - covered);
+            }
+            if (covered == hold.getQuantity()) {
+                used.add(hold);
+            } else {
+                hold.setQuantity(hold.getQuantity() - covered);
+            }
+        }
+        stockHoldRepository.deleteAllInBatch(used);
+        return uncovered;
+    }
+
+    // Each batch is its own transaction: rows are locked, their units released, and the rows deleted together
+    @Scheduled(fixedDelayString = "${inventory.holds.sweep-ms:30000}")
+    public void releaseExpired() {
+        int total = 0;
+        while (true) {
+            Integer released = transactionTemplate.execute(status -> {
+                List<StockHold> expired = stockHoldRepository.findExpiredForUpdate(LocalDateTime.now(),
+                    PageRequest.of(0, SWEEP_BATCH_SIZE));
+                if (expired.isEmpty()) return 0;
+                Map<Long, Integer> quantities = new TreeMap<>();
+                for (StockHold hold : expired) quantities.merge(hold.getProductId(), hold.getQuantity(), Integer::sum);
+                inventoryService.release(quantities);
+                stockHoldRepository.deleteAllInBatch(expired);
+                return expired.size();
+            });
+            total += released;
+            if (released < SWEEP_BATCH_SIZE) break;
+        }
+        if (total > 0) {
+            log.info("Released {} expired stock holds", total);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.ccmart.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeliverySlotServiceTest {
+
+    private static final String WINDOWS = "08:00-10:00,10:00-12:00";
+    private static final String TAKE = "UPDATE delivery_slots SET reserved = reserved + 1";
+    private static final String INSERT = "INSERT INTO delivery_slots";
+
+    private final LocalDate tomorrow = LocalDate.now().plusDays(1);
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT id FROM delivery_slots"), eq(Long.class), any(), any()))
+            .thenReturn(5L);
+    }
+
+    private DeliverySlotService service(boolean strictWindows) {
+        return new DeliverySlotService(jdbcTemplate, transactionTemplate, WINDOWS, 2, 7, strictWindows);
+    }
+
+    // Loads one slot row for tomorrow's 10:00-12:00 window into the service's memory
+    private void mirrorSlot(DeliverySlotService service, int capacity, int reserved) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn(5L);
+        when(rs.getDate(2)).thenReturn(Date.valueOf(tomorrow));
+        when(rs.getString(3)).thenReturn("10:00-12:00");
+        when(rs.getInt(4)).thenReturn(capacity);
+        when(rs.getInt(5)).thenReturn(reserved);
+        doAnswer(inv -> {
+            ((RowCallbackHandler) inv.getArgument(1)).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT id, slot_date"), any(RowCallbackHandler.class), any(), any());
+        service.reload();
+    }
+
+    @Test
+    void reservesPlaceAndNormalizesWindow() throws Exception {
+        DeliverySlotService service = service(false);
+        mirrorSlot(service, 2, 0);
+        when(jdbcTemplate.update(startsWith(TAKE), eq(5L))).thenReturn(1);
+
+        DeliverySlotService.Reservation reservation = service.reserve(tomorrow.atTime(10, 0), "10 AM - 12 PM");
+
+        assertEquals(5L, reservation.slotId());
+        assertEquals("10:00-12:00", reservation.window());
+        verify(jdbcTemplate, never()).update(startsWith(INSERT), any(), any(), any());
+    }
+
+    @Test
+    void fullSlotIsRejectedWithoutAnyInsert() throws Exception {
+        DeliverySlotService service = service(false);
+        mirrorSlot(service, 2, 2);
+        when(jdbcTemplate.update(startsWith(TAKE), eq(5L))).thenReturn(0);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> service.reserve(tomorrow.atTime(10, 0), "10:00-12:00"));
+
+        assertTrue(e.getMessage().contains("is full"));
+        verify(jdbcTemplate, never()).update(startsWith(INSERT), any(), any(), any());
+    }
+
+    @Test
+    void missingRowIsCreatedBeforeTheLockingUpdate() {
+        DeliverySlotService service = service(false);
+        when(jdbcTemplate.update(startsWith(TAKE), eq(5L))).thenReturn(0);
+
+        assertThrows(IllegalArgumentException.class, () -> service.reserve(tomorrow.atTime(10, 0), "10:00-12:00"));
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).update(startsWith(INSERT), any(), any(), any());
+        order.verify(jdbcTemplate).update(startsWith(TAKE), eq(5L));
+        order.verify(jdbcTemplate, never()).update(startsWith(INSERT), any(), any(), any());
+    }
+
+    @Test
+    void unknownWindowTakesNoSlotUnlessStrict() {
+        LocalDateTime date = tomorrow.atTime(9, 0);
+
+        assertNull(service(false).reserve(date, "09:30-11:30"));
+        assertThrows(IllegalArgumentException.class, () -> service(true).reserve(date, "09:30-11:30"));
+        verify(jdbcTemplate, never()).update(startsWith(TAKE), anyLong());
+    }
+
+    @Test
+    void dateOutsideBookableDaysIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+            () -> service(false).reserve(LocalDate.now().plusDays(8).atTime(10, 0), "10:00-12:00"));
+    }
+
+    @Test
+    void orderWithoutDeliveryTimeTakesNoSlot() {
+        assertNull(service(true).reserve(tomorrow.atTime(10, 0), " "));
+        assertNull(service(true).reserve(null, "10:00-12:00"));
+    }
+}
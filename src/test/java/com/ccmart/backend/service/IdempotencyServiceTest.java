@@ -0,0 +1,110 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.model.IdempotencyRecord;
+import com.ccmart.backend.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+
+    private IdempotencyRecordRepository repository;
+    private IdempotencyService service;
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(IdempotencyRecordRepository.class);
+        when(repository.findByUserIdAndIdempotencyKey(anyLong(), anyString())).thenReturn(Optional.empty());
+        when(repository.saveAndFlush(any(IdempotencyRecord.class))).thenAnswer(inv -> {
+            IdempotencyRecord record = inv.getArgument(0);
+            record.setId(1L);
+            return record;
+        });
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+        service = new IdempotencyService(repository, new ObjectMapper(), new TransactionTemplate(transactionManager),
+            24, 100, 1);
+    }
+
+    private ResponseEntity<?> created() {
+        runs.incrementAndGet();
+        return ResponseEntity.status(201).body(Map.of("id", 42));
+    }
+
+    @Test
+    void retryReplaysStoredResponseWithoutRunningAgain() {
+        ResponseEntity<?> first = service.execute(7L, "key-1", Map.of("qty", 1), this::created);
+        ResponseEntity<?> second = service.execute(7L, "key-1", Map.of("qty", 1), this::created);
+
+        assertEquals(1, runs.get());
+        assertEquals(201, first.getStatusCode().value());
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(201, second.getStatusCode().value());
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals("{\"id\":42}", second.getBody());
+    }
+
+    @Test
+    void sameKeyWithDifferentBodyIsRejected() {
+        service.execute(7L, "key-1", Map.of("qty", 1), this::created);
+        ResponseEntity<?> retry = service.execute(7L, "key-1", Map.of("qty", 2), this::created);
+
+        assertEquals(1, runs.get());
+        assertEquals(422, retry.getStatusCode().value());
+    }
+
+    @Test
+    void failedRequestFreesTheKey() {
+        ResponseEntity<?> failed = service.execute(7L, "key-1", Map.of("qty", 1), () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.badRequest().body("Insufficient stock");
+        });
+        ResponseEntity<?> retry = service.execute(7L, "key-1", Map.of("qty", 1), this::created);
+
+        assertEquals(400, failed.getStatusCode().value());
+        assertEquals(201, retry.getStatusCode().value());
+        assertEquals(2, runs.get());
+        verify(repository).deleteById(1L);
+    }
+
+    @Test
+    void keyClaimedElsewhereAndStillRunningIsConflict() {
+        when(repository.saveAndFlush(any(IdempotencyRecord.class)))
+            .thenThrow(new DataIntegrityViolationException("uk_idempotency_keys"));
+
+        ResponseEntity<?> response = service.execute(7L, "key-1", Map.of("qty", 1), this::created);
+
+        assertEquals(409, response.getStatusCode().value());
+        assertEquals(0, runs.get());
+        verify(repository, never()).deleteById(anyLong());
+    }
+
+    @Test
+    void keysAreValidatedForLength() {
+        assertFalse(IdempotencyService.isValidKey(" "));
+        assertFalse(IdempotencyService.isValidKey("k".repeat(129)));
+        assertTrue(IdempotencyService.isValidKey("k".repeat(128)));
+    }
+}
@@ -0,0 +1,126 @@
+package com.ccmart.backend.service;
+
+import com.ccmart.backend.event.ProductChangedEvent;
+import com.ccmart.backend.model.Product;
+import com.ccmart.backend.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InventoryServiceTest {
+
+    private ProductRepository productRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private InventoryLedger ledger;
+    private InventoryService service;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        ledger = mock(InventoryLedger.class);
+        service = new InventoryService(productRepository, eventPublisher, ledger);
+    }
+
+    // Requested out of id order on purpose
+    private static Map<Long, Integer> lines() {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(9L, 1);
+        quantities.put(3L, 2);
+        return quantities;
+    }
+
+    @Test
+    void reserveDecrementsInIdOrderAndPublishesNewLevels() {
+        when(productRepository.decrementStock(anyLong(), anyInt(), any())).thenReturn(1);
+        when(productRepository.findStockLevels(anyCollection()))
+            .thenReturn(List.of(new Object[] { 3L, 8 }, new Object[] { 9L, 4 }));
+
+        service.reserve(lines());
+
+        InOrder order = inOrder(productRepository);
+        order.verify(productRepository).decrementStock(eq(3L), eq(2), any());
+        order.verify(productRepository).decrementStock(eq(9L), eq(1), any());
+        ArgumentCaptor<ProductChangedEvent> events = ArgumentCaptor.forClass(ProductChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(ProductChangedEvent.Type.STOCK_CHANGED, events.getAllValues().get(0).getType());
+        assertEquals(8, events.getAllValues().get(0).getStockQuantity());
+    }
+
+    @Test
+    void shortfallNamesTheProductAndStopsThere() {
+        when(productRepository.decrementStock(eq(3L), eq(2), any())).thenReturn(0);
+        when(productRepository.findStockLevels(List.of(3L))).thenReturn(List.<Object[]>of(new Object[] { 3L, 1 }));
+        Product product = new Product();
+        product.setName("Rice 5kg");
+        when(productRepository.findById(3L)).thenReturn(Optional.of(product));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> service.reserve(lines()));
+
+        assertEquals("Insufficient stock for Rice 5kg. Available: 1, Requested: 2", e.getMessage());
+        verify(productRepository, never()).decrementStock(eq(9L), anyInt(), any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void unknownProductIsReported() {
+        when(productRepository.decrementStock(anyLong(), anyInt(), any())).thenReturn(0);
+        when(productRepository.findStockLevels(List.of(3L))).thenReturn(List.of());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> service.reserve(lines()));
+
+        assertEquals("Product not found with ID: 3", e.getMessage());
+    }
+
+    @Test
+    void releaseIncrementsEveryLine() {
+        when(productRepository.findStockLevels(anyCollection())).thenReturn(List.of());
+
+        service.release(lines());
+
+        verify(productRepository).incrementStock(eq(3L), eq(2), any());
+        verify(productRepository).incrementStock(eq(9L), eq(1), any());
+    }
+
+    @Test
+    void ledgerModeBypassesTheTable() {
+        when(ledger.isEnabled()).thenReturn(true);
+        when(ledger.reserve(any())).thenReturn(Map.of(3L, 8));
+
+        service.reserve(lines());
+
+        verify(productRepository, never()).decrementStock(anyLong(), anyInt(), any());
+        verify(eventPublisher).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    void ledgerShortfallBecomesIllegalArgument() {
+        when(ledger.isEnabled()).thenReturn(true);
+        when(ledger.reserve(any())).thenThrow(new InventoryLedger.Shortfall(9L, 0, 1));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> service.reserve(lines()));
+
+        assertEquals("Insufficient stock for product 9. Available: 0, Requested: 1", e.getMessage());
+    }
+}
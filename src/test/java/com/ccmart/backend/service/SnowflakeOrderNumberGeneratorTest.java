@@ -0,0 +1,96 @@
+package com.ccmart.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SnowflakeOrderNumberGeneratorTest {
+
+    private static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final long HOUR = 3_600_000L;
+
+    private NodeIdLease nodeIdLease;
+    private SnowflakeOrderNumberGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        nodeIdLease = mock(NodeIdLease.class);
+        generator = new SnowflakeOrderNumberGenerator(nodeIdLease);
+    }
+
+    private void lease(int nodeId, long floorMillis, long fenceMillis) {
+        when(nodeIdLease.current()).thenReturn(
+            new NodeIdLease.Lease(nodeId, floorMillis, fenceMillis, System.nanoTime() + HOUR * 1_000_000));
+    }
+
+    private static long millisOf(long id) {
+        return (id >>> 22) + EPOCH_MILLIS;
+    }
+
+    @Test
+    void idsAreUniqueIncreasingAndCarryTheNodeId() {
+        lease(5, 0, System.currentTimeMillis() + HOUR);
+        Set<Long> seen = new HashSet<>();
+        long previous = -1;
+        for (int i = 0; i < 50_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertTrue(seen.add(id));
+            assertEquals(5, (id >>> 12) & 1023);
+            previous = id;
+        }
+    }
+
+    @Test
+    void numbersAreFixedWidthAndSortLikeTheIds() {
+        lease(1, 0, System.currentTimeMillis() + HOUR);
+        String first = generator.next();
+        String second = generator.next();
+        assertTrue(first.startsWith("ORD-"));
+        assertEquals(17, first.length());
+        assertTrue(first.compareTo(second) < 0);
+        assertEquals("0000000000001", SnowflakeOrderNumberGenerator.encode(1));
+    }
+
+    @Test
+    void takenOverIdStartsAbovePreviousOwnersFence() {
+        long floor = System.currentTimeMillis() + 10 * 60_000L;
+        lease(3, floor, floor + HOUR);
+        assertTrue(millisOf(generator.nextId()) >= floor);
+    }
+
+    @Test
+    void stopsIssuingPastTheFence() {
+        lease(3, 0, System.currentTimeMillis() - 1000);
+        assertThrows(IllegalStateException.class, generator::nextId);
+    }
+
+    @Test
+    void shutdownStopsIssuingAndReleasesWithLastTimestamp() {
+        lease(2, 0, System.currentTimeMillis() + HOUR);
+        long id = generator.nextId();
+        generator.shutdown();
+
+        verify(nodeIdLease).release(millisOf(id));
+        assertThrows(IllegalStateException.class, generator::nextId);
+    }
+
+    @Test
+    void leaseFailureStopsIssuing() {
+        when(nodeIdLease.current()).thenThrow(new IllegalStateException("lease expired"));
+        assertThrows(IllegalStateException.class, generator::nextId);
+        verify(nodeIdLease, never()).release(anyLong());
+    }
+}